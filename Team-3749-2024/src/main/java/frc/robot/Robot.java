@@ -7,11 +7,14 @@ package frc.robot;
 import edu.wpi.first.wpilibj.DataLogManager;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.simulation.BatterySim;
+import edu.wpi.first.wpilibj.simulation.RoboRioSim;
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
 // import frc.robot.subsystems.swerve.Swerve;
 import frc.robot.subsystems.vision.Limelight;
+import frc.robot.subsystems.vision.NoteTracker;
 import frc.robot.commands.superstructure.SuperStructureCommands;
 import frc.robot.commands.swerve.AutoUtils;
 import frc.robot.subsystems.arm.Arm;
@@ -21,7 +24,12 @@ import frc.robot.subsystems.intake.Intake;
 import frc.robot.subsystems.led.Led;
 import frc.robot.subsystems.shooter.Shooter;
 import frc.robot.subsystems.wrist.Wrist;
+import frc.robot.utils.LimelightResultCache;
+import frc.robot.utils.MiscConstants;
+import frc.robot.utils.PowerManager;
+import frc.robot.utils.SuperStructurePlanner;
 import frc.robot.utils.SuperStructureStates;
+import frc.robot.utils.VoltageOutput;
 import frc.robot.utils.Xbox;
 import frc.robot.subsystems.arm.Arm;
 import frc.robot.subsystems.swerve.Swerve;
@@ -37,6 +45,10 @@ public class Robot extends TimedRobot {
   public static final Intake intake = new Intake();
   public static final Shooter shooter = new Shooter();
   public static Limelight limelight;
+  public static final NoteTracker noteTracker = new NoteTracker();
+
+  public static final SuperStructurePlanner planner = new SuperStructurePlanner();
+  public static final PowerManager power = new PowerManager();
 
   public static SuperStructureStates state = SuperStructureStates.STOW;
   public static SuperStructureCommands centralCommand = new SuperStructureCommands();
@@ -49,25 +61,65 @@ public class Robot extends TimedRobot {
   @Override
   public void robotInit() {
     m_robotContainer = new RobotContainer();
-    if (Robot.isReal()) {
-      limelight = new Limelight();
-
-    } else {
-      limelight = null;
-    }
+    // simulated cameras stand in for the coprocessors in sim
+    limelight = new Limelight();
 
     DataLogManager.logNetworkTables(true);
     DataLogManager.start();
+
+    addPeriodic(this::controlPeriodic, MiscConstants.controlPeriodSec);
   }
 
+  /**
+   * Mechanism feedback at MiscConstants.controlPeriodSec. Goals and states are
+   * still set by the superstructure at the main loop rate, this only reads the
+   * encoders and runs the profiles and feedback toward them
+   */
+  private void controlPeriodic() {
+    arm.controlPeriodic();
+    wrist.controlPeriodic();
+    shooter.controlPeriodic();
+    intake.controlPeriodic();
+  }
+
+  /**
+   * Each loop reads every sensor first, then runs all commands and state machines
+   * on that one snapshot, then writes every motor output together
+   */
   @Override
   public void robotPeriodic() {
+    // sense
+    swerve.readInputs();
+    arm.readInputs();
+    wrist.readInputs();
+    intake.readInputs();
+    shooter.readInputs();
+    power.update();
+    LimelightResultCache.updateAll();
+
+    // compute
     CommandScheduler.getInstance().run();
     if (DriverStation.isEnabled()) {
 
       centralCommand.execute();
     }
+    // after the superstructure so they act on this loop's decisions
+    intake.runIntakeState();
+    shooter.runShooterState();
+
+    // actuate
+    swerve.writeOutputs();
+    arm.writeOutputs();
+    wrist.writeOutputs();
+    intake.writeOutputs();
+    shooter.writeOutputs();
+    VoltageOutput.logWriteCounts();
+  }
 
+  @Override
+  public void simulationPeriodic() {
+    // sag the simulated battery with what the mechanisms draw
+    RoboRioSim.setVInVoltage(BatterySim.calculateDefaultBatteryLoadedVoltage(power.getTotalCurrentAmps()));
   }
 
   @Override
@@ -3,6 +3,7 @@ package frc.robot.commands.superstructure;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.robot.Robot;
+import frc.robot.subsystems.arm.ArmConstants;
 import frc.robot.subsystems.arm.ArmSim;
 import frc.robot.subsystems.arm.ShootKinematics;
 import frc.robot.subsystems.arm.ArmConstants.ArmStates;
@@ -14,26 +15,22 @@ import frc.robot.subsystems.wrist.WristConstants.WristStates;
 import frc.robot.utils.UtilityFunctions;
 
 public class Aimbot implements SuperStructureCommandInterface {
-    private boolean fullDeployedWrist = false;
-    private boolean almostDeployedWrist = false;
-    private boolean subwoofedArm = false;
-    private boolean staticWrist = false;
 
     public Aimbot() {
     }
 
     @Override
     public void execute() {
-
-        if (Robot.wrist.getState() == WristStates.FULL_DEPLOYED) {
-            fullDeployedWrist = true;
+        Robot.planner.execute();
+        // once the wrist is out the arm tracks the calculated angle directly
+        if (Robot.planner.isFinished()) {
+            Robot.arm.setGoal(ArmStates.AIMBOT);
         }
-        Robot.arm.setGoal(ArmStates.AIMBOT);
         Robot.wrist.moveWristToGoal();
 
         Robot.arm.moveToGoal();
 
-        if (Robot.arm.atGoal() && fullDeployedWrist && Robot.shooter.getVelocityRadPerSec()>540){
+        if (Robot.planner.isFinished() && Robot.arm.atGoal() && Robot.shooter.getVelocityRadPerSec()>540){
             Robot.led.setLEDPattern(LEDPattern.BLUE);
         }
     }
@@ -42,8 +39,12 @@ public class Aimbot implements SuperStructureCommandInterface {
     public void start(){
         Robot.shooter.setState(ShooterStates.SPOOL);
         Robot.intake.setState(IntakeStates.STOP);
-        Robot.arm.setGoal(ArmStates.SUBWOOFER);
-        Robot.wrist.setGoal(WristStates.FULL_DEPLOYED);
+        double armGoalRad = ShootKinematics.getAimbotArmAngleRad(
+                Robot.swerve.getPredictedPose(ArmConstants.aimLookaheadSec));
+        if (armGoalRad < 0) {
+            armGoalRad = Math.PI / 4;
+        }
+        Robot.planner.start(armGoalRad, WristConstants.fullDeployedRad);
 
     }
 
@@ -53,15 +54,8 @@ public class Aimbot implements SuperStructureCommandInterface {
         Robot.shooter.setState(ShooterStates.STOP);
         Robot.wrist.setVoltage(0);
         Robot.led.setLEDPattern(LEDPattern.WHITE);
-
-        fullDeployedWrist = false;
-        staticWrist = false;
-        almostDeployedWrist = false;
-        subwoofedArm = false;
     }
 
-    private boolean atIntake = false;
-
     @Override
     public void autoExecute() {
         // Robot.shooter.setState(ShooterStates.SPOOL);
@@ -94,11 +88,4 @@ public class Aimbot implements SuperStructureCommandInterface {
     public void autoStart(){
         start();
     }
-    @Override
-    public void autoReset() {
-        reset();
-        // Robot.intake.setState(IntakeStates.INTAKE);
-
-        atIntake = false;
-    }
 }
@@ -15,15 +15,14 @@ public class Climb implements SuperStructureCommandInterface {
 
     @Override
     public void start() {
-        
-        Robot.arm.setGoal(ArmStates.CLIMB);
+        Robot.planner.start(SuperStructureStates.CLIMB);
         Robot.arm.moveToGoal();
 
     }
 
     @Override
     public void execute() {
-        Robot.arm.setGoal(ArmStates.CLIMB);
+        Robot.planner.execute();
         Robot.arm.moveToGoal();
     }
 }
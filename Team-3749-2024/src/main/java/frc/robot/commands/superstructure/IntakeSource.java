@@ -22,6 +22,7 @@ public class IntakeSource implements SuperStructureCommandInterface {
 
     @Override
     public void execute() {
+        Robot.planner.execute();
         Robot.arm.moveToGoal();
         Robot.wrist.moveWristToGoal();
 
@@ -37,8 +38,7 @@ public class IntakeSource implements SuperStructureCommandInterface {
 
     @Override
     public void start() {
-        Robot.wrist.setGoal(WristStates.STOW);
-        Robot.arm.setGoal(ArmStates.SOURCE);
+        Robot.planner.start(SuperStructureStates.SOURCE);
         Robot.intake.setState(IntakeStates.INTAKE);
         Robot.shooter.setState(ShooterStates.INTAKE);
 
@@ -22,7 +22,7 @@ public class Pass implements SuperStructureCommandInterface {
 
     @Override
     public void execute() {
-
+        Robot.planner.execute();
         Robot.arm.moveToGoal();
         Robot.wrist.moveWristToGoal();
 
@@ -37,8 +37,7 @@ public class Pass implements SuperStructureCommandInterface {
     public void start() {
 
         Robot.intake.setState(IntakeStates.STOP);
-        Robot.wrist.setGoal(WristStates.PASS);
-        Robot.arm.setGoal(ArmStates.STOW);
+        Robot.planner.start(SuperStructureStates.PASS);
         Robot.shooter.setState(ShooterStates.SPOOL);
 
     }
@@ -9,42 +9,38 @@ import frc.robot.subsystems.led.LEDConstants.LEDPattern;
 import frc.robot.subsystems.shooter.ShooterConstants.ShooterStates;
 import frc.robot.subsystems.wrist.WristConstants;
 import frc.robot.subsystems.wrist.WristConstants.WristStates;
+import frc.robot.utils.SuperStructureStates;
 import frc.robot.utils.UtilityFunctions;
 
 public class Podium implements SuperStructureCommandInterface {
-    private boolean fullDeployedWrist = false;
-    private boolean almostDeployedWrist = false;
-    private boolean podiumedArm = false;
-    private boolean staticWrist = false;
-
 
     public Podium() {
     }
 
     @Override
     public void execute() {
-        Robot.shooter.setState(ShooterStates.SPOOL);
-        Robot.arm.setGoal(ArmStates.PODIUM);
-        Robot.wrist.setGoal(WristStates.FULL_DEPLOYED);
-        
-        if (Robot.wrist.getState() == WristStates.FULL_DEPLOYED) {
-            fullDeployedWrist = true;
-        }
-      
-        if (Robot.arm.getState() == ArmStates.PODIUM) {
-            podiumedArm = true;
-        }
+        Robot.planner.execute();
 
         Robot.wrist.moveWristToGoal();
 
         Robot.arm.moveToGoal();
 
-        if (podiumedArm && fullDeployedWrist&& Robot.shooter.getVelocityRadPerSec()>540){
+        if (isReady()){
             Robot.led.setLEDPattern(LEDPattern.BLUE);
         }
 
     }
 
+    private boolean isReady() {
+        return Robot.planner.isFinished() && Robot.arm.atGoal() && Robot.shooter.getVelocityRadPerSec() > 540;
+    }
+
+    @Override
+    public void start() {
+        Robot.shooter.setState(ShooterStates.SPOOL);
+        Robot.planner.start(SuperStructureStates.PODIUM);
+    }
+
     @Override
     public void reset() {
         Robot.intake.setState(IntakeStates.STOP);
@@ -52,32 +48,13 @@ public class Podium implements SuperStructureCommandInterface {
         Robot.led.setLEDPattern(LEDPattern.WHITE);
 
         Robot.wrist.setVoltage(0);
-
-        fullDeployedWrist = false;
-        staticWrist = false;
-        almostDeployedWrist = false;
-        podiumedArm = false;
-        atIntake = false;
     }
 
-    private boolean atIntake = false;
-
     @Override
     public void autoExecute() {
-        Robot.shooter.setState(ShooterStates.SPOOL);
-        Robot.arm.setGoal(ArmStates.PODIUM);
-        Robot.wrist.setGoal(WristStates.FULL_DEPLOYED);
+        Robot.planner.execute();
 
-        if (Robot.wrist.getState() == WristStates.FULL_DEPLOYED) {
-            fullDeployedWrist = true;
-        }
-      
-        if (Robot.arm.getState() == ArmStates.PODIUM) {
-            podiumedArm = true;
-        }
-
-
-        if (podiumedArm && fullDeployedWrist&& Robot.shooter.getVelocityRadPerSec()>540){
+        if (isReady()){
             Robot.led.setLEDPattern(LEDPattern.BLUE);
             Robot.intake.setState(IntakeStates.FEED);
         }
@@ -87,11 +64,6 @@ public class Podium implements SuperStructureCommandInterface {
 
     }
     @Override
-    public void autoReset() {
-        reset();
-        atIntake = false;
-    }
-    @Override
     public void autoStart(){
         start();
     }
@@ -13,17 +13,13 @@ import frc.robot.utils.SuperStructureStates;
 import frc.robot.utils.UtilityFunctions;
 
 public class ScoreAmp implements SuperStructureCommandInterface {
-    private boolean fullDeployedWrist = false;
-    private boolean almostDeployedWrist = false;
-    private boolean ampedArm = false;
-    private boolean stowedArm = false;
-    private boolean staticWrist = false;
 
     public ScoreAmp() {
     }
 
     @Override
     public void execute() {
+        Robot.planner.execute();
         Robot.arm.moveToGoal();
         Robot.wrist.moveWristToGoal();
 
@@ -34,18 +30,11 @@ public class ScoreAmp implements SuperStructureCommandInterface {
         Robot.intake.stop();
         Robot.shooter.stop();
         Robot.wrist.setVoltage(0);
-
-        fullDeployedWrist = false;
-        staticWrist = false;
-        almostDeployedWrist = false;
-        ampedArm = false;
-        stowedArm = false;
     }
 
     @Override
     public void start() {
-        Robot.wrist.setGoal(WristStates.FULL_DEPLOYED);
-        Robot.arm.setGoal(ArmStates.AMP);
+        Robot.planner.start(SuperStructureStates.AMP);
 
     }
 
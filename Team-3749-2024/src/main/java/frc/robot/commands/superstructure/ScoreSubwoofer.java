@@ -11,33 +11,23 @@ import frc.robot.subsystems.led.LEDConstants.LEDPattern;
 import frc.robot.subsystems.shooter.ShooterConstants.ShooterStates;
 import frc.robot.subsystems.wrist.WristConstants;
 import frc.robot.subsystems.wrist.WristConstants.WristStates;
+import frc.robot.utils.SuperStructureStates;
 import frc.robot.utils.UtilityFunctions;
 
 public class ScoreSubwoofer implements SuperStructureCommandInterface {
-    private boolean fullDeployedWrist = false;
-    private boolean almostDeployedWrist = false;
-    private boolean subwoofedArm = false;
-    private boolean staticWrist = false;
 
     public ScoreSubwoofer() {
     }
 
     @Override
     public void execute() {
-
-        if (Robot.wrist.getState() == WristStates.FULL_DEPLOYED) {
-            fullDeployedWrist = true;
-        }
-      
-        if (Robot.arm.getState() == ArmStates.SUBWOOFER) {
-            subwoofedArm = true;
-        }
+        Robot.planner.execute();
 
         Robot.wrist.moveWristToGoal();
 
         Robot.arm.moveToGoal();
 
-        if (subwoofedArm && fullDeployedWrist&& Robot.shooter.getVelocityRadPerSec()>540){
+        if (Robot.planner.isFinished() && Robot.arm.atGoal() && Robot.shooter.getVelocityRadPerSec()>540){
             Robot.led.setLEDPattern(LEDPattern.BLUE);
         }
     }
@@ -46,8 +36,7 @@ public class ScoreSubwoofer implements SuperStructureCommandInterface {
     public void start(){
         Robot.shooter.setState(ShooterStates.SPOOL);
         Robot.intake.setState(IntakeStates.STOP);
-        Robot.arm.setGoal(ArmStates.SUBWOOFER);
-        Robot.wrist.setGoal(WristStates.FULL_DEPLOYED);
+        Robot.planner.start(SuperStructureStates.SUBWOOFER);
 
     }
 
@@ -57,47 +46,18 @@ public class ScoreSubwoofer implements SuperStructureCommandInterface {
         Robot.shooter.setState(ShooterStates.STOP);
         Robot.wrist.setVoltage(0);
         Robot.led.setLEDPattern(LEDPattern.WHITE);
-
-        fullDeployedWrist = false;
-        staticWrist = false;
-        almostDeployedWrist = false;
-        subwoofedArm = false;
     }
 
-    private boolean atIntake = false;
-
     @Override
     public void autoExecute() {
-    
-        if (Robot.wrist.getState() == WristStates.FULL_DEPLOYED) {
-            fullDeployedWrist = true;
-        }
-      
-        if (Robot.arm.getState() == ArmStates.SUBWOOFER) {
-            subwoofedArm = true;
-        }
-
-        Robot.wrist.moveWristToGoal();
-
-        Robot.arm.moveToGoal();
-
-        if (subwoofedArm && fullDeployedWrist&& Robot.shooter.getVelocityRadPerSec()>540){
-            Robot.led.setLEDPattern(LEDPattern.BLUE);
-        }
+        execute();
     }
 
     @Override
     public void autoStart(){
         Robot.shooter.setState(ShooterStates.SPOOL);
         Robot.intake.setState(IntakeStates.STOP);
-        Robot.arm.setGoal(Units.degreesToRadians(11.5));
-        Robot.wrist.setGoal(WristStates.FULL_DEPLOYED);    }
-
-    @Override
-    public void autoReset() {
-        reset();
-        // Robot.intake.setState(IntakeStates.INTAKE);
-
-        atIntake = false;
+        Robot.planner.start(Units.degreesToRadians(11.5), WristConstants.fullDeployedRad);
     }
+
 }
@@ -17,38 +17,22 @@ import frc.robot.utils.SuperStructureStates;
 import frc.robot.utils.UtilityFunctions;
 
 public class Stow implements SuperStructureCommandInterface {
-    private boolean loweringArm = false;
-    private boolean loweredArm = false;
-    private boolean armWasRaised = false;
-    private boolean stowedWrist = false;
-
-    private Timer timer = new Timer();
 
     public Stow() {
     }
 
-    private double maxArmRadForStow = Units.degreesToRadians(8);
-
     @Override
     public void execute() {
-
-        Robot.wrist.setGoal(WristStates.STOW);
-
-        Robot.arm.setGoal(ArmStates.STOW);
+        Robot.planner.execute();
 
         Robot.arm.moveToGoal();
         Robot.wrist.moveWristToGoal();
 
     }
 
-    @Override
-    public void reset() {
-        timer.stop();
-        timer.reset();
-    }
-
     @Override
     public void start() {
+        Robot.planner.start(SuperStructureStates.STOW);
         if (!Robot.intake.getHasPiece()){
 
             Robot.intake.setState(IntakeStates.STOP);
@@ -1,16 +1,48 @@
 package frc.robot.commands.superstructure;
 
-import java.sql.Driver;
+import java.util.EnumMap;
+import java.util.function.BooleanSupplier;
 
 import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
-import edu.wpi.first.wpilibj2.command.Command;
 import frc.robot.Robot;
-import frc.robot.subsystems.wrist.WristConstants.WristStates;
+import frc.robot.subsystems.led.LEDConstants.LEDPattern;
+import frc.robot.utils.Histogram;
 import frc.robot.utils.SuperStructureStates;
 
+/**
+ * Runs the superstructure command for Robot.state. Every pair of states has a
+ * transition with a guard that can refuse the change and an action to run on
+ * the way through. Everything is built in the constructor so changing states
+ * doesn't allocate
+ */
 public class SuperStructureCommands {
 
+    private static class Transition {
+        // if this returns false the change is refused and Robot.state is put back
+        private final BooleanSupplier guard;
+        // shooting states hand off to each other without stopping the shooter
+        private final boolean resetPrevious;
+        private final Runnable action;
+
+        private final Histogram timing = new Histogram(0, 3, 60);
+        private final String medianKey;
+        private final String p90Key;
+        private final String maxKey;
+
+        private Transition(SuperStructureStates from, SuperStructureStates to, BooleanSupplier guard,
+                boolean resetPrevious, Runnable action) {
+            this.guard = guard;
+            this.resetPrevious = resetPrevious;
+            this.action = action;
+            String timingKey = "transition time/" + from.name() + " to " + to.name();
+            this.medianKey = timingKey + " p50";
+            this.p90Key = timingKey + " p90";
+            this.maxKey = timingKey + " max";
+        }
+    }
+
     private EmergencyIntake groundIntake = new EmergencyIntake();
     private Stow stow = new Stow();
     private ScoreAmp scoreAmp = new ScoreAmp();
@@ -22,71 +54,127 @@ public class SuperStructureCommands {
     private Aimbot aimbot = new Aimbot();
     private IntakeSource source = new IntakeSource();
     private Pass pass = new Pass();
+
+    private final EnumMap<SuperStructureStates, SuperStructureCommandInterface> commands = new EnumMap<>(
+            SuperStructureStates.class);
+    private final EnumMap<SuperStructureStates, EnumMap<SuperStructureStates, Transition>> transitions = new EnumMap<>(
+            SuperStructureStates.class);
+
+    private SuperStructureStates currentState = SuperStructureStates.STOW;
     private SuperStructureCommandInterface currentCommand = stow;
 
+    // the transition that is still moving, so its time can be recorded once the
+    // superstructure gets there
+    private Transition timedTransition = null;
+    private double transitionStartTime = 0;
+
     public SuperStructureCommands() {
+        commands.put(SuperStructureStates.STOW, stow);
+        commands.put(SuperStructureStates.GROUND_INTAKE, groundIntake);
+        commands.put(SuperStructureStates.AMP, scoreAmp);
+        // nothing drives the SHOOT state yet, so it holds stow
+        commands.put(SuperStructureStates.SHOOT, stow);
+        commands.put(SuperStructureStates.CLIMB, climb);
+        commands.put(SuperStructureStates.CLIMBDOWN, climbDown);
+        commands.put(SuperStructureStates.SUBWOOFER, scoreSubwoofer);
+        commands.put(SuperStructureStates.PODIUM, podium);
+        commands.put(SuperStructureStates.AIMBOT, aimbot);
+        commands.put(SuperStructureStates.SOURCE, source);
+        commands.put(SuperStructureStates.RESET, reset);
+        commands.put(SuperStructureStates.PASS, pass);
+
+        for (SuperStructureStates from : SuperStructureStates.values()) {
+            EnumMap<SuperStructureStates, Transition> row = new EnumMap<>(SuperStructureStates.class);
+            for (SuperStructureStates to : SuperStructureStates.values()) {
+                if (from != to) {
+                    row.put(to, buildTransition(from, to));
+                }
+            }
+            transitions.put(from, row);
+        }
+        SmartDashboard.putString("state", currentState.name());
+        SmartDashboard.putString("current command", currentCommand.getClass().getSimpleName());
+    }
+
+    private Transition buildTransition(SuperStructureStates from, SuperStructureStates to) {
+        // only lower the climber after climbing
+        if (to == SuperStructureStates.CLIMBDOWN) {
+            boolean fromClimb = from == SuperStructureStates.CLIMB;
+            return new Transition(from, to, () -> fromClimb, true, null);
+        }
+        // go straight from one shot to another with the shooter still spooled
+        if (isShootingState(from) && isShootingState(to)) {
+            return new Transition(from, to, () -> true, false,
+                    () -> Robot.led.setLEDPattern(LEDPattern.WHITE));
+        }
+        return new Transition(from, to, () -> true, true, null);
     }
 
-    private void switchCommands(SuperStructureCommandInterface command) {
-        // System.out.println("ground intake");
-        if (currentCommand != command) {
-            if (DriverStation.isAutonomous()) {
+    private static boolean isShootingState(SuperStructureStates state) {
+        return state == SuperStructureStates.SUBWOOFER
+                || state == SuperStructureStates.PODIUM
+                || state == SuperStructureStates.AIMBOT;
+    }
+
+    private void switchCommands(SuperStructureStates nextState) {
+        if (nextState == currentState) {
+            return;
+        }
+        Transition transition = transitions.get(currentState).get(nextState);
+        if (!transition.guard.getAsBoolean()) {
+            Robot.state = currentState;
+            return;
+        }
+
+        SuperStructureCommandInterface nextCommand = commands.get(nextState);
+        if (nextCommand == currentCommand) {
+            currentState = nextState;
+            return;
+        }
+        boolean isAutonomous = DriverStation.isAutonomous();
+        if (transition.resetPrevious) {
+            if (isAutonomous) {
                 currentCommand.autoReset();
-                currentCommand = command;
-                currentCommand.autoStart();
-                return;
+            } else {
+                currentCommand.reset();
             }
-            currentCommand.reset();
-            currentCommand = command;
+        }
+        if (transition.action != null) {
+            transition.action.run();
+        }
+        currentState = nextState;
+        currentCommand = nextCommand;
+        int planCount = Robot.planner.getPlanCount();
+        if (isAutonomous) {
+            currentCommand.autoStart();
+        } else {
             currentCommand.start();
         }
 
+        // states like RESET and CLIMBDOWN don't plan, and the planner finishing
+        // would only be the previous move
+        timedTransition = Robot.planner.getPlanCount() != planCount ? transition : null;
+        transitionStartTime = Timer.getFPGATimestamp();
+        SmartDashboard.putString("state", currentState.name());
+        SmartDashboard.putString("current command", currentCommand.getClass().getSimpleName());
     }
 
     public void execute() {
-        SmartDashboard.putString("state", Robot.state.name());
-        SmartDashboard.putString("current command", currentCommand.getClass().getName());
-
-        switch (Robot.state) {
-            case GROUND_INTAKE:
-                switchCommands(groundIntake);
-                break;
-            case AMP:
-                switchCommands(scoreAmp);
-                break;
-            case SUBWOOFER:
-                switchCommands(scoreSubwoofer);
-                break;
-            case RESET:
-                switchCommands(reset);
-                break;
-            case CLIMB:
-                switchCommands(climb);
-                break;
-            case CLIMBDOWN:
-                switchCommands(climbDown);
-                break;
-            case PODIUM:
-                switchCommands(podium);
-                break;
-            case AIMBOT:
-                switchCommands(aimbot);
-                break;
-            case SOURCE:
-                switchCommands(source);
-                break;
-            case PASS:
-                switchCommands(pass);
-                break;
-            default:
-                switchCommands(stow);
-                break;
-        }
+        switchCommands(Robot.state);
+
         if (DriverStation.isAutonomous()) {
             currentCommand.autoExecute();
-            return;
+        } else {
+            currentCommand.execute();
+        }
+
+        if (timedTransition != null && Robot.planner.isFinished()) {
+            timedTransition.timing.record(Timer.getFPGATimestamp() - transitionStartTime);
+            SmartDashboard.putNumber(timedTransition.medianKey, timedTransition.timing.getPercentile(0.5));
+            SmartDashboard.putNumber(timedTransition.p90Key, timedTransition.timing.getPercentile(0.9));
+            SmartDashboard.putNumber(timedTransition.maxKey, timedTransition.timing.getMax());
+            timedTransition = null;
         }
-        currentCommand.execute();
     }
 
 }
@@ -5,11 +5,14 @@ import com.choreo.lib.ChoreoTrajectory;
 import com.pathplanner.lib.auto.AutoBuilder;
 import com.pathplanner.lib.auto.NamedCommands;
 import com.pathplanner.lib.commands.FollowPathHolonomic;
+import com.pathplanner.lib.path.GoalEndState;
 import com.pathplanner.lib.path.PathConstraints;
 import com.pathplanner.lib.path.PathPlannerPath;
 import com.pathplanner.lib.util.GeometryUtil;
 import com.pathplanner.lib.util.PathPlannerLogging;
 import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.DriverStation.Alliance;
 import edu.wpi.first.wpilibj.Timer;
@@ -26,9 +29,14 @@ import frc.robot.subsystems.swerve.Swerve;
 import frc.robot.subsystems.swerve.SwerveConstants.DriveConstants;
 import frc.robot.utils.AutoConstants;
 import frc.robot.utils.MiscConstants;
+import frc.robot.utils.NavGridPathfinder;
 import frc.robot.utils.SuperStructureStates;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 public class AutoUtils {
@@ -57,6 +65,7 @@ public class AutoUtils {
 
   public static void initAuto() {
     initPPUtils();
+    NavGridPathfinder.loadNavGrid();
     // NamedCommands.registerCommands(commandList);
   }
 
@@ -107,11 +116,63 @@ public class AutoUtils {
         swerve);
   }
 
+  /**
+   * Plans over the navgrid on the pathfinding thread when the command is
+   * scheduled, driving with PathPlanner's pathfinding until the plan is ready,
+   * then follows the smoothed path. Keeps using PathPlanner's pathfinding if the
+   * navgrid hasn't loaded or has no path
+   */
   public static Command getPathFindToPoseCommand(
       Pose2d targetPose,
       PathConstraints constraints,
       double endingVelocity) {
-    return AutoBuilder.pathfindToPose(targetPose, constraints, endingVelocity);
+    return Commands.defer(() -> {
+      CompletableFuture<List<Translation2d>> plan = NavGridPathfinder.findPathAsync(
+          swerve.getPose().getTranslation(),
+          targetPose.getTranslation());
+      return AutoBuilder.pathfindToPose(targetPose, constraints, endingVelocity)
+          .until(plan::isDone)
+          .andThen(Commands.defer(() -> {
+            List<Translation2d> waypoints = plan.isCompletedExceptionally() ? null : plan.getNow(null);
+            if (waypoints == null || waypoints.size() < 2) {
+              return AutoBuilder.pathfindToPose(targetPose, constraints, endingVelocity);
+            }
+            // start from wherever the fallback has driven to while planning
+            waypoints.set(0, swerve.getPose().getTranslation());
+            return followFieldPathCommand(
+                getPathFromWaypoints(waypoints, constraints, endingVelocity, targetPose.getRotation()));
+          }, Set.of(swerve)));
+    }, Set.of(swerve));
+  }
+
+  public static PathPlannerPath getPathFromWaypoints(
+      List<Translation2d> waypoints,
+      PathConstraints constraints,
+      double endingVelocity,
+      Rotation2d endingRotation) {
+    List<Pose2d> poses = new ArrayList<Pose2d>(waypoints.size());
+    for (int i = 0; i < waypoints.size(); i++) {
+      // bezier poses point in the direction of travel
+      Translation2d from = waypoints.get(Math.max(0, i - 1));
+      Translation2d to = waypoints.get(Math.min(waypoints.size() - 1, i + 1));
+      poses.add(new Pose2d(waypoints.get(i), to.minus(from).getAngle()));
+    }
+    return new PathPlannerPath(
+        PathPlannerPath.bezierFromPoses(poses),
+        constraints,
+        new GoalEndState(endingVelocity, endingRotation));
+  }
+
+  /** Follows a path that is already in field coordinates for our alliance */
+  public static Command followFieldPathCommand(PathPlannerPath path) {
+    return new FollowPathHolonomic(
+        path,
+        swerve::getPose,
+        swerve::getChassisSpeeds,
+        swerve::setChassisSpeeds,
+        AutoConstants.cfgHolonomicFollower,
+        () -> false,
+        swerve);
   }
 
   public static Command pathFindToThenFollowTraj(
@@ -209,6 +270,13 @@ public class AutoUtils {
         Commands.runOnce(() -> Robot.shooter.setState(ShooterStates.INTAKE)));
   }
 
+  public static Command getIntakeNearestNote(double wait) {
+    System.out.println("intake nearest note");
+    return new SequentialCommandGroup(
+        new WaitCommand(wait),
+        new DriveToNote());
+  }
+
   public static Command getStow(double wait) {
     System.out.println("stow");
     return new SequentialCommandGroup(
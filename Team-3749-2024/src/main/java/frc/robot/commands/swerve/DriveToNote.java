@@ -0,0 +1,93 @@
+package frc.robot.commands.swerve;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.Robot;
+import frc.robot.subsystems.swerve.Swerve;
+import frc.robot.subsystems.swerve.SwerveConstants.DriveConstants;
+import frc.robot.subsystems.vision.NoteTracker;
+import frc.robot.utils.SuperStructureStates;
+
+/***
+ * Drives onto the nearest note in the note tracker's map with the ground intake
+ * running. Ends once a piece is intaken or no note has been seen for a moment
+ */
+public class DriveToNote extends Command {
+
+    private final Swerve swerve;
+    private final NoteTracker noteTracker;
+
+    private final PIDController xController = new PIDController(2.5, 0, 0);
+    private final PIDController yController = new PIDController(2.5, 0, 0);
+    private final PIDController turnController = new PIDController(5, 0, 0.15);
+
+    // how long to keep going without a note before giving up
+    private final double lostNoteTimeoutSec = 0.5;
+
+    private int targetIndex = -1;
+    private double lastSeenNoteTime = 0;
+
+    public DriveToNote() {
+        this.swerve = Robot.swerve;
+        this.noteTracker = Robot.noteTracker;
+
+        addRequirements(swerve);
+        turnController.enableContinuousInput(-Math.PI, Math.PI);
+        turnController.setTolerance(Units.degreesToRadians(2.5));
+    }
+
+    @Override
+    public void initialize() {
+        Robot.state = SuperStructureStates.GROUND_INTAKE;
+        targetIndex = -1;
+        lastSeenNoteTime = Timer.getFPGATimestamp();
+    }
+
+    @Override
+    public void execute() {
+        Pose2d currentPose = swerve.getPose();
+        targetIndex = noteTracker.getNearestReachableNoteIndex(currentPose);
+        if (targetIndex < 0) {
+            swerve.stopModules();
+            return;
+        }
+        lastSeenNoteTime = Timer.getFPGATimestamp();
+
+        double noteX = noteTracker.getNoteX(targetIndex);
+        double noteY = noteTracker.getNoteY(targetIndex);
+        // the ground intake deploys over the front bumper, centered on the robot, the
+        // same way the note camera looks, so the front is pointed straight at the note
+        double desiredRotationRad = Math.atan2(noteY - currentPose.getY(), noteX - currentPose.getX());
+
+        double maxSpeed = DriveConstants.maxSpeedMetersPerSecond;
+        double xSpeed = MathUtil.clamp(xController.calculate(currentPose.getX(), noteX), -maxSpeed, maxSpeed);
+        double ySpeed = MathUtil.clamp(yController.calculate(currentPose.getY(), noteY), -maxSpeed, maxSpeed);
+        double turningSpeed = turnController.calculate(currentPose.getRotation().getRadians(),
+                MathUtil.angleModulus(desiredRotationRad));
+
+        swerve.setChassisSpeeds(ChassisSpeeds.fromFieldRelativeSpeeds(
+                xSpeed,
+                ySpeed,
+                turningSpeed,
+                swerve.getRotation2d()));
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        swerve.stopModules();
+        if (Robot.intake.getHasPiece() && targetIndex >= 0) {
+            noteTracker.removeNote(targetIndex);
+        }
+    }
+
+    @Override
+    public boolean isFinished() {
+        return Robot.intake.getHasPiece()
+                || Timer.getFPGATimestamp() - lastSeenNoteTime > lostNoteTimeoutSec;
+    }
+}
@@ -0,0 +1,149 @@
+package frc.robot.commands.swerve;
+
+import java.util.function.Supplier;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.controller.ProfiledPIDController;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.trajectory.TrapezoidProfile;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.Robot;
+import frc.robot.subsystems.swerve.Swerve;
+import frc.robot.subsystems.swerve.SwerveConstants.DriveConstants;
+import frc.robot.utils.AutoConstants;
+import frc.robot.utils.AutoConstants.AlignTarget;
+import frc.robot.utils.MiscConstants;
+
+/***
+ * Drives straight to a pose. Translation follows one trapezoid profile on the
+ * distance to the target so x and y arrive together along a straight line, and
+ * heading follows its own profile. Both use the profile velocity as a
+ * feedforward that fades out close to the target. Ends once the robot has
+ * settled inside tolerance
+ */
+public class DriveToPose extends Command {
+
+    private final Swerve swerve;
+    private final Supplier<Pose2d> targetSupplier;
+
+    private final ProfiledPIDController driveController = new ProfiledPIDController(
+            AutoConstants.kP_DriveToPoseDrive, 0, AutoConstants.kD_DriveToPoseDrive,
+            new TrapezoidProfile.Constraints(DriveConstants.maxSpeedMetersPerSecond,
+                    DriveConstants.maxAccelerationMetersPerSecondSquared));
+    private final ProfiledPIDController turnController = new ProfiledPIDController(
+            AutoConstants.kP_DriveToPoseTurn, 0, AutoConstants.kD_DriveToPoseTurn,
+            new TrapezoidProfile.Constraints(DriveConstants.maxAngularSpeedRadiansPerSecond,
+                    DriveConstants.maxAngularAccelerationRadiansPerSecondSquared));
+
+    private Pose2d targetPose = new Pose2d();
+    private double distanceMeters = 0;
+    private double headingErrorRad = 0;
+    private double settledSince = Double.NaN;
+
+    /** Drives to one of the precomputed targets for our alliance */
+    public DriveToPose(AlignTarget target) {
+        this(() -> target.getPose(MiscConstants.isRedAlliance()));
+    }
+
+    /** Drives to a pose in field coordinates, read once when the command starts */
+    public DriveToPose(Supplier<Pose2d> targetSupplier) {
+        this.swerve = Robot.swerve;
+        this.targetSupplier = targetSupplier;
+
+        addRequirements(swerve);
+        turnController.enableContinuousInput(-Math.PI, Math.PI);
+    }
+
+    @Override
+    public void initialize() {
+        targetPose = targetSupplier.get();
+        swerve.logDesiredOdometry(targetPose);
+
+        Pose2d currentPose = swerve.getPose();
+        ChassisSpeeds fieldSpeeds = swerve.getFieldRelativeChassisSpeeds();
+        double dx = targetPose.getX() - currentPose.getX();
+        double dy = targetPose.getY() - currentPose.getY();
+        distanceMeters = Math.hypot(dx, dy);
+
+        // start the profile from how fast we're already closing in on the target,
+        // but never from moving away since the profile can't go below zero distance
+        double closingSpeed = distanceMeters > 1e-6
+                ? (fieldSpeeds.vxMetersPerSecond * dx + fieldSpeeds.vyMetersPerSecond * dy) / distanceMeters
+                : 0;
+        driveController.reset(distanceMeters, Math.min(0, -closingSpeed));
+        turnController.reset(currentPose.getRotation().getRadians(), fieldSpeeds.omegaRadiansPerSecond);
+        settledSince = Double.NaN;
+    }
+
+    @Override
+    public void execute() {
+        Pose2d currentPose = swerve.getPose();
+        double dx = currentPose.getX() - targetPose.getX();
+        double dy = currentPose.getY() - targetPose.getY();
+        distanceMeters = Math.hypot(dx, dy);
+
+        double ffScaler = MathUtil.clamp(
+                (distanceMeters - AutoConstants.driveToPoseFFMinRadius)
+                        / (AutoConstants.driveToPoseFFMaxRadius - AutoConstants.driveToPoseFFMinRadius),
+                0, 1);
+
+        // speed along the line from the target to the robot, negative is toward it
+        double driveSpeed = driveController.calculate(distanceMeters, 0)
+                + driveController.getSetpoint().velocity * ffScaler;
+        if (distanceMeters < AutoConstants.driveToPoseToleranceMeters) {
+            driveSpeed = 0;
+        }
+        double xSpeed = 0;
+        double ySpeed = 0;
+        if (distanceMeters > 1e-6) {
+            xSpeed = driveSpeed * dx / distanceMeters;
+            ySpeed = driveSpeed * dy / distanceMeters;
+        }
+
+        double currentRotationRad = currentPose.getRotation().getRadians();
+        double targetRotationRad = targetPose.getRotation().getRadians();
+        headingErrorRad = Math.abs(MathUtil.angleModulus(targetRotationRad - currentRotationRad));
+        double turningSpeed = turnController.calculate(currentRotationRad, targetRotationRad)
+                + turnController.getSetpoint().velocity * ffScaler;
+        if (headingErrorRad < AutoConstants.driveToPoseToleranceRad) {
+            turningSpeed = 0;
+        }
+
+        swerve.setChassisSpeeds(ChassisSpeeds.fromFieldRelativeSpeeds(
+                xSpeed,
+                ySpeed,
+                turningSpeed,
+                swerve.getRotation2d()));
+
+        if (atGoal()) {
+            if (Double.isNaN(settledSince)) {
+                settledSince = Timer.getFPGATimestamp();
+            }
+        } else {
+            settledSince = Double.NaN;
+        }
+
+        SmartDashboard.putNumber("drive to pose distance", distanceMeters);
+        SmartDashboard.putNumber("drive to pose heading error", headingErrorRad);
+    }
+
+    /** @return whether the robot is inside both tolerances right now */
+    public boolean atGoal() {
+        return distanceMeters < AutoConstants.driveToPoseToleranceMeters
+                && headingErrorRad < AutoConstants.driveToPoseToleranceRad;
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        swerve.stopModules();
+    }
+
+    @Override
+    public boolean isFinished() {
+        return !Double.isNaN(settledSince)
+                && Timer.getFPGATimestamp() - settledSince > AutoConstants.driveToPoseSettleTimeSec;
+    }
+}
@@ -13,6 +13,7 @@ import edu.wpi.first.wpilibj.DriverStation.Alliance;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import frc.robot.Robot;
+import frc.robot.subsystems.arm.ArmConstants;
 import frc.robot.subsystems.arm.ShootKinematics;
 import frc.robot.subsystems.swerve.Swerve;
 import frc.robot.subsystems.swerve.SwerveConstants;
@@ -82,7 +83,9 @@ public class SwerveTeleopShoot extends Command {
 
     // for the entirety of comp, this block of code meant nothing
     double currentRotationRad = Robot.swerve.getRotation2d().getRadians();
-    double desiredRotationRad = ShootKinematics.getRobotRotation(Robot.swerve.getPose()).getRadians();
+    // point where the robot will be when the note leaves, not where it is now
+    double desiredRotationRad = ShootKinematics
+        .getRobotRotation(Robot.swerve.getPredictedPose(ArmConstants.aimLookaheadSec)).getRadians();
     while (desiredRotationRad < 0){
         desiredRotationRad+= 2 * Math.PI;
     }
@@ -3,10 +3,10 @@ package frc.robot.subsystems.arm;
 import java.io.File;
 import java.io.IOException;
 
-import edu.wpi.first.math.controller.ArmFeedforward;
-import edu.wpi.first.math.controller.ProfiledPIDController;
 import edu.wpi.first.math.geometry.Rotation2d;
-import edu.wpi.first.math.trajectory.TrapezoidProfile.State;
+import edu.wpi.first.math.interpolation.InterpolatingDoubleTreeMap;
+import edu.wpi.first.math.trajectory.ExponentialProfile.Constraints;
+import edu.wpi.first.math.trajectory.ExponentialProfile.State;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.smartdashboard.Mechanism2d;
@@ -19,26 +19,35 @@ import frc.robot.subsystems.arm.ArmConstants.ArmStates;
 import frc.robot.subsystems.arm.ArmIO.ArmData;
 import frc.robot.subsystems.wrist.WristConstants;
 import frc.robot.subsystems.wrist.WristConstants.WristStates;
+import frc.robot.utils.MiscConstants;
+import frc.robot.utils.MotorThermalModel;
 import frc.robot.utils.ShuffleData;
 import frc.robot.utils.SuperStructureStates;
-import frc.robot.utils.UtilityFunctions;
 
 public class Arm extends SubsystemBase {
 
     private ArmData data = new ArmData();
     private ArmIO armIO;
 
-    private ProfiledPIDController feedback = new ProfiledPIDController(ArmConstants.stowedPID.kP,
-            ArmConstants.stowedPID.kI,
-            ArmConstants.stowedPID.kD,
-            ArmConstants.deployedConstraints);
-
-    private ArmFeedforward stowedFeedforward = new ArmFeedforward(ArmConstants.stowedkS,
-            ArmConstants.stowedkG,
-            ArmConstants.stowedkV);
-    private ArmFeedforward deployedFeedforward = new ArmFeedforward(ArmConstants.deployedkS,
-            ArmConstants.deployedkG,
-            ArmConstants.deployedkV);
+    // motion profile from the motor model, so it uses the speed the motors
+    // actually have instead of a fixed trapezoid
+    private ArmClosedLoop closedLoopControl = new ArmClosedLoop(MiscConstants.controlPeriodSec,
+            getProfileConstraints(ArmConstants.stowPositionRad, ArmConstants.stowPositionRad,
+                    WristConstants.almostDeployedRad, WristConstants.almostDeployedRad));
+    private boolean profileRunning = false;
+
+    // how far the wrist's weight has swung out, from 0 stowed to 1 at almost
+    // deployed where the deployed gains were tuned. The center of mass moves
+    // out roughly like 1 - cos of the wrist angle. Precomputed since the
+    // feedforward looks it up every control period
+    static final InterpolatingDoubleTreeMap deployedBlend = new InterpolatingDoubleTreeMap();
+    static {
+        double deployedLever = 1 - Math.cos(WristConstants.almostDeployedRad);
+        for (int i = 0; i <= 36; i++) {
+            double wristRad = Math.PI * i / 36;
+            deployedBlend.put(wristRad, Math.min(1, (1 - Math.cos(wristRad)) / deployedLever));
+        }
+    }
 
     private Mechanism2d mechanism = new Mechanism2d(2.5, 2);
     private MechanismRoot2d mechanismArmPivot = mechanism.getRoot("mechanism arm pivot", 1, 0.5);
@@ -65,16 +74,29 @@ public class Arm extends SubsystemBase {
     private ShuffleData<Double> setpointAccelerationLog = new ShuffleData<Double>(this.getName(),
             "setpoint acceleration", 0.0);
 
+    private ShuffleData<Double> trackingErrorRMSLog = new ShuffleData<Double>(this.getName(),
+            "tracking error rms", 0.0);
+    private ShuffleData<Double> trackingErrorMaxLog = new ShuffleData<Double>(this.getName(),
+            "tracking error max", 0.0);
+
     private ShuffleData<String> stateLog = new ShuffleData<String>(this.getName(), "state",
             ArmStates.STOW.name());
 
-    private double accelerationSetpoint = 0;
-    private double prevSetpointVelocity = 0;
-
     private boolean isKilled = false;
     private boolean isEnabled = false;
 
-    private boolean deployedMode = false;
+    // moveToGoal only asks for closed loop control, which then runs in
+    // controlPeriodic until a loop goes by without it being asked for again
+    private boolean closedLoopRequested = false;
+    private boolean closedLoop = false;
+    private double pendingVolts = 0;
+
+    private MotorThermalModel leftThermal = new MotorThermalModel("arm left", 40);
+    private MotorThermalModel rightThermal = new MotorThermalModel("arm right", 40);
+
+    private double trackingErrorSumSquared = 0;
+    private double trackingErrorMax = 0;
+    private int trackingErrorSamples = 0;
     private ArmStates state = ArmStates.STOW;
 
     public Arm() {
@@ -90,8 +112,6 @@ public class Arm extends SubsystemBase {
             e.printStackTrace();
         }
 
-        feedback.setGoal(ArmConstants.stowPositionRad);
-
     }
 
     public double getPositionRad() {
@@ -102,139 +122,156 @@ public class Arm extends SubsystemBase {
         return data.velocityRadPerSec;
     }
 
+    public double getCurrentAmps() {
+        return data.leftCurrentAmps + data.rightCurrentAmps;
+    }
+
     public void setGoal(ArmStates state) {
         if (state == ArmStates.AMP) {
-            feedback.setGoal(ArmConstants.ampPositionRad);
+            setGoal(ArmConstants.ampPositionRad);
         }
         if (state == ArmStates.STOW) {
-            feedback.setGoal(ArmConstants.stowPositionRad);
+            setGoal(ArmConstants.stowPositionRad);
         }
         if (state == ArmStates.CLIMB) {
-            feedback.setGoal(ArmConstants.climbPositionRad);
+            setGoal(ArmConstants.climbPositionRad);
         }
         if (state == ArmStates.GROUND_INTAKE) {
-            feedback.setGoal(ArmConstants.groundIntakepositionRad);
+            setGoal(ArmConstants.groundIntakepositionRad);
         }
         if (state == ArmStates.SUBWOOFER) {
-            feedback.setGoal(ArmConstants.subwooferPositionRad);
+            setGoal(ArmConstants.subwooferPositionRad);
         }
         if (state == ArmStates.PODIUM) {
-            feedback.setGoal(ArmConstants.podiumPositionRad);
+            setGoal(ArmConstants.podiumPositionRad);
         }
         if (state == ArmStates.AIMBOT) {
-            double calcedArmAngle = ShootKinematics.getArmAngleRadGivenPose(Robot.swerve.getPose());
+            double calcedArmAngle = ShootKinematics.getAimbotArmAngleRad(
+                    Robot.swerve.getPredictedPose(ArmConstants.aimLookaheadSec));
             if (calcedArmAngle < 0) {
                 calcedArmAngle = Math.PI / 4;
             }
             Robot.arm.setGoal(calcedArmAngle);
         }
         if (state == ArmStates.SOURCE) {
-            feedback.setGoal(ArmConstants.sourcePositionRad);
+            setGoal(ArmConstants.sourcePositionRad);
         }
     }
 
     public void setGoal(double goalRad) {
         // state = ArmStates.SHOOT;
-        feedback.setGoal(goalRad);
+        closedLoopControl.setGoal(goalRad);
     }
 
     public double getGoal() {
-        return feedback.getGoal().position;
+        return closedLoopControl.getGoal().position;
     }
 
     public State getSetpoint() {
 
-        return feedback.getSetpoint();
+        return closedLoopControl.getSetpoint();
     }
 
     public ArmStates getState() {
         return state;
     }
 
-    public void setDeployedMode(boolean isDeployed) {
-        deployedMode = isDeployed;
-        if (isDeployed) {
-            feedback.setConstraints(ArmConstants.deployedConstraints);
-
-        } else {
-            feedback.setConstraints(ArmConstants.stowedConstraints);
+    public void setConstraints(Constraints constraints) {
+        closedLoopControl.setConstraints(constraints);
+    }
 
-        }
+    /**
+     * Profile constraints for a move between two angles. The voltage kS and the
+     * most gravity anywhere along the move need is taken off the top, so the
+     * profile never asks for acceleration the motors can't give at that angle.
+     * Acceleration is also capped at ArmConstants.maxProfileAccelRadPerSec2
+     * 
+     * @param wristStartRad where the wrist starts, the gains are scheduled on it
+     * @param wristGoalRad  where the wrist ends up
+     */
+    public static Constraints getProfileConstraints(double startRad, double goalRad, double wristStartRad,
+            double wristGoalRad) {
+        double lowRad = Math.min(startRad, goalRad);
+        double highRad = Math.max(startRad, goalRad);
+        // |cos| peaks at horizontal, otherwise at whichever end is closer to it
+        double maxCos = lowRad <= 0 && highRad >= 0
+                ? 1
+                : Math.max(Math.abs(Math.cos(lowRad)), Math.abs(Math.cos(highRad)));
+        // the deployed gains are all the larger ones, so plan with the wrist's
+        // furthest out point
+        double blend = Math.max(deployedBlend.get(wristStartRad), deployedBlend.get(wristGoalRad));
+        double kS = scheduleGain(ArmConstants.stowedkS, ArmConstants.deployedkS, blend);
+        double kG = scheduleGain(ArmConstants.stowedkG, ArmConstants.deployedkG, blend);
+        double kV = scheduleGain(ArmConstants.stowedkV, ArmConstants.deployedkV, blend);
+        double kA = scheduleGain(ArmConstants.stowedkA, ArmConstants.deployedkA, blend);
+        double volts = ArmConstants.profileVolts - kS - kG * maxCos;
+        // the profile accelerates hardest from rest, at volts / kA, so planning with a
+        // larger kA is what caps it
+        kA = Math.max(kA, volts / ArmConstants.maxProfileAccelRadPerSec2);
+        return Constraints.fromCharacteristics(volts, kV, kA);
     }
 
+    /** Open loop voltage, written in {@link #writeOutputs()} */
     public void setVoltage(double volts) {
+        closedLoop = false;
+        closedLoopRequested = false;
         // if (isKilled) {
-        // armIO.setVoltage(0);
+        // pendingVolts = 0;
         // } else {
-        armIO.setVoltage(volts);
+        pendingVolts = volts;
         // }
     }
 
+    /** Reads everything but the encoders, which controlPeriodic keeps fresh */
+    public void readInputs() {
+        armIO.updateData(data);
+        leftThermal.update(data.leftCurrentAmps, data.leftTempCelcius);
+        rightThermal.update(data.rightCurrentAmps, data.rightTempCelcius);
+    }
+
+    /** Sends the open loop voltage, closed loop output is sent by controlPeriodic */
+    public void writeOutputs() {
+        if (!closedLoop) {
+            armIO.setVoltage(pendingVolts);
+        }
+        armIO.setCurrentLimit(Math.min(leftThermal.getCurrentLimitAmps(), rightThermal.getCurrentLimitAmps()));
+    }
+
     // private ShuffleData<Double> kDData = new ShuffleData(this.getName(),
     // "kDdata", 0.0);
 
+    /** Runs the profile and feedback in controlPeriodic for this loop */
     public void moveToGoal() {
+        closedLoopRequested = true;
+        closedLoop = true;
+    }
 
-        double feedback = calculatePID(getPositionRad());
-        State setpoint = getSetpoint();
-        double accelerationSetpoint = (setpoint.velocity - prevSetpointVelocity) / 0.02;
-        prevSetpointVelocity = setpoint.velocity;
-
-        if (setpoint.position == ArmConstants.stowPositionRad
-                && UtilityFunctions.withinMargin(0.05, getVelocityRadPerSec(), 0)) {
-            setVoltage(0);
+    /** Reads the encoders and runs feedback, every control period */
+    public void controlPeriodic() {
+        armIO.updateControlData(data);
+        if (!closedLoop || !DriverStation.isEnabled()) {
+            profileRunning = false;
             return;
         }
-
-        double feedforward;
-        feedforward = calculateFF(getPositionRad(), setpoint.velocity,
-                accelerationSetpoint);
-        if (setpoint.velocity == 0) {
-            // have the kS help the PID when stationary
-            feedforward += Math.signum(feedback) * ArmConstants.stowedkS * 0.85;
+        if (!profileRunning) {
+            closedLoopControl.start(data.positionRad, data.velocityRadPerSec);
+            profileRunning = true;
         }
-        setVoltage(feedforward + feedback);
+        armIO.setVoltage(closedLoopControl.step(data.positionRad, data.velocityRadPerSec,
+                Robot.wrist.getPositionRad()));
 
+        double error = Math.abs(getSetpoint().position - data.positionRad);
+        trackingErrorSumSquared += error * error;
+        trackingErrorMax = Math.max(trackingErrorMax, error);
+        trackingErrorSamples++;
     }
 
     public void toggleKill() {
         isKilled = !isKilled;
     }
 
-    double lengthCFSToAxleX = Units.inchesToMeters(14);
-    double lengthCFSToAxleY = Units.inchesToMeters(7);
-    double lengthAxleToCFSAttatched = Units.inchesToMeters(15);
-
-    double lengthCFSToAxle = Math.hypot(lengthCFSToAxleX, lengthCFSToAxleY);
-    double axleToCFSTheta = Math.atan(lengthCFSToAxleY / lengthCFSToAxleX);
-
-    public double calculateFF(double currentPositionRad, double setpointVelocityRadPerSec,
-            double setpointAccelerationRadPerSecSquared) {
-        // mathing the constant force spring angle for a seperate kG since its a
-        // changing vector angle of constant magnitude
-        double lengthCFS = Math.sqrt(lengthAxleToCFSAttatched * lengthAxleToCFSAttatched
-                + lengthCFSToAxle * lengthCFSToAxle
-                - 2 * lengthAxleToCFSAttatched * lengthCFSToAxle * Math.cos(currentPositionRad + axleToCFSTheta));
-
-        double cosAngleCFS = (lengthCFS * lengthCFS + lengthAxleToCFSAttatched * lengthAxleToCFSAttatched
-                - lengthCFSToAxle * lengthCFSToAxle) / (2 * lengthAxleToCFSAttatched * lengthCFSToAxle);
-
-        double CFSFF = cosAngleCFS * ArmConstants.stowedkG * 0.3;
-        double armFF;
-        if (deployedMode) {
-            armFF = deployedFeedforward.calculate(currentPositionRad, setpointVelocityRadPerSec,
-                    accelerationSetpoint);
-        } else {
-
-            armFF = stowedFeedforward.calculate(currentPositionRad, setpointVelocityRadPerSec,
-                    accelerationSetpoint);
-        }
-
-        return armFF + CFSFF;
-    }
-
-    public double calculatePID(double currentPositionRad) {
-        return feedback.calculate(currentPositionRad);
+    static double scheduleGain(double stowedGain, double deployedGain, double blend) {
+        return stowedGain + (deployedGain - stowedGain) * blend;
     }
 
     public boolean atGoal() {
@@ -284,7 +321,8 @@ public class Arm extends SubsystemBase {
     @Override
     public void periodic() {
         // System.out.println("0,0,0");
-        armIO.updateData(data);
+        closedLoop = closedLoopRequested;
+        closedLoopRequested = false;
         updateState();
         stateLog.set(state.name());
         // moveToGoal();
@@ -295,10 +333,17 @@ public class Arm extends SubsystemBase {
         leftCurrentLog.set(data.leftCurrentAmps);
         rightCurrentLog.set(data.rightCurrentAmps);
 
-        goalLog.set(Units.radiansToDegrees(feedback.getGoal().position));
-        setpointPositionLog.set(Units.radiansToDegrees(feedback.getSetpoint().position));
-        setpointVelocityLog.set(Units.radiansToDegrees(feedback.getSetpoint().velocity));
-        setpointAccelerationLog.set(Units.radiansToDegrees(accelerationSetpoint));
+        goalLog.set(Units.radiansToDegrees(getGoal()));
+        setpointPositionLog.set(Units.radiansToDegrees(getSetpoint().position));
+        setpointVelocityLog.set(Units.radiansToDegrees(getSetpoint().velocity));
+        setpointAccelerationLog.set(Units.radiansToDegrees(closedLoopControl.getAccelerationSetpoint()));
+        if (trackingErrorSamples > 0) {
+            trackingErrorRMSLog.set(Units.radiansToDegrees(Math.sqrt(trackingErrorSumSquared / trackingErrorSamples)));
+            trackingErrorMaxLog.set(Units.radiansToDegrees(trackingErrorMax));
+            trackingErrorSumSquared = 0;
+            trackingErrorMax = 0;
+            trackingErrorSamples = 0;
+        }
 
         boolean driverStationStatus = DriverStation.isEnabled();
         if (driverStationStatus && !isEnabled) {
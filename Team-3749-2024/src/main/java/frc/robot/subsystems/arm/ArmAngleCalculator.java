@@ -1,8 +1,10 @@
 package frc.robot.subsystems.arm;
 
-import frc.robot.utils.MiscConstants;
+import frc.robot.subsystems.shooter.ShooterConstants;
 
 import java.io.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 // NOTE: all distances in output file are relative to center of robot, arm offset is accounted for
 public class ArmAngleCalculator {
@@ -13,31 +15,49 @@ public class ArmAngleCalculator {
 
     public static double arm_length = ArmConstants.armLength;
 
-    // Gravity
-    public static final double g = 9.81;
+    // the shooter is mounted at this angle to the arm, so it shoots at offset - arm angle
+    public static final double shooter_angle_offset = 60.0;
+
+    // wheel speeds the table is built for, a difference between them spins the note
+    public static double top_wheel_rad_per_sec = ShooterConstants.shooterVelocityRadPerSec;
+    public static double bottom_wheel_rad_per_sec = ShooterConstants.shooterVelocityRadPerSec;
 
     // Range of Angles & Minimum Shooting Distance
     public static final double initial_angle = 90.0;
     public static final double final_angle = 0.00;
     public static double min_distance = 0.9;
+    // ShootKinematics holds up to 10 m
+    public static double max_distance = 10.0;
 
     // Differentials & Margins of Error
-    public static final double angle_increment = 0.01;
+    // angles are scanned coarsely to find where the shot crosses the speaker
+    // height, then bisected
+    public static final double coarse_angle_increment = 1.0;
+    public static final double angle_tolerance = 0.001;
     public static final double dist_increment = 0.01;
     public static final double margin_of_error = 0.001;
 
+    // distances each fork join task does without splitting further
+    private static final int distances_per_task = 8;
+
     public static void main(String[] args) throws IOException, Exception {
-        double previous_angle = 0;
-        double current_angle = 0.01;
-        String csv = "";
+        ShotSimulator simulator = new ShotSimulator(
+                top_wheel_rad_per_sec * ShooterConstants.wheelRadiusMeters,
+                bottom_wheel_rad_per_sec * ShooterConstants.wheelRadiusMeters);
+
+        int count = (int) Math.round((max_distance - min_distance) / dist_increment) + 1;
+        double[] angles = new double[count];
+        long start = System.nanoTime();
+        ForkJoinPool.commonPool().invoke(new TableTask(simulator, angles, 0, count));
+        System.out.println("simulated " + count + " distances in " + (System.nanoTime() - start) / 1e9 + " s");
 
-        // if angle stops increasing, then shooting downwards (STOP)
-        for (double i = min_distance; current_angle > previous_angle; i = round(i + dist_increment)) {
-            double angle = calculateAngle(i);
-            csv += i + "," + angle + "\n";
-            
-            previous_angle = current_angle;
-            current_angle = angle;
+        String csv = "";
+        for (int i = 0; i < count; i++) {
+            // if angle stops increasing, then shooting downwards (STOP)
+            if (Double.isNaN(angles[i]) || (i > 0 && angles[i] <= angles[i - 1])) {
+                break;
+            }
+            csv += round(min_distance + i * dist_increment) + "," + round(angles[i]) + "\n";
         }
 
         // output CSV to file
@@ -50,38 +70,78 @@ public class ArmAngleCalculator {
         pw2.close();
     }
 
-    public static double calculateAngle(double x_dist) throws Exception {
-         // if angles decrease then it is shooting downwards (STOP)
-         for (double i = initial_angle; i >= final_angle; i = round(i - angle_increment)) {
-               double initial_angle_rad = Math.toRadians(i);
-               double shoot_angle_rad = Math.toRadians(60-i);
-               
-               double vx = Math.cos(shoot_angle_rad) * v_initial;
-               double t = ( x_dist + x_arm + arm_length*Math.cos(initial_angle_rad) ) / vx;
-               double y = ( Math.sin(shoot_angle_rad) * v_initial * t ) - ( g/2 * t*t ) + ( arm_length * Math.sin(initial_angle_rad) ) + y_arm;
-
-               if (Math.abs(y_speaker - y) <= margin_of_error) {
-                    System.out.print("x-dist: ");
-                    System.out.println(x_dist);
-
-                    System.out.print("y-value: ");
-                    System.out.println(y);
+    /** Fills in a range of the table, splitting it until it's small enough */
+    private static class TableTask extends RecursiveAction {
+        private final ShotSimulator simulator;
+        private final double[] angles;
+        private final int start;
+        private final int end;
+
+        TableTask(ShotSimulator simulator, double[] angles, int start, int end) {
+            this.simulator = simulator;
+            this.angles = angles;
+            this.start = start;
+            this.end = end;
+        }
 
-                    System.out.print("arm angle: ");
-                    System.out.println(Math.toDegrees(initial_angle_rad));
+        @Override
+        protected void compute() {
+            if (end - start <= distances_per_task) {
+                for (int i = start; i < end; i++) {
+                    angles[i] = calculateAngle(simulator, min_distance + i * dist_increment);
+                }
+                return;
+            }
+            int middle = (start + end) / 2;
+            invokeAll(new TableTask(simulator, angles, start, middle), new TableTask(simulator, angles, middle, end));
+        }
+    }
 
-                    System.out.print("shooter angle: ");
-                    System.out.println(Math.toDegrees(shoot_angle_rad));
+    /**
+     * @return the highest arm angle in degrees whose shot passes through the
+     *         speaker height at this distance, or NaN if none does
+     */
+    public static double calculateAngle(ShotSimulator simulator, double x_dist) {
+        double upper_angle = initial_angle;
+        double upper_error = heightError(simulator, x_dist, upper_angle);
+        for (double i = initial_angle - coarse_angle_increment; i >= final_angle; i -= coarse_angle_increment) {
+            double error = heightError(simulator, x_dist, i);
+            if (!Double.isNaN(error) && !Double.isNaN(upper_error) && Math.signum(error) != Math.signum(upper_error)) {
+                return bisect(simulator, x_dist, i, error, upper_angle);
+            }
+            upper_angle = i;
+            upper_error = error;
+        }
+        return Double.NaN;
+    }
 
-                    System.out.println("---------------------------");
-                    return i;
-               }
-         }
+    private static double bisect(ShotSimulator simulator, double x_dist, double lower_angle, double lower_error,
+            double upper_angle) {
+        while (upper_angle - lower_angle > angle_tolerance) {
+            double angle = (lower_angle + upper_angle) / 2;
+            double error = heightError(simulator, x_dist, angle);
+            if (Math.abs(error) <= margin_of_error) {
+                return angle;
+            }
+            if (Math.signum(error) == Math.signum(lower_error)) {
+                lower_angle = angle;
+                lower_error = error;
+            } else {
+                upper_angle = angle;
+            }
+        }
+        return (lower_angle + upper_angle) / 2;
+    }
 
-         throw new Exception("No angle for distance " + x_dist);
+    /** @return how far above the speaker opening the shot is, NaN if it falls short */
+    private static double heightError(ShotSimulator simulator, double x_dist, double arm_angle) {
+        double arm_angle_rad = Math.toRadians(arm_angle);
+        double shoot_angle_rad = Math.toRadians(shooter_angle_offset - arm_angle);
+        double launch_x = x_dist + x_arm + arm_length * Math.cos(arm_angle_rad);
+        double launch_y = arm_length * Math.sin(arm_angle_rad) + y_arm;
+        return simulator.heightAtDistance(launch_x, launch_y, v_initial, shoot_angle_rad) - y_speaker;
     }
-    
-    
+
     public static double round(double num) {
         return Math.round(num * 100) / 100.0;
     }
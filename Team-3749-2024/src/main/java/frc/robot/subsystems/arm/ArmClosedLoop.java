@@ -0,0 +1,129 @@
+package frc.robot.subsystems.arm;
+
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.trajectory.ExponentialProfile;
+import edu.wpi.first.math.trajectory.ExponentialProfile.Constraints;
+import edu.wpi.first.math.trajectory.ExponentialProfile.State;
+import edu.wpi.first.math.util.Units;
+import frc.robot.utils.UtilityFunctions;
+
+/**
+ * The arm's motion profile, feedback and feedforward, stepped once a control
+ * period. Arm owns one and sends its output to the motors, and the sim tests
+ * run the same loop against ArmSim. See WristClosedLoop
+ */
+class ArmClosedLoop {
+
+    private final double periodSec;
+    private final PIDController feedback;
+
+    private ExponentialProfile profile;
+    private State goal = new State(ArmConstants.stowPositionRad, 0);
+    private State setpoint = new State(ArmConstants.stowPositionRad, 0);
+    private double accelerationSetpoint = 0;
+
+    private final double lengthCFSToAxleX = Units.inchesToMeters(14);
+    private final double lengthCFSToAxleY = Units.inchesToMeters(7);
+    private final double lengthAxleToCFSAttatched = Units.inchesToMeters(15);
+
+    private final double lengthCFSToAxle = Math.hypot(lengthCFSToAxleX, lengthCFSToAxleY);
+    private final double axleToCFSTheta = Math.atan(lengthCFSToAxleY / lengthCFSToAxleX);
+
+    /** @param periodSec how often {@link #step} is called */
+    ArmClosedLoop(double periodSec, Constraints constraints) {
+        this.periodSec = periodSec;
+        feedback = new PIDController(ArmConstants.stowedPID.kP, ArmConstants.stowedPID.kI,
+                ArmConstants.stowedPID.kD, periodSec);
+        profile = new ExponentialProfile(constraints);
+    }
+
+    void setGoal(double goalRad) {
+        goal = new State(goalRad, 0);
+    }
+
+    void setConstraints(Constraints constraints) {
+        profile = new ExponentialProfile(constraints);
+    }
+
+    State getGoal() {
+        return goal;
+    }
+
+    State getSetpoint() {
+        return setpoint;
+    }
+
+    double getAccelerationSetpoint() {
+        return accelerationSetpoint;
+    }
+
+    /** Starts the profile from where the arm is rather than wherever the last move left off */
+    void start(double positionRad, double velocityRadPerSec) {
+        setpoint = new State(positionRad, velocityRadPerSec);
+        feedback.reset();
+    }
+
+    /**
+     * Moves the setpoint one period along the profile
+     *
+     * @param wristPositionRad the gains are scheduled on where the wrist is
+     * @return volts to follow the new setpoint
+     */
+    double step(double positionRad, double velocityRadPerSec, double wristPositionRad) {
+        double previousVelocity = setpoint.velocity;
+        State next = profile.calculate(periodSec, setpoint, goal);
+        return follow(next, (next.velocity - previousVelocity) / periodSec, positionRad, velocityRadPerSec,
+                wristPositionRad);
+    }
+
+    /**
+     * Feedback and feedforward towards a setpoint from any profile, {@link #step}
+     * passes its own
+     *
+     * @return volts to follow the setpoint
+     */
+    double follow(State setpoint, double accelerationSetpoint, double positionRad, double velocityRadPerSec,
+            double wristPositionRad) {
+        this.setpoint = setpoint;
+        this.accelerationSetpoint = accelerationSetpoint;
+        double feedbackVolts = feedback.calculate(positionRad, setpoint.position);
+
+        if (setpoint.position == ArmConstants.stowPositionRad
+                && UtilityFunctions.withinMargin(0.05, velocityRadPerSec, 0)) {
+            return 0;
+        }
+
+        double feedforward = calculateFF(positionRad, setpoint.velocity, accelerationSetpoint, wristPositionRad);
+        if (setpoint.velocity == 0) {
+            // have the kS help the PID when stationary
+            feedforward += Math.signum(feedbackVolts) * ArmConstants.stowedkS * 0.85;
+        }
+        return feedforward + feedbackVolts;
+    }
+
+    double calculateFF(double currentPositionRad, double setpointVelocityRadPerSec,
+            double setpointAccelerationRadPerSecSquared, double wristPositionRad) {
+        // mathing the constant force spring angle for a seperate kG since its a
+        // changing vector angle of constant magnitude
+        double lengthCFS = Math.sqrt(lengthAxleToCFSAttatched * lengthAxleToCFSAttatched
+                + lengthCFSToAxle * lengthCFSToAxle
+                - 2 * lengthAxleToCFSAttatched * lengthCFSToAxle * Math.cos(currentPositionRad + axleToCFSTheta));
+
+        double cosAngleCFS = (lengthCFS * lengthCFS + lengthAxleToCFSAttatched * lengthAxleToCFSAttatched
+                - lengthCFSToAxle * lengthCFSToAxle) / (2 * lengthAxleToCFSAttatched * lengthCFSToAxle);
+
+        double CFSFF = cosAngleCFS * ArmConstants.stowedkG * 0.3;
+
+        // gains follow the wrist continuously so they don't jump mid move
+        double blend = Arm.deployedBlend.get(wristPositionRad);
+        double armFF = Arm.scheduleGain(ArmConstants.stowedkS, ArmConstants.deployedkS, blend)
+                * Math.signum(setpointVelocityRadPerSec)
+                + Arm.scheduleGain(ArmConstants.stowedkG, ArmConstants.deployedkG, blend)
+                        * Math.cos(currentPositionRad)
+                + Arm.scheduleGain(ArmConstants.stowedkV, ArmConstants.deployedkV, blend) * setpointVelocityRadPerSec
+                + Arm.scheduleGain(ArmConstants.stowedkA, ArmConstants.deployedkA, blend)
+                        * setpointAccelerationRadPerSecSquared;
+
+        return armFF + CFSFF;
+    }
+}
@@ -3,7 +3,6 @@ package frc.robot.subsystems.arm;
 import com.pathplanner.lib.util.PIDConstants;
 
 import edu.wpi.first.math.geometry.Translation2d;
-import edu.wpi.first.math.trajectory.TrapezoidProfile.Constraints;
 import edu.wpi.first.math.util.Units;
 import frc.robot.Robot;
 
@@ -41,7 +40,7 @@ public final class ArmConstants {
         }
 
 
-        // Control - PID, FF, and Trapezoidal Constraints
+        // Control - PID, FF, and motion profile
         private static final PIDConstants simPID = new PIDConstants(0, 0, 0); // 2.2,0,0
         private static final PIDConstants realStowedPID = new PIDConstants(0.55, 0, 0.05);
         public static final PIDConstants stowedPID = Robot.isReal() ? realStowedPID : simPID;
@@ -53,7 +52,9 @@ public final class ArmConstants {
         private static final double simkG = 0.203; // stick arm at 0 degrees, tune till it doesnt move
 
         private static final double simkV = 6.616; // max volts - kG / max velocity
-        private static final double simkA = 0; // (max volts - kG - vel@maxacceleration*kV )/max acceleration
+        // (max volts - kG - vel@maxacceleration*kV )/max acceleration, or for the sim
+        // R * J / (2 motors * kT * gearing) with the NEO and ArmSim numbers
+        private static final double simkA = 0.0052;
 
         private static final double realStowedkS = 0.205;
         private static final double realStowedkG = 0.375; // 0.58 - 0.17
@@ -75,29 +76,19 @@ public final class ArmConstants {
         public static final double deployedkV = Robot.isReal() ? realDeployedkV : simkV;
         public static final double deployedkA = Robot.isReal() ? realDeployedkA : simkA;
 
-        // private static final Constraints simConstraints = new Constraints(2.36,
-        // 71.58);
-        private static final Constraints simStowedConstraints = new Constraints(
-                        1.783,
-                        89.175);
-
-        private static final Constraints realStowedConstraints = new Constraints(        
-                        2.662,
-                        5.5);
-        public static final Constraints stowedConstraints = Robot.isReal()                
-                        ? realStowedConstraints
-                        : simStowedConstraints;
-
-        private static final Constraints realDeployedConstraints = new Constraints(        
-                        2.442,
-                        5.5
-
-                        );
-        public static final Constraints                 
-        deployedConstraints = Robot.isReal()
-                        ? realDeployedConstraints
-                        : new Constraints(0, 0);
-                
+        // volts the motion profile plans with. kS and the most gravity seen along a
+        // move come out of this, and what's left over from 12 is for the PID
+        public static final double profileVolts = 10;
+        // kA hasn't been characterized on the real arm, so its profiles accelerate no
+        // harder than the old trapezoid's limit
+        public static final double maxProfileAccelRadPerSec2 = Robot.isReal() ? 5.5 : Double.POSITIVE_INFINITY;
+
+        // Superstructure planner limits
+        // with the wrist out past almost deployed, raising the arm above this puts the
+        // intake outside the frame perimeter
+        public static final double maxArmRadWithWristDeployed = ampPositionRad + Units.degreesToRadians(5);
+        // height the arm lifts to so the wrist can swing out for a ground intake
+        public static final double groundIntakeClearanceRad = Units.degreesToRadians(18.5);
 
 
         // Field Parameters
@@ -118,6 +109,15 @@ public final class ArmConstants {
         public static final double maxAngle = 42.109;
         public static final double maxAngleRad = Math.toRadians(maxAngle);
 
+        // ShotMap grid spacing, and how far apart neighboring cells' shooting poses
+        // can be before they're on different sides of a boundary and not blended
+        public static final double shotMapResolutionMeters = 0.05;
+        public static final double shotMapMaxBlendMeters = 0.2;
+
+        // aim from where the robot will be when the note leaves, the feed delay
+        // from starting to feed plus the arm lagging behind its goal
+        public static final double aimLookaheadSec = 0.15;
+
         // Important Field Coordinates (everything converted from inches to meters)
         // NOTE: may need to adjust slightly to make sure code works properly (some
         // inpercision in measurements)
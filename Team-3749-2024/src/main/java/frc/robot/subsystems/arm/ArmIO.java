@@ -35,11 +35,21 @@ public interface ArmIO {
 
     }
 
+    /** Updates only what feedback needs. Called every control period */
+    public default void updateControlData(ArmData data) {
+
+    }
+
     /** Run the drive motor at the specified voltage. */
     public default void setVoltage(double volts) {
         
     }
 
+    /** Sets the smart current limit. Implementations only send it when it changes */
+    public default void setCurrentLimit(int amps) {
+
+    }
+
     public default void setBreakMode(){
 
     }
@@ -4,7 +4,7 @@ import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.simulation.SingleJointedArmSim;
-import frc.robot.utils.MiscConstants.Sim;
+import frc.robot.utils.MiscConstants;
 
 public class ArmSim implements ArmIO {
 
@@ -30,29 +30,40 @@ public class ArmSim implements ArmIO {
     private SingleJointedArmSim armSim;
 
 
+    private final double periodSec;
     private double appliedVolts = 0;
     private double previousVelocity = 0;
 
     public ArmSim() {
+        this(MiscConstants.controlPeriodSec);
+    }
+
+    /** @param periodSec how far the sim steps every updateControlData */
+    public ArmSim(double periodSec) {
         System.out.println("[Init] Creating ExampleIOSim");
 
+        this.periodSec = periodSec;
         armSim = armSimIn;
     }
 
     @Override
-    public void updateData(ArmData data) {
+    public void updateControlData(ArmData data) {
         previousVelocity = data.velocityRadPerSec;
 
-        // update sim values every 0.02 sec
-        armSim.update(Sim.loopPeriodSec);
+        // the sim is only stepped here, once every control period
+        armSim.update(periodSec);
 
         // distance traveled + Rad/Time * Time * diameter
         data.positionRad = armSim.getAngleRads();
 
         data.velocityRadPerSec =armSim.getVelocityRadPerSec();
 
-        data.accelerationRadPerSecSquared = (armSim.getVelocityRadPerSec() - previousVelocity)/Sim.loopPeriodSec;
+        data.accelerationRadPerSecSquared = (armSim.getVelocityRadPerSec() - previousVelocity)
+                / periodSec;
+    }
 
+    @Override
+    public void updateData(ArmData data) {
         data.appliedVolts = appliedVolts;
 
         data.leftCurrentAmps = Math.abs(armSim.getCurrentDrawAmps());
@@ -6,16 +6,20 @@ import com.revrobotics.RelativeEncoder;
 import com.revrobotics.SparkAbsoluteEncoder;
 import com.revrobotics.SparkMaxAlternateEncoder;
 import com.revrobotics.CANSparkBase.IdleMode;
+import com.revrobotics.CANSparkLowLevel.PeriodicFrame;
 import com.revrobotics.SparkAbsoluteEncoder.Type;
 
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.DutyCycleEncoder;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.simulation.FlywheelSim;
 import edu.wpi.first.wpilibj.simulation.SingleJointedArmSim;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.utils.MiscConstants;
 import frc.robot.utils.MiscConstants.Sim;
+import frc.robot.utils.VoltageOutput;
 
 public class ArmSparkMax implements ArmIO {
 
@@ -27,8 +31,13 @@ public class ArmSparkMax implements ArmIO {
 
     private AbsoluteEncoder absoluteEncoder;
 
+    private VoltageOutput leftOutput = new VoltageOutput("arm left", leftMotor::setVoltage);
+    private VoltageOutput rightOutput = new VoltageOutput("arm right", rightMotor::setVoltage);
+
     private double appliedVolts = 0;
+    private int currentLimitAmps = 40;
     private double previousVelocity = 0;
+    private double previousVelocityTime = Double.NaN;
 
     public ArmSparkMax() {
         System.out.println("[Init] Creating Arm Spark Max");
@@ -41,11 +50,16 @@ public class ArmSparkMax implements ArmIO {
         rightEncoder.setVelocityConversionFactor(Math.PI * 2 / ArmConstants.gearRatio /60.0);
 
         rightMotor.setInverted(true);
-        rightMotor.setSmartCurrentLimit(40);
-        leftMotor.setSmartCurrentLimit(40);
+        rightMotor.setSmartCurrentLimit(currentLimitAmps);
+        leftMotor.setSmartCurrentLimit(currentLimitAmps);
         rightMotor.setIdleMode(IdleMode.kCoast);
         leftMotor.setIdleMode(IdleMode.kCoast);
 
+        // velocity for both motors, and the absolute encoder on the left
+        leftMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus1, MiscConstants.controlStatusFramePeriodMs);
+        rightMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus1, MiscConstants.controlStatusFramePeriodMs);
+        leftMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus5, MiscConstants.controlStatusFramePeriodMs);
+
     }
     // the arm will break if it ever goes past 120 degrees... should fix that lmao ;-;
     // technically would also break if we go past -60 but im much less concerned about that. 
@@ -67,17 +81,31 @@ public class ArmSparkMax implements ArmIO {
     }
 
     @Override
-    public void updateData(ArmData data) {
-        SmartDashboard.putString("break mode", leftMotor.getIdleMode().name());
-        SmartDashboard.putNumber("abs encoder", absoluteEncoder.getPosition());
-
-        previousVelocity = data.velocityRadPerSec;
+    public void updateControlData(ArmData data) {
         // distance traveled + Rad/Time * Time * diameter
         data.positionRad = getAbsolutePositionRad();
 
         data.velocityRadPerSec = getVelocityRadPerSec();
 
-        data.accelerationRadPerSecSquared = (data.velocityRadPerSec - previousVelocity) / 0.02;
+        // only difference new velocity frames, a repeated sample would read as zero
+        // acceleration followed by a spike
+        double now = Timer.getFPGATimestamp();
+        if (data.velocityRadPerSec != previousVelocity) {
+            if (!Double.isNaN(previousVelocityTime)) {
+                data.accelerationRadPerSecSquared = (data.velocityRadPerSec - previousVelocity)
+                        / (now - previousVelocityTime);
+            }
+            previousVelocity = data.velocityRadPerSec;
+            previousVelocityTime = now;
+        } else if (now - previousVelocityTime > MiscConstants.accelerationStaleSec) {
+            data.accelerationRadPerSecSquared = 0;
+        }
+    }
+
+    @Override
+    public void updateData(ArmData data) {
+        SmartDashboard.putString("break mode", leftMotor.getIdleMode().name());
+        SmartDashboard.putNumber("abs encoder", absoluteEncoder.getPosition());
 
         data.appliedVolts = appliedVolts;
 
@@ -92,11 +120,21 @@ public class ArmSparkMax implements ArmIO {
     @Override
     public void setVoltage(double volts) {
         appliedVolts = MathUtil.clamp(volts, -12.0, 12.0);
-        leftMotor.setVoltage(appliedVolts);
-        rightMotor.setVoltage(appliedVolts);
+        leftOutput.setVoltage(appliedVolts);
+        rightOutput.setVoltage(appliedVolts);
 
     }
 
+    @Override
+    public void setCurrentLimit(int amps) {
+        if (amps == currentLimitAmps) {
+            return;
+        }
+        currentLimitAmps = amps;
+        leftMotor.setSmartCurrentLimit(amps);
+        rightMotor.setSmartCurrentLimit(amps);
+    }
+
     @Override
     public void setBreakMode() {
         leftMotor.setIdleMode(IdleMode.kBrake);
@@ -29,10 +29,23 @@ public class ShootKinematics {
     private static final double[] distToAngle = new double[1001];
     private static double maxDist = 0.0;
 
+    /**
+     * @return the nearest pose to shoot from, from the ShotMap once it's built
+     */
     public static Pose2d shootingPose2DCalculate(Pose2d currentPose2d) {
+        boolean isRed = MiscConstants.isRedAlliance();
+        Pose2d mapped = ShotMap.getShootingPose(currentPose2d, isRed);
+        if (mapped != null) {
+            return mapped;
+        }
+        return calculateShootingPose(currentPose2d, isRed);
+    }
+
+    /** The geometry behind shootingPose2DCalculate, which ShotMap precomputes */
+    static Pose2d calculateShootingPose(Pose2d currentPose2d, boolean isRed) {
         Rotation2d angle;
 
-        Translation2d distanceVector = currentPose2d.getTranslation().minus(getSpeakerPosition());
+        Translation2d distanceVector = currentPose2d.getTranslation().minus(getSpeakerPosition(isRed));
 
         angle = new Rotation2d(Math.atan2(Math.abs(distanceVector.getY()), Math.abs(distanceVector.getX())));
         // System.out.println("Angle: " + angle);
@@ -43,7 +56,7 @@ public class ShootKinematics {
         // Case 0: We are in angle
         if (angle.getDegrees() < ArmConstants.maxAngle && distanceVector.getNorm() <= maxDist) {
             // System.out.println("Case 0");
-            return moveOutOfStage(changeRotation(currentPose2d.getTranslation(), distanceVector));
+            return moveOutOfStage(changeRotation(currentPose2d.getTranslation(), distanceVector), isRed);
             // return changeRotation(currentPose2d.getTranslation(), distanceVector);
         }
         // Case 1: We are out of angle
@@ -53,9 +66,9 @@ public class ShootKinematics {
             // TODO: Check if positive/negative x coord check is correct
             Translation2d radiusVector;
 
-            if ((distanceVector.getAngle().getRadians() < 0 && DriverStation.getAlliance().get() == Alliance.Red)
+            if ((distanceVector.getAngle().getRadians() < 0 && isRed)
                     || (distanceVector.getAngle().getRadians() > 0
-                            && DriverStation.getAlliance().get() == Alliance.Blue)) {
+                            && !isRed)) {
                 // System.out.println("case 1a");
                 radiusVector = new Translation2d(Math.cos(ArmConstants.maxAngleRad),
                         Math.sin(ArmConstants.maxAngleRad));
@@ -69,20 +82,22 @@ public class ShootKinematics {
             Translation2d goal = perpVector.plus(currentPose2d.getTranslation());
 
             // Case 3: We are out of range and out of angle
-            Translation2d newDistanceVector = goal.minus(getSpeakerPosition());
+            Translation2d newDistanceVector = goal.minus(getSpeakerPosition(isRed));
             if (newDistanceVector.getNorm() > maxDist) {
                 // System.out.println("Special Case 3");
-                goal = getSpeakerPosition().plus(newDistanceVector.div(newDistanceVector.getNorm()).times(maxDist));
+                goal = getSpeakerPosition(isRed)
+                        .plus(newDistanceVector.div(newDistanceVector.getNorm()).times(maxDist));
             }
 
-            return moveOutOfStage(changeRotation(goal, goal.minus(getSpeakerPosition())));
+            return moveOutOfStage(changeRotation(goal, goal.minus(getSpeakerPosition(isRed))), isRed);
             // return changeRotation(goal, goal.minus(getSpeakerPosition()));
         }
         // Case 2: We are out of range
         else if (distanceVector.getNorm() > maxDist) {
             // System.out.println("Case 2");
-            Translation2d goal = getSpeakerPosition().plus(distanceVector.div(distanceVector.getNorm()).times(maxDist));
-            return moveOutOfStage(changeRotation(goal, goal.minus(getSpeakerPosition())));
+            Translation2d goal = getSpeakerPosition(isRed)
+                    .plus(distanceVector.div(distanceVector.getNorm()).times(maxDist));
+            return moveOutOfStage(changeRotation(goal, goal.minus(getSpeakerPosition(isRed))), isRed);
         }
 
         return null;
@@ -98,9 +113,9 @@ public class ShootKinematics {
     }
 
     // Case 5 Check if we are in stage and move accordingly
-    private static Pose2d moveOutOfStage(Pose2d poseInRadius) {
+    private static Pose2d moveOutOfStage(Pose2d poseInRadius, boolean isRed) {
         // System.out.println("Case 5");
-        Translation2d[] stagePoints = getStagePoints();
+        Translation2d[] stagePoints = isRed ? redStagePoints : blueStagePoints;
 
         Translation2d distanceVector = poseInRadius.getTranslation().minus(stagePoints[0]);
         double angle = Math.abs(distanceVector.getAngle().getRadians());
@@ -110,7 +125,7 @@ public class ShootKinematics {
                     .minus(distanceVector);
             Translation2d nearestShootPoint = poseInRadius.getTranslation().plus(perpVector);
 
-            return changeRotation(nearestShootPoint, nearestShootPoint.minus(getSpeakerPosition()));
+            return changeRotation(nearestShootPoint, nearestShootPoint.minus(getSpeakerPosition(isRed)));
         }
 
         return poseInRadius;
@@ -131,6 +146,12 @@ public class ShootKinematics {
         // we start at 0.9m away, though that should be lowerd to like 0.8
         int distNum = (int) (Math.round(dist * 100.0));
         SmartDashboard.putNumber("arm calc index", distNum);
+        return lookupAngle(dist);
+    }
+
+    /** getAngle without the logging, for building the ShotMap off the main thread */
+    static double lookupAngle(double dist) {
+        int distNum = (int) (Math.round(dist * 100.0));
         if (distNum < 0 || distNum > 1000) {
             return -1;
         }
@@ -138,7 +159,11 @@ public class ShootKinematics {
         return distToAngle[distNum];
     }
 
-    private static Translation2d getSpeakerPosition() {
+    public static Translation2d getSpeakerPosition(boolean isRed) {
+        return isRed ? redSpeakerPosition : blueSpeakerPosition;
+    }
+
+    public static Translation2d getSpeakerPosition() {
         try {
             return (DriverStation.getAlliance().get() == Alliance.Red) ? redSpeakerPosition : blueSpeakerPosition;
         } catch (Exception e) {
@@ -146,12 +171,9 @@ public class ShootKinematics {
         }
     }
 
-    private static Translation2d[] getStagePoints() {
-        try {
-            return (DriverStation.getAlliance().get() == Alliance.Red) ? redStagePoints : blueStagePoints;
-        } catch (Exception e) {
-            return blueStagePoints;
-        }
+    /** @return furthest the shot table reaches, 0 until the table has loaded */
+    public static double getMaxDistance() {
+        return maxDist;
     }
 
     public static void loadDistCSV() throws FileNotFoundException, IOException {
@@ -176,8 +198,15 @@ public class ShootKinematics {
                 maxDist -= ArmConstants.distMargin;
                 System.out.println("done");
                 br.close();
-
             } catch (Exception e) {
+                DriverStation.reportError("couldn't load angles.csv: " + e, e.getStackTrace());
+                return;
+            }
+            try {
+                ShotMap.build();
+            } catch (Exception e) {
+                // aiming keeps working off the table, just without the map
+                DriverStation.reportError("couldn't build the shot map: " + e, e.getStackTrace());
             }
         }).start();
 
@@ -205,6 +234,29 @@ public class ShootKinematics {
     // br.close();
     // }
 
+    public static double getDistanceToSpeaker(Pose2d currentPose2d) {
+        return currentPose2d.getTranslation().minus(getSpeakerPosition()).getNorm();
+    }
+
+    /** @return the shot table's arm angle, negative if out of range */
+    public static double getArmAngleRadGivenDistance(double distance) {
+        return Units.degreesToRadians(getAngle(distance));
+    }
+
+    /**
+     * @return the arm angle to shoot from a pose, blended from the ShotMap once
+     *         it's built and worked out from the shot table until then. -1 if
+     *         the table can't make the shot
+     */
+    public static double getAimbotArmAngleRad(Pose2d pose) {
+        if (ShotMap.isReady()) {
+            return ShotMap.getArmAngleRad(pose, MiscConstants.isRedAlliance());
+        }
+        // the table has 0 where it's too close to make the shot
+        double angleRad = getArmAngleRadGivenPose(pose);
+        return angleRad > 0 ? angleRad : -1;
+    }
+
     public static double getArmAngleRadGivenPose(Pose2d currentPose2d) {
         double distance = currentPose2d.getTranslation().minus(getSpeakerPosition()).getNorm();
         SmartDashboard.putNumber("distance", distance);
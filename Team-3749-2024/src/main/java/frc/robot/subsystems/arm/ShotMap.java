@@ -0,0 +1,170 @@
+package frc.robot.subsystems.arm;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import frc.robot.subsystems.vision.VisionConstants;
+
+/**
+ * The nearest pose to shoot from, and the arm angle to shoot from right where
+ * the robot is, precomputed every ArmConstants.shotMapResolutionMeters across
+ * the field for both alliances. Built on a background thread once the shot
+ * table has loaded. After that a lookup is a bilinear blend of four cells
+ * instead of ShootKinematics' geometry. Where the four shooting poses disagree
+ * by more than ArmConstants.shotMapMaxBlendMeters they straddle a boundary like
+ * the stage, and the nearest cell is used instead of a blend of two different
+ * answers. Cells the shot table doesn't reach have an arm angle of -1 and are
+ * left out of the blend
+ */
+public class ShotMap {
+
+    private static final double resolution = ArmConstants.shotMapResolutionMeters;
+    private static final int columns = (int) Math.ceil(VisionConstants.FIELD_LENGTH / resolution) + 1;
+    private static final int rows = (int) Math.ceil(VisionConstants.FIELD_WIDTH / resolution) + 1;
+
+    // [alliance][cell], blue is 0 and red is 1, cells are row major
+    private static float[][] xMeters;
+    private static float[][] yMeters;
+    private static float[][] headingRad;
+    private static float[][] armRad;
+    private static volatile boolean ready = false;
+
+    /** Fills in the map. Needs the shot table loaded, so ShootKinematics calls it */
+    public static void build() {
+        float[][] x = new float[2][rows * columns];
+        float[][] y = new float[2][rows * columns];
+        float[][] heading = new float[2][rows * columns];
+        float[][] arm = new float[2][rows * columns];
+
+        for (int alliance = 0; alliance < 2; alliance++) {
+            boolean isRed = alliance == 1;
+            for (int row = 0; row < rows; row++) {
+                for (int column = 0; column < columns; column++) {
+                    int cell = row * columns + column;
+                    Pose2d cellPose = new Pose2d(column * resolution, row * resolution, new Rotation2d());
+                    Pose2d pose = ShootKinematics.calculateShootingPose(cellPose, isRed);
+                    if (pose == null) {
+                        pose = cellPose;
+                    }
+                    x[alliance][cell] = (float) pose.getX();
+                    y[alliance][cell] = (float) pose.getY();
+                    heading[alliance][cell] = (float) pose.getRotation().getRadians();
+
+                    // the aimbot shoots from wherever the robot is, so the angle is for the
+                    // cell itself. The table has 0 where it's too close to make the shot
+                    double distance = cellPose.getTranslation().minus(ShootKinematics.getSpeakerPosition(isRed))
+                            .getNorm();
+                    double angleDeg = ShootKinematics.lookupAngle(distance);
+                    arm[alliance][cell] = angleDeg > 0 ? (float) Math.toRadians(angleDeg) : -1;
+                }
+            }
+        }
+
+        xMeters = x;
+        yMeters = y;
+        headingRad = heading;
+        armRad = arm;
+        ready = true;
+    }
+
+    public static boolean isReady() {
+        return ready;
+    }
+
+    /** @return the nearest pose to shoot from, or null until the map is built */
+    public static Pose2d getShootingPose(Pose2d currentPose, boolean isRed) {
+        if (!ready) {
+            return null;
+        }
+        int alliance = isRed ? 1 : 0;
+        double gridX = MathUtil.clamp(currentPose.getX() / resolution, 0, columns - 1.0001);
+        double gridY = MathUtil.clamp(currentPose.getY() / resolution, 0, rows - 1.0001);
+        int column = (int) gridX;
+        int row = (int) gridY;
+        double fractionX = gridX - column;
+        double fractionY = gridY - row;
+        int cell = row * columns + column;
+
+        float[] x = xMeters[alliance];
+        float[] y = yMeters[alliance];
+        float[] heading = headingRad[alliance];
+        if (!isBlendable(x, y, cell)) {
+            int nearest = cell + (fractionX >= 0.5 ? 1 : 0) + (fractionY >= 0.5 ? columns : 0);
+            return new Pose2d(x[nearest], y[nearest], new Rotation2d(heading[nearest]));
+        }
+
+        // blend the headings relative to one corner so wrapping around can't
+        // average to the opposite direction
+        double baseHeading = heading[cell];
+        double headingOffset = blend(
+                0,
+                MathUtil.angleModulus(heading[cell + 1] - baseHeading),
+                MathUtil.angleModulus(heading[cell + columns] - baseHeading),
+                MathUtil.angleModulus(heading[cell + columns + 1] - baseHeading),
+                fractionX, fractionY);
+        return new Pose2d(
+                blend(x, cell, fractionX, fractionY),
+                blend(y, cell, fractionX, fractionY),
+                new Rotation2d(baseHeading + headingOffset));
+    }
+
+    /**
+     * @return the arm angle to shoot from the pose, blended from the cells
+     *         around it the shot table reaches. -1 if none of them are in range,
+     *         NaN until the map is built
+     */
+    public static double getArmAngleRad(Pose2d currentPose, boolean isRed) {
+        if (!ready) {
+            return Double.NaN;
+        }
+        int alliance = isRed ? 1 : 0;
+        double gridX = MathUtil.clamp(currentPose.getX() / resolution, 0, columns - 1.0001);
+        double gridY = MathUtil.clamp(currentPose.getY() / resolution, 0, rows - 1.0001);
+        int column = (int) gridX;
+        int row = (int) gridY;
+        double fractionX = gridX - column;
+        double fractionY = gridY - row;
+        int cell = row * columns + column;
+
+        // the distance to the speaker is smooth across the field, so there's no
+        // boundary to check for, only corners past the end of the table to leave out
+        float[] arm = armRad[alliance];
+        int[] corners = { cell, cell + 1, cell + columns, cell + columns + 1 };
+        double[] weights = {
+                (1 - fractionX) * (1 - fractionY),
+                fractionX * (1 - fractionY),
+                (1 - fractionX) * fractionY,
+                fractionX * fractionY };
+        double weightedSum = 0;
+        double totalWeight = 0;
+        for (int i = 0; i < 4; i++) {
+            if (arm[corners[i]] >= 0) {
+                weightedSum += arm[corners[i]] * weights[i];
+                totalWeight += weights[i];
+            }
+        }
+        return totalWeight > 0 ? weightedSum / totalWeight : -1;
+    }
+
+    private static boolean isBlendable(float[] x, float[] y, int cell) {
+        return isNear(x, y, cell, cell + 1)
+                && isNear(x, y, cell, cell + columns)
+                && isNear(x, y, cell, cell + columns + 1);
+    }
+
+    private static boolean isNear(float[] x, float[] y, int cell, int other) {
+        return Math.hypot(x[other] - x[cell], y[other] - y[cell]) <= ArmConstants.shotMapMaxBlendMeters;
+    }
+
+    private static double blend(float[] values, int cell, double fractionX, double fractionY) {
+        return blend(values[cell], values[cell + 1], values[cell + columns], values[cell + columns + 1],
+                fractionX, fractionY);
+    }
+
+    private static double blend(double v00, double v10, double v01, double v11, double fractionX,
+            double fractionY) {
+        double bottom = v00 + (v10 - v00) * fractionX;
+        double top = v01 + (v11 - v01) * fractionX;
+        return bottom + (top - bottom) * fractionY;
+    }
+}
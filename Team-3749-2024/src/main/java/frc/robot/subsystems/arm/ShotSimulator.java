@@ -0,0 +1,100 @@
+package frc.robot.subsystems.arm;
+
+/**
+ * Flies a note with RK4 through quadratic drag and Magnus lift from the
+ * difference between the top and bottom shooter wheel speeds. Used by
+ * ArmAngleCalculator to build the shot table, which assumed a vacuum before
+ * and missed high from the podium and further out
+ */
+public class ShotSimulator {
+
+    public static final double g = 9.81;
+    public static final double airDensity = 1.2;
+    public static final double noteMassKg = 0.235;
+    // the note flies roughly flat, so this is its diameter times thickness
+    public static final double noteFrontalAreaSquareMeters = 0.356 * 0.0508;
+    public static final double dragCoefficient = 0.5;
+    // lift coefficient per unit spin ratio (surface speed / air speed)
+    public static final double liftSlope = 0.6;
+
+    public static final double timeStepSec = 0.002;
+    public static final double maxFlightSec = 3;
+
+    private static final double dragPerMeter = 0.5 * airDensity * dragCoefficient * noteFrontalAreaSquareMeters
+            / noteMassKg;
+    private static final double liftPerMeter = 0.5 * airDensity * liftSlope * noteFrontalAreaSquareMeters
+            / noteMassKg;
+
+    private final double spinSurfaceSpeed;
+
+    /**
+     * @param topSurfaceSpeed    top wheel surface speed in m/s
+     * @param bottomSurfaceSpeed bottom wheel surface speed in m/s, faster than
+     *                           the top gives backspin and lift
+     */
+    public ShotSimulator(double topSurfaceSpeed, double bottomSurfaceSpeed) {
+        // half the difference is how fast the note's edge moves relative to its center
+        this.spinSurfaceSpeed = (bottomSurfaceSpeed - topSurfaceSpeed) / 2;
+    }
+
+    /**
+     * @param launchX         horizontal distance from the launch point to the
+     *                        target
+     * @param launchY         launch height
+     * @param speed           exit speed
+     * @param elevationRad    launch angle above horizontal
+     * @return the note's height when it has traveled launchX, or NaN if it never
+     *         gets there
+     */
+    public double heightAtDistance(double launchX, double launchY, double speed, double elevationRad) {
+        // state is x, y, vx, vy
+        double[] state = { 0, launchY, speed * Math.cos(elevationRad), speed * Math.sin(elevationRad) };
+        double[] k1 = new double[4];
+        double[] k2 = new double[4];
+        double[] k3 = new double[4];
+        double[] k4 = new double[4];
+        double[] temp = new double[4];
+
+        for (double t = 0; t < maxFlightSec; t += timeStepSec) {
+            if (state[2] <= 0) {
+                return Double.NaN;
+            }
+            double previousX = state[0];
+            double previousY = state[1];
+
+            derivative(state, k1);
+            step(state, k1, timeStepSec / 2, temp);
+            derivative(temp, k2);
+            step(state, k2, timeStepSec / 2, temp);
+            derivative(temp, k3);
+            step(state, k3, timeStepSec, temp);
+            derivative(temp, k4);
+            for (int i = 0; i < 4; i++) {
+                state[i] += timeStepSec / 6 * (k1[i] + 2 * k2[i] + 2 * k3[i] + k4[i]);
+            }
+
+            if (state[0] >= launchX) {
+                double fraction = (launchX - previousX) / (state[0] - previousX);
+                return previousY + (state[1] - previousY) * fraction;
+            }
+        }
+        return Double.NaN;
+    }
+
+    private void derivative(double[] state, double[] out) {
+        double vx = state[2];
+        double vy = state[3];
+        double speed = Math.hypot(vx, vy);
+        out[0] = vx;
+        out[1] = vy;
+        // drag opposes velocity, lift is perpendicular to it
+        out[2] = -dragPerMeter * speed * vx - liftPerMeter * spinSurfaceSpeed * vy;
+        out[3] = -g - dragPerMeter * speed * vy + liftPerMeter * spinSurfaceSpeed * vx;
+    }
+
+    private static void step(double[] state, double[] derivative, double dt, double[] out) {
+        for (int i = 0; i < 4; i++) {
+            out[i] = state[i] + derivative[i] * dt;
+        }
+    }
+}
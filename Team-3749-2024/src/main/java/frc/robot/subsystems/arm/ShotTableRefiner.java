@@ -0,0 +1,166 @@
+package frc.robot.subsystems.arm;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+
+import frc.robot.utils.ShotRecorder;
+import frc.robot.utils.ShotRecorder.ShotRecord;
+
+/**
+ * Offline tool that corrects deploy/angles.csv from shots.bin files pulled off
+ * the robot. Run from the project folder with the shot files as arguments,
+ * like ArmAngleCalculator.
+ * 
+ * Every tagged shot with the arm settled on the table gives a sample of how far
+ * off the table is at that distance. Hits say the angle used was right, misses
+ * say it should have been a step higher or lower and count for less since only
+ * the direction is known. A weighted quadratic in distance is fit through the
+ * samples and added to the table, held flat past the distances that were
+ * actually shot from
+ */
+public class ShotTableRefiner {
+    // how far a miss is assumed to be off
+    public static final double miss_step_deg = 1.0;
+    public static final double miss_weight = 0.5;
+    // shots with the arm further than this from the table weren't settled
+    public static final double max_settle_error_deg = 3.0;
+    // pulls the fit toward no correction when there are few shots
+    public static final double ridge = 0.5;
+
+    public static void main(String[] args) throws IOException {
+        ArrayList<ShotRecord> shots = new ArrayList<ShotRecord>();
+        for (String path : args.length > 0 ? args : new String[] { "shots.bin" }) {
+            shots.addAll(ShotRecorder.read(new File(path)));
+        }
+
+        ArrayList<double[]> table = readTable(new File("src/main/deploy/angles.csv"));
+
+        // distance, correction in degrees, weight
+        ArrayList<double[]> samples = new ArrayList<double[]>();
+        for (ShotRecord shot : shots) {
+            if (!shot.isTagged || shot.tableArmRad < 0) {
+                continue;
+            }
+            double arm_deg = Math.toDegrees(shot.armRad);
+            if (Math.abs(arm_deg - Math.toDegrees(shot.tableArmRad)) > max_settle_error_deg) {
+                continue;
+            }
+            double current_deg = lookup(table, shot.distanceMeters);
+            if (Double.isNaN(current_deg)) {
+                continue;
+            }
+            // the shooter angle is 60 - arm angle, so raising the arm shoots lower
+            double target_deg = arm_deg + shot.tag * miss_step_deg;
+            double weight = shot.tag == ShotRecorder.tagHit ? 1 : miss_weight;
+            samples.add(new double[] { shot.distanceMeters, target_deg - current_deg, weight });
+        }
+        System.out.println(shots.size() + " shots, " + samples.size() + " usable");
+        if (samples.isEmpty()) {
+            return;
+        }
+
+        double min_dist = Double.POSITIVE_INFINITY;
+        double max_dist = Double.NEGATIVE_INFINITY;
+        double mean_dist = 0;
+        double total_weight = 0;
+        for (double[] sample : samples) {
+            min_dist = Math.min(min_dist, sample[0]);
+            max_dist = Math.max(max_dist, sample[0]);
+            mean_dist += sample[0] * sample[2];
+            total_weight += sample[2];
+        }
+        mean_dist /= total_weight;
+
+        // weighted least squares on [1, d, d^2] around the mean distance
+        double[][] normal = new double[3][4];
+        for (double[] sample : samples) {
+            double d = sample[0] - mean_dist;
+            double[] basis = { 1, d, d * d };
+            for (int row = 0; row < 3; row++) {
+                for (int col = 0; col < 3; col++) {
+                    normal[row][col] += sample[2] * basis[row] * basis[col];
+                }
+                normal[row][3] += sample[2] * basis[row] * sample[1];
+            }
+        }
+        for (int i = 0; i < 3; i++) {
+            normal[i][i] += ridge;
+        }
+        double[] coefficients = solve(normal);
+
+        String csv = "";
+        for (double[] row : table) {
+            double d = Math.max(min_dist, Math.min(max_dist, row[0])) - mean_dist;
+            double correction = coefficients[0] + coefficients[1] * d + coefficients[2] * d * d;
+            csv += row[0] + "," + round(row[1] + correction) + "\n";
+        }
+        System.out.println("correction at " + round(min_dist) + " m: "
+                + round(coefficients[0] + coefficients[1] * (min_dist - mean_dist)
+                        + coefficients[2] * Math.pow(min_dist - mean_dist, 2))
+                + " deg, at " + round(max_dist) + " m: "
+                + round(coefficients[0] + coefficients[1] * (max_dist - mean_dist)
+                        + coefficients[2] * Math.pow(max_dist - mean_dist, 2))
+                + " deg");
+
+        PrintWriter pw = new PrintWriter("src/main/java/frc/robot/subsystems/arm/angles.csv");
+        pw.print(csv);
+        pw.close();
+
+        PrintWriter pw2 = new PrintWriter("src/main/deploy/angles.csv");
+        pw2.print(csv);
+        pw2.close();
+    }
+
+    private static ArrayList<double[]> readTable(File file) throws IOException {
+        ArrayList<double[]> table = new ArrayList<double[]>();
+        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] values = line.split(",");
+                table.add(new double[] { Double.parseDouble(values[0]), Double.parseDouble(values[1]) });
+            }
+        }
+        return table;
+    }
+
+    /** @return the table angle linearly interpolated at a distance, NaN outside it */
+    private static double lookup(ArrayList<double[]> table, double distance) {
+        for (int i = 1; i < table.size(); i++) {
+            double[] low = table.get(i - 1);
+            double[] high = table.get(i);
+            if (distance >= low[0] && distance <= high[0]) {
+                return low[1] + (high[1] - low[1]) * (distance - low[0]) / (high[0] - low[0]);
+            }
+        }
+        return Double.NaN;
+    }
+
+    /** Gaussian elimination on a 3x3 augmented matrix */
+    private static double[] solve(double[][] m) {
+        for (int pivot = 0; pivot < 3; pivot++) {
+            for (int row = pivot + 1; row < 3; row++) {
+                double factor = m[row][pivot] / m[pivot][pivot];
+                for (int col = pivot; col < 4; col++) {
+                    m[row][col] -= factor * m[pivot][col];
+                }
+            }
+        }
+        double[] x = new double[3];
+        for (int row = 2; row >= 0; row--) {
+            double sum = m[row][3];
+            for (int col = row + 1; col < 3; col++) {
+                sum -= m[row][col] * x[col];
+            }
+            x[row] = sum / m[row][row];
+        }
+        return x;
+    }
+
+    public static double round(double num) {
+        return Math.round(num * 100) / 100.0;
+    }
+}
@@ -2,6 +2,7 @@ package frc.robot.subsystems.intake;
 
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.controller.SimpleMotorFeedforward;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Robot;
@@ -12,6 +13,9 @@ import frc.robot.subsystems.intake.PhotoelectricIO.PhotoelectricData;
 import frc.robot.subsystems.led.LEDConstants.LEDPattern;
 import frc.robot.subsystems.shooter.ShooterConstants.ShooterStates;
 import frc.robot.subsystems.wrist.WristConstants.WristStates;
+import frc.robot.utils.MiscConstants;
+import frc.robot.utils.MotorThermalModel;
+import frc.robot.utils.ShotRecorder;
 import frc.robot.utils.ShuffleData;
 import frc.robot.utils.SuperStructureStates;
 
@@ -25,7 +29,8 @@ public class Intake extends SubsystemBase {
     private PIDController feedback = new PIDController(
             IntakeConstants.intakePID.kP,
             IntakeConstants.intakePID.kI,
-            IntakeConstants.intakePID.kD);
+            IntakeConstants.intakePID.kD,
+            MiscConstants.controlPeriodSec);
 
     private SimpleMotorFeedforward intakeFF = new SimpleMotorFeedforward(
             0,
@@ -33,6 +38,7 @@ public class Intake extends SubsystemBase {
             0);
 
     private IntakeStates state = IntakeStates.STOP;
+    private IntakeStates previousState = IntakeStates.STOP;
 
     private ShuffleData<Double> IntakeVelocityLog = new ShuffleData<Double>(this.getName(), "intake velocity", 0.0);
     private ShuffleData<Double> IntakevoltageLog = new ShuffleData<Double>(this.getName(), "intake voltage", 0.0);
@@ -42,9 +48,26 @@ public class Intake extends SubsystemBase {
     private ShuffleData<String> stateLog = new ShuffleData<String>(this.getName(), "state",
             IntakeStates.STOP.name());
 
+    // NaN while running open loop, otherwise the velocity controlPeriodic holds
+    private double velocityGoalRadPerSec = Double.NaN;
+    private double pendingVolts = 0;
+
+    private MotorThermalModel thermal = new MotorThermalModel("intake", 40);
+
     private boolean hasPiece = false;
     private boolean indexedPiece = false;
 
+    // jam detection and the unjam routine
+    private IntakeStates resumeState = IntakeStates.STOP;
+    private double stallStartTime = Double.NaN;
+    private double unjamStartTime = 0;
+    private double lastUnjamTime = Double.NEGATIVE_INFINITY;
+    private int unjamAttempts = 0;
+    private int jamsDetected = 0;
+    private int unjamsGivenUp = 0;
+    // latched on giving up, keeps the intake from driving the note again
+    private boolean jamFault = false;
+
     public Intake() {
         if (Robot.isSimulation()) {
             intakeIO = new IntakeSim();
@@ -61,7 +84,15 @@ public class Intake extends SubsystemBase {
         return data.intakeVelocityRadPerSec;
     }
 
+    public double getCurrentAmps() {
+        return Math.abs(data.currentAmps);
+    }
+
     public void setHasPiece(boolean has) {
+        if (has && !hasPiece) {
+            // whatever was jammed isn't in the way of this one
+            jamFault = false;
+        }
         hasPiece = has;
         if (has) {
             Robot.led.setLEDPattern(LEDPattern.GREEN);
@@ -88,8 +119,17 @@ public class Intake extends SubsystemBase {
         return state;
     }
 
+    /** @return whether the unjam routine gave up and the intake is holding off */
+    public boolean hasJamFault() {
+        return jamFault;
+    }
+
+    /** Holds a velocity with the feedback in controlPeriodic */
     public void setIntakeVelocity(double velocityRadPerSec) {
+        velocityGoalRadPerSec = velocityRadPerSec;
+    }
 
+    private void runVelocityControl(double velocityRadPerSec) {
         double voltage = feedback.calculate(
                 data.intakeVelocityRadPerSec,
                 velocityRadPerSec) +
@@ -100,23 +140,70 @@ public class Intake extends SubsystemBase {
         // System.out.println(voltage);
         // System.out.println(velData.get());
 
-        setVoltage(voltage);
+        intakeIO.setVoltage(voltage);
+    }
+
+    /** Reads the intake encoder and runs velocity feedback, every control period */
+    public void controlPeriodic() {
+        intakeIO.updateControlData(data);
+        if (!Double.isNaN(velocityGoalRadPerSec)) {
+            runVelocityControl(velocityGoalRadPerSec);
+        }
     }
 
+    /** Open loop voltage, written in {@link #writeOutputs()} */
     public void setVoltage(double volts) {
-        intakeIO.setVoltage(volts);
+        velocityGoalRadPerSec = Double.NaN;
+        pendingVolts = volts;
     }
 
     public void stop() {
-        intakeIO.setVoltage(0);
+        setVoltage(0);
+    }
+
+    /** Reads everything but the intake velocity, which controlPeriodic keeps fresh */
+    public void readInputs() {
+        intakeIO.updateData(data);
+        photoeletricIO.updateData(sensorData);
+        thermal.update(data.currentAmps, data.intakeTempCelcius);
+    }
 
+    /** Sends the open loop voltage, velocity control output is sent by controlPeriodic */
+    public void writeOutputs() {
+        if (Double.isNaN(velocityGoalRadPerSec)) {
+            intakeIO.setVoltage(pendingVolts);
+        }
+        intakeIO.setCurrentLimit(thermal.getCurrentLimitAmps());
     }
 
     public void setState(IntakeStates state) {
+        // unjamming goes back to what it interrupted, so asking for that again
+        // shouldn't cut the reverse pulse short
+        if (this.state == IntakeStates.UNJAM && state == resumeState) {
+            return;
+        }
+        if (state != this.state) {
+            unjamAttempts = 0;
+        }
         this.state = state;
     }
 
     public void runIntakeState() {
+        if (state == IntakeStates.OUTTAKE) {
+            // the driver backing the note out is them dealing with the jam
+            jamFault = false;
+        }
+        if (jamFault && isDriven(state)) {
+            state = IntakeStates.STOP;
+        }
+        checkForJam();
+        // starting to feed while set up for a speaker shot is a shot, unless it's
+        // carrying on after an unjam
+        if (state == IntakeStates.FEED && previousState != IntakeStates.FEED
+                && previousState != IntakeStates.UNJAM && isSpeakerShot(Robot.state)) {
+            ShotRecorder.recordShot();
+        }
+        previousState = state;
         switch (state) {
             case STOP:
                 stop();
@@ -135,7 +222,79 @@ public class Intake extends SubsystemBase {
                 break;
             case AMP:
                 amp();
+                break;
+            case UNJAM:
+                unjam();
+                break;
+        }
+    }
+
+    /** @return whether feeding in the state shoots at the speaker, rather than amping or passing */
+    private static boolean isSpeakerShot(SuperStructureStates state) {
+        return state == SuperStructureStates.AIMBOT || state == SuperStructureStates.SUBWOOFER
+                || state == SuperStructureStates.PODIUM;
+    }
+
+    /** @return whether the state drives a note through the intake */
+    private static boolean isDriven(IntakeStates state) {
+        return state == IntakeStates.INTAKE || state == IntakeStates.INDEX || state == IntakeStates.FEED;
+    }
+
+    /**
+     * Starts the unjam routine once the intake has been stalled for
+     * IntakeConstants.jamDetectSec while it should be moving a note
+     */
+    private void checkForJam() {
+        double now = Timer.getFPGATimestamp();
+        boolean driven = isDriven(state);
+        // feeding spins the shooter up to speed first, so only indexing, which
+        // backs the note into the slow shooter rollers, needs them stuck as well
+        boolean shooterStalled = state != IntakeStates.INDEX
+                || Math.abs(Robot.shooter.getTopVelocityRadPerSec()) < IntakeConstants.jamShooterVelocityRadPerSec
+                        && Math.abs(Robot.shooter.getBottomVelocityRadPerSec())
+                                < IntakeConstants.jamShooterVelocityRadPerSec;
+        boolean stalled = driven
+                && Math.abs(data.currentAmps) > IntakeConstants.jamCurrentFraction * thermal.getCurrentLimitAmps()
+                && Math.abs(data.intakeVelocityRadPerSec) < IntakeConstants.jamVelocityRadPerSec
+                && shooterStalled;
+
+        if (!stalled) {
+            stallStartTime = Double.NaN;
+            if (driven && now - lastUnjamTime > IntakeConstants.jamClearSec) {
+                unjamAttempts = 0;
+            }
+            return;
+        }
+        if (Double.isNaN(stallStartTime)) {
+            stallStartTime = now;
+        }
+        if (now - stallStartTime < IntakeConstants.jamDetectSec) {
+            return;
+        }
+        stallStartTime = Double.NaN;
+        jamsDetected++;
+
+        if (unjamAttempts >= IntakeConstants.maxUnjamAttempts) {
+            // not clearing, leave it for the driver instead of grinding the note
+            unjamsGivenUp++;
+            unjamAttempts = 0;
+            jamFault = true;
+            state = IntakeStates.STOP;
+            Robot.led.setLEDPattern(LEDPattern.RED);
+            return;
+        }
+        unjamAttempts++;
+        resumeState = state;
+        unjamStartTime = now;
+        state = IntakeStates.UNJAM;
+    }
 
+    private void unjam() {
+        setVoltage(IntakeConstants.unjamVolts);
+        double now = Timer.getFPGATimestamp();
+        if (now - unjamStartTime > IntakeConstants.unjamReverseSec) {
+            lastUnjamTime = now;
+            state = resumeState;
         }
     }
 
@@ -188,9 +347,6 @@ public class Intake extends SubsystemBase {
 
     @Override
     public void periodic() {
-        runIntakeState();
-        intakeIO.updateData(data);
-        photoeletricIO.updateData(sensorData);
 
         IntakeVelocityLog.set(data.intakeVelocityRadPerSec);
 
@@ -203,6 +359,10 @@ public class Intake extends SubsystemBase {
         stateLog.set(state.name());
         SmartDashboard.putBoolean("has piece", hasPiece);
         SmartDashboard.putBoolean("indexed piece", indexedPiece);
+        SmartDashboard.putNumber("intake jams", jamsDetected);
+        SmartDashboard.putNumber("intake unjam attempt", unjamAttempts);
+        SmartDashboard.putNumber("intake unjams given up", unjamsGivenUp);
+        SmartDashboard.putBoolean("intake jam fault", jamFault);
 
     }
 
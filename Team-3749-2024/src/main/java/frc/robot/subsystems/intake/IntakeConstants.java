@@ -22,12 +22,30 @@ public final class IntakeConstants {
     public static final double intakeVelocityRadPerSec = 120;
     public static final double outtakeVelocityRadPerSec = -15;
 
+    // a jam is the intake pulling this fraction of its current limit without
+    // turning for jamDetectSec. The limit drops as the motor heats up, so a fixed
+    // threshold could end up above it. While indexing back into the shooter the
+    // shooter rollers have to be stuck too, otherwise the note is just seated
+    public static final double jamCurrentFraction = 0.75;
+    public static final double jamVelocityRadPerSec = 10;
+    public static final double jamShooterVelocityRadPerSec = 5;
+    public static final double jamDetectSec = 0.15;
+    // reverse pulse, then retry what was interrupted, up to maxUnjamAttempts times
+    // before giving up. Giving up stops the intake until the driver outtakes or a
+    // new note comes in
+    public static final double unjamVolts = -6;
+    public static final double unjamReverseSec = 0.15;
+    public static final int maxUnjamAttempts = 3;
+    // attempts start over once it's run this long without jamming
+    public static final double jamClearSec = 1;
+
     public enum IntakeStates {
         STOP,
         INTAKE,
         OUTTAKE,
         INDEX,
         FEED,
-        AMP
+        AMP,
+        UNJAM
     }
 }
\ No newline at end of file
@@ -27,12 +27,22 @@ public interface IntakeIO {
 
     }
 
+    /** Updates only what feedback needs. Called every control period */
+    public default void updateControlData(IntakeData data) {
+
+    }
+
     /** Run the drive motor at the specified voltage. */
     public default void setVoltage(double intakeVolts) 
     {
         
     }
 
+    /** Sets the smart current limit. Implementations only send it when it changes */
+    public default void setCurrentLimit(int amps) {
+
+    }
+
     /** Enable or disable brake mode on the drive motor. */
     public default void setBrakeMode(boolean enable) {
     }
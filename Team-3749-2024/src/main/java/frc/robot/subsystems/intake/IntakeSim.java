@@ -3,7 +3,7 @@ package frc.robot.subsystems.intake;
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.wpilibj.simulation.FlywheelSim;
-import frc.robot.utils.MiscConstants.Sim;
+import frc.robot.utils.MiscConstants;
 
 public class IntakeSim implements IntakeIO {
 
@@ -16,12 +16,19 @@ public class IntakeSim implements IntakeIO {
         
     }
 
+    @Override
+    public void updateControlData(IntakeData data)
+    {
+        // the sim is only stepped here, once every control period
+        intakeMotor.update(MiscConstants.controlPeriodSec);
+        data.intakeVelocityRadPerSec = intakeMotor.getAngularVelocityRadPerSec();
+    }
+
     @Override
     public void updateData(IntakeData data) 
     {
-        intakeMotor.update(Sim.loopPeriodSec);
         data.intakeVolts = intakeGoalVolts;
-        data.intakeVelocityRadPerSec = intakeMotor.getAngularVelocityRadPerSec();
+        data.currentAmps = Math.abs(intakeMotor.getCurrentDrawAmps());
         data.intakeTempCelcius = 0; //see FTC battery fire for guidance https://www.youtube.com/watch?v=eO9vHakAloU
     }
 
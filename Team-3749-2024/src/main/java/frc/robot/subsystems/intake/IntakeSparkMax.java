@@ -2,10 +2,13 @@ package frc.robot.subsystems.intake;
 
 import com.revrobotics.CANSparkBase.IdleMode;
 import com.revrobotics.CANSparkLowLevel.MotorType;
+import com.revrobotics.CANSparkLowLevel.PeriodicFrame;
 import com.revrobotics.CANSparkMax;
 import com.revrobotics.RelativeEncoder;
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.wpilibj.DigitalInput;
+import frc.robot.utils.MiscConstants;
+import frc.robot.utils.VoltageOutput;
 
 public class IntakeSparkMax implements IntakeIO {
 
@@ -13,31 +16,48 @@ public class IntakeSparkMax implements IntakeIO {
       IntakeConstants.intakeId,
       MotorType.kBrushless);
   private RelativeEncoder intakeEncoder = intakeMotor.getEncoder();
+  private VoltageOutput output = new VoltageOutput("intake", intakeMotor::setVoltage);
   private double intakeGoalVolts = 0;
+  private int currentLimitAmps = 40;
 
   public IntakeSparkMax() {
 
-    intakeMotor.setSmartCurrentLimit(40);
+    intakeMotor.setSmartCurrentLimit(currentLimitAmps);
     intakeMotor.setInverted(true);
     intakeEncoder.setPosition(2 * Math.PI / IntakeConstants.gearRatio);
     intakeEncoder.setVelocityConversionFactor(2 * Math.PI / IntakeConstants.gearRatio * (1.0 / 60.0));
     intakeMotor.setIdleMode(IdleMode.kCoast);
+    intakeMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus1, MiscConstants.controlStatusFramePeriodMs);
+  }
+
+  @Override
+  public void updateControlData(IntakeData data) {
+    data.intakeVelocityRadPerSec = intakeEncoder.getVelocity();
   }
 
   @Override
   public void updateData(IntakeData data) {
     data.intakeVolts = intakeMotor.getBusVoltage() * intakeMotor.getAppliedOutput();
-    data.intakeVelocityRadPerSec = intakeEncoder.getVelocity();
     data.intakeTempCelcius = intakeMotor.getMotorTemperature();
+    data.currentAmps = Math.abs(intakeMotor.getOutputCurrent());
     
 
      
   }
 
+  @Override
+  public void setCurrentLimit(int amps) {
+    if (amps == currentLimitAmps) {
+      return;
+    }
+    currentLimitAmps = amps;
+    intakeMotor.setSmartCurrentLimit(amps);
+  }
+
   @Override
   public void setVoltage(double intakeVolts) {
     intakeGoalVolts = MathUtil.clamp(intakeVolts, -12, 12);
-    intakeMotor.setVoltage(intakeGoalVolts);
+    output.setVoltage(intakeGoalVolts);
   }
   
 }
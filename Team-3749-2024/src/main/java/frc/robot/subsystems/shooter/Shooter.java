@@ -11,6 +11,8 @@ import frc.robot.subsystems.intake.IntakeConstants;
 import frc.robot.subsystems.shooter.ShooterConstants.ShooterStates;
 import frc.robot.subsystems.shooter.ShooterIO.ShooterData;
 import frc.robot.subsystems.wrist.WristConstants.WristStates;
+import frc.robot.utils.MiscConstants;
+import frc.robot.utils.MotorThermalModel;
 import frc.robot.utils.ShuffleData;
 import frc.robot.utils.UtilityFunctions;
 
@@ -24,12 +26,14 @@ public class Shooter extends SubsystemBase {
   private PIDController bottomFeedback = new PIDController(
       ShooterConstants.shooterBottomPID.kP,
       ShooterConstants.shooterBottomPID.kI,
-      ShooterConstants.shooterBottomPID.kD);
+      ShooterConstants.shooterBottomPID.kD,
+      MiscConstants.controlPeriodSec);
 
   private PIDController topFeedback = new PIDController(
       ShooterConstants.shooterTopPID.kP,
       ShooterConstants.shooterTopPID.kI,
-      ShooterConstants.shooterTopPID.kD);
+      ShooterConstants.shooterTopPID.kD,
+      MiscConstants.controlPeriodSec);
 
   private SimpleMotorFeedforward topShooterFF = new SimpleMotorFeedforward(
       0,
@@ -57,6 +61,17 @@ public class Shooter extends SubsystemBase {
       ShooterStates.STOP.name());
 
   private Timer timer = new Timer();
+  private ShooterPrespool prespool = new ShooterPrespool();
+
+  // NaN while running open loop, otherwise the velocity controlPeriodic holds
+  private double velocityGoalRadPerSec = Double.NaN;
+  // what the feedback actually tracks, ramped toward the goal
+  private double rampedVelocityRadPerSec = 0;
+  private double pendingTopVolts = 0;
+
+  private MotorThermalModel topThermal = new MotorThermalModel("shooter top", 40);
+  private MotorThermalModel bottomThermal = new MotorThermalModel("shooter bottom", 40);
+  private double pendingBottomVolts = 0;
 
   public Shooter() {
     shooterIO = new ShooterSparkMax();
@@ -76,12 +91,24 @@ public class Shooter extends SubsystemBase {
     return data.bottomShooterVelocityRadPerSec;
   }
 
+  public double getCurrentAmps() {
+    return Math.abs(data.topShooterCurrentAmps) + Math.abs(data.bottomShooterCurrentAmps);
+  }
+
   public ShooterStates getState() {
     return state;
   }
 
+  /** Holds a velocity with the feedback in controlPeriodic */
   public void setShooterVelocity(double velocityRadPerSec) {
+    if (Double.isNaN(velocityGoalRadPerSec)) {
+      // ramp from however fast the wheels are already spinning
+      rampedVelocityRadPerSec = getVelocityRadPerSec();
+    }
+    velocityGoalRadPerSec = velocityRadPerSec;
+  }
 
+  private void runVelocityControl(double velocityRadPerSec) {
     double topVoltage = topFeedback.calculate(
         data.topShooterVelocityRadPerSec,
         velocityRadPerSec) +
@@ -94,24 +121,57 @@ public class Shooter extends SubsystemBase {
 
     // double topVoltage = kVData.get() *velocityRadPerSec;
     // double bottomVoltage = kVData.get()
-    setVoltage(topVoltage, bottomVoltage);
+    shooterIO.setVoltage(topVoltage, bottomVoltage);
+  }
+
+  /** Reads the flywheel encoders and runs velocity feedback, every control period */
+  public void controlPeriodic() {
+    shooterIO.updateControlData(data);
+    if (Double.isNaN(velocityGoalRadPerSec)) {
+      return;
+    }
+    // only speeding up is ramped, and more slowly when the battery is struggling
+    double step = velocityGoalRadPerSec - rampedVelocityRadPerSec;
+    if (Math.abs(velocityGoalRadPerSec) > Math.abs(rampedVelocityRadPerSec)) {
+      double maxStep = ShooterConstants.spinUpRateRadPerSecSquared * Robot.power.getShooterScale()
+          * MiscConstants.controlPeriodSec;
+      step = Math.max(-maxStep, Math.min(maxStep, step));
+    }
+    rampedVelocityRadPerSec += step;
+    runVelocityControl(rampedVelocityRadPerSec);
   }
 
+  /** Open loop voltage, written in {@link #writeOutputs()} */
   public void setVoltage(double topVolts, double bottomVolts) {
-    shooterIO.setVoltage(topVolts, bottomVolts);
+    velocityGoalRadPerSec = Double.NaN;
+    pendingTopVolts = topVolts;
+    pendingBottomVolts = bottomVolts;
   }
 
   public void stop() {
     intakeSpedUp = false;
+    setVoltage(0, 0);
+  }
 
-    shooterIO.setVoltage(0, 0);
+  /** Reads everything but the flywheel velocities, which controlPeriodic keeps fresh */
+  public void readInputs() {
+    shooterIO.updateData(data);
+    topThermal.update(data.topShooterCurrentAmps, data.topShooterTempCelcius);
+    bottomThermal.update(data.bottomShooterCurrentAmps, data.bottomShooterTempCelcius);
+  }
 
+  /** Sends the open loop voltage, velocity control output is sent by controlPeriodic */
+  public void writeOutputs() {
+    if (Double.isNaN(velocityGoalRadPerSec)) {
+      shooterIO.setVoltage(pendingTopVolts, pendingBottomVolts);
+    }
+    shooterIO.setCurrentLimit(Math.min(topThermal.getCurrentLimitAmps(), bottomThermal.getCurrentLimitAmps()));
   }
 
   public void runShooterState() {
     switch (state) {
       case STOP:
-        stop();
+        prespoolOrStop();
         break;
       case INTAKE:
 
@@ -130,6 +190,17 @@ public class Shooter extends SubsystemBase {
     }
   }
 
+  /** Keeps the flywheels turning ahead of a shot if the pre-spool policy wants to */
+  private void prespoolOrStop() {
+    double velocityRadPerSec = prespool.calculate(getVelocityRadPerSec());
+    if (velocityRadPerSec > 0) {
+      intakeSpedUp = false;
+      setShooterVelocity(velocityRadPerSec);
+    } else {
+      stop();
+    }
+  }
+
   public void setState(ShooterStates state) {
     intakeSpedUp = false;   
     this.state = state;
@@ -170,9 +241,6 @@ public class Shooter extends SubsystemBase {
 
   @Override
   public void periodic() {
-    shooterIO.updateData(data);
-    runShooterState();
-
     topShooterVelocityLog.set(data.topShooterVelocityRadPerSec);
     bottomShooterVelocityLog.set(data.bottomShooterVelocityRadPerSec);
 
@@ -10,8 +10,20 @@ public final class ShooterConstants {
     public static final int shooterTopId = 18;
 
     public static final double shooterVelocityRadPerSec = 565;
+    public static final double wheelRadiusMeters = 0.0508;
 
     public static final double ampVelocityRadPerSec = 60;
+    // fastest the velocity goal ramps up, slowed further by the power manager
+    public static final double spinUpRateRadPerSecSquared = 1500;
+
+    // pre-spool while holding an indexed note. Idle anywhere this close to the
+    // speaker, and full speed once the robot will be in range within the spin up
+    // time plus the lead
+    public static final double prespoolIdleVelocityRadPerSec = 250;
+    public static final double prespoolIdleDistanceMeters = 8;
+    public static final double prespoolLeadSec = 0.3;
+    // don't pre-spool at all when the power manager has cut the shooter this far
+    public static final double prespoolMinShooterScale = 0.6;
     private static final PIDConstants simShooterTopPID = new PIDConstants(
             0,
 
@@ -0,0 +1,53 @@
+package frc.robot.subsystems.shooter;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.Robot;
+import frc.robot.subsystems.arm.ShootKinematics;
+
+/**
+ * Decides how fast the flywheels should already be spinning while nothing has
+ * asked for a shot. With an indexed note they idle near the speaker, and go to
+ * full speed early enough that they're there when the robot drives into range,
+ * so a shot doesn't wait on spin up. Nothing is pre-spooled while the power
+ * manager is cutting the shooter back
+ */
+public class ShooterPrespool {
+
+    /**
+     * @param currentVelocityRadPerSec how fast the flywheels are spinning now
+     * @return the velocity to hold, or 0 to let the flywheels stop
+     */
+    public double calculate(double currentVelocityRadPerSec) {
+        double velocity = 0;
+        double shooterScale = Robot.power.getShooterScale();
+        if (DriverStation.isEnabled() && Robot.intake.getIndexedPiece()
+                && shooterScale >= ShooterConstants.prespoolMinShooterScale) {
+            Translation2d toSpeaker = ShootKinematics.getSpeakerPosition()
+                    .minus(Robot.swerve.getPose().getTranslation());
+            double distance = toSpeaker.getNorm();
+            ChassisSpeeds speeds = Robot.swerve.getFieldRelativeChassisSpeeds();
+            double closingSpeed = distance > 1e-6
+                    ? (speeds.vxMetersPerSecond * toSpeaker.getX() + speeds.vyMetersPerSecond * toSpeaker.getY())
+                            / distance
+                    : 0;
+            double distanceToRange = Math.max(0, distance - ShootKinematics.getMaxDistance());
+
+            double spinUpSec = Math.max(0, ShooterConstants.shooterVelocityRadPerSec - currentVelocityRadPerSec)
+                    / (ShooterConstants.spinUpRateRadPerSecSquared * shooterScale);
+            boolean inRangeSoon = distanceToRange == 0
+                    || (closingSpeed > 0.1
+                            && distanceToRange / closingSpeed < spinUpSec + ShooterConstants.prespoolLeadSec);
+
+            if (inRangeSoon) {
+                velocity = ShooterConstants.shooterVelocityRadPerSec;
+            } else if (distance < ShooterConstants.prespoolIdleDistanceMeters) {
+                velocity = ShooterConstants.prespoolIdleVelocityRadPerSec;
+            }
+        }
+        SmartDashboard.putNumber("shooter prespool velocity", velocity);
+        return velocity;
+    }
+}
@@ -3,7 +3,7 @@ package frc.robot.subsystems.shooter;
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.wpilibj.simulation.FlywheelSim;
-import frc.robot.utils.MiscConstants.Sim;
+import frc.robot.utils.MiscConstants;
 
 public class ShooterSim implements ShooterIO {
 
@@ -19,18 +19,26 @@ public class ShooterSim implements ShooterIO {
     }
 
     @Override
-    public void updateData(ShooterData data) 
+    public void updateControlData(ShooterData data)
     {
-        bottomShooter.update(Sim.loopPeriodSec);
-        topShooter.update(Sim.loopPeriodSec);
+        // the sim is only stepped here, once every control period
+        bottomShooter.update(MiscConstants.controlPeriodSec);
+        topShooter.update(MiscConstants.controlPeriodSec);
 
-        data.bottomShooterVolts = bottomShooterGoalVolts;
         data.bottomShooterVelocityRadPerSec = bottomShooter.getAngularVelocityRadPerSec();
+        data.topShooterVelocityRadPerSec = topShooter.getAngularVelocityRadPerSec();
+    }
+
+    @Override
+    public void updateData(ShooterData data) 
+    {
+        data.bottomShooterVolts = bottomShooterGoalVolts;
         data.bottomShooterTempCelcius = 0;
+        data.bottomShooterCurrentAmps = Math.abs(bottomShooter.getCurrentDrawAmps());
 
         data.topShooterVolts = topShooterGoalVolts;
-        data.topShooterVelocityRadPerSec = topShooter.getAngularVelocityRadPerSec();
         data.topShooterTempCelcius = 0;
+        data.topShooterCurrentAmps = Math.abs(topShooter.getCurrentDrawAmps());
     }
 
    @Override
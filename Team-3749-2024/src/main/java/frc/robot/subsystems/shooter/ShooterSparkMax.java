@@ -6,8 +6,11 @@ import com.revrobotics.CANSparkMax;
 import com.revrobotics.RelativeEncoder;
 import com.revrobotics.CANSparkBase.IdleMode;
 import com.revrobotics.CANSparkLowLevel.MotorType;
+import com.revrobotics.CANSparkLowLevel.PeriodicFrame;
 
 import edu.wpi.first.math.MathUtil;
+import frc.robot.utils.MiscConstants;
+import frc.robot.utils.VoltageOutput;
 
 public class ShooterSparkMax implements ShooterIO {
 
@@ -17,15 +20,19 @@ public class ShooterSparkMax implements ShooterIO {
     private RelativeEncoder topEncoder = topShooter.getEncoder();
     private RelativeEncoder bottomEncoder = bottomShooter.getEncoder();
 
+    private VoltageOutput topOutput = new VoltageOutput("shooter top", topShooter::setVoltage);
+    private VoltageOutput bottomOutput = new VoltageOutput("shooter bottom", bottomShooter::setVoltage);
+
     private double bottomShooterGoalVolts = 0;
+    private int currentLimitAmps = 40;
     private double topShooterGoalVolts = 0;
 
     public ShooterSparkMax() {
         bottomShooter.setInverted(true);
 
 
-        topShooter.setSmartCurrentLimit(40);
-        bottomShooter.setSmartCurrentLimit(40);
+        topShooter.setSmartCurrentLimit(currentLimitAmps);
+        bottomShooter.setSmartCurrentLimit(currentLimitAmps);
 
         bottomEncoder.setVelocityConversionFactor((2 * Math.PI) / 60);
         topEncoder.setVelocityConversionFactor((2 * Math.PI) / 60);
@@ -37,31 +44,48 @@ public class ShooterSparkMax implements ShooterIO {
         bottomShooter.setIdleMode(IdleMode.kCoast); 
         bottomShooter.setIdleMode(IdleMode.kBrake);
         topShooter.setIdleMode(IdleMode.kBrake);
+
+        topShooter.setPeriodicFramePeriod(PeriodicFrame.kStatus1, MiscConstants.controlStatusFramePeriodMs);
+        bottomShooter.setPeriodicFramePeriod(PeriodicFrame.kStatus1, MiscConstants.controlStatusFramePeriodMs);
     }
 
 
+    @Override
+    public void updateControlData(ShooterData data) {
+        data.topShooterVelocityRadPerSec = topEncoder.getVelocity();
+        data.bottomShooterVelocityRadPerSec = bottomEncoder.getVelocity();
+    }
+
     @Override
     public void updateData(ShooterData data) {
         data.topShooterVolts = topShooter.getBusVoltage() * topShooter.getAppliedOutput();
-        data.topShooterVelocityRadPerSec = topEncoder.getVelocity();
         
         data.topShooterTempCelcius = topShooter.getMotorTemperature();
         data.topShooterPositionRad = topEncoder.getPosition();
         data.topShooterCurrentAmps = topShooter.getOutputCurrent();
 
         data.bottomShooterVolts = bottomShooter.getBusVoltage() * bottomShooter.getAppliedOutput();
-        data.bottomShooterVelocityRadPerSec = bottomEncoder.getVelocity();
         data.bottomShooterTempCelcius = bottomShooter.getMotorTemperature();
         data.bottomShooterPositionRad = bottomEncoder.getPosition();
         data.bottomShooterCurrentAmps = bottomShooter.getOutputCurrent();
     }
 
+    @Override
+    public void setCurrentLimit(int amps) {
+        if (amps == currentLimitAmps) {
+            return;
+        }
+        currentLimitAmps = amps;
+        topShooter.setSmartCurrentLimit(amps);
+        bottomShooter.setSmartCurrentLimit(amps);
+    }
+
     @Override
     public void setVoltage(double topShooterVolts, double bottomShooterVolts) {
         bottomShooterGoalVolts = MathUtil.clamp(bottomShooterVolts, -12, 12);
         topShooterGoalVolts = MathUtil.clamp(topShooterVolts, -12, 12);
-        topShooter.setVoltage(topShooterGoalVolts);
-        bottomShooter.setVoltage(bottomShooterGoalVolts);
+        topOutput.setVoltage(topShooterGoalVolts);
+        bottomOutput.setVoltage(bottomShooterGoalVolts);
     }
 
 }
@@ -7,6 +7,10 @@ public interface GyroIO {
     public double yawDeg = 0;
     public double pitchDeg = 0;
     public double rollDeg = 0;
+    public double yawRateDegPerSec = 0;
+    // robot relative, in g
+    public double accelXG = 0;
+    public double accelYG = 0;
   }
 
   public default void updateData(GyroData data) {
@@ -0,0 +1,141 @@
+package frc.robot.subsystems.swerve;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+
+/**
+ * Fixed size ring buffer of timestamped poses and field relative velocities,
+ * kept in primitive arrays. Looking up a time binary searches for the two
+ * samples around it and interpolates between them. Times past the newest
+ * sample are extrapolated from it at its velocity, which is how aiming gets
+ * where the robot will be when the note leaves
+ */
+public class PoseHistory {
+
+    private final int capacity;
+    private final double[] time;
+    private final double[] x;
+    private final double[] y;
+    private final double[] theta;
+    private final double[] vx;
+    private final double[] vy;
+    private final double[] omega;
+
+    private int newest = -1;
+    private int size = 0;
+
+    public PoseHistory(int capacity) {
+        this.capacity = capacity;
+        time = new double[capacity];
+        x = new double[capacity];
+        y = new double[capacity];
+        theta = new double[capacity];
+        vx = new double[capacity];
+        vy = new double[capacity];
+        omega = new double[capacity];
+    }
+
+    /** Samples older than the newest one are dropped */
+    public void add(double timestamp, Pose2d pose, ChassisSpeeds fieldSpeeds) {
+        if (size > 0 && timestamp <= time[newest]) {
+            return;
+        }
+        newest = (newest + 1) % capacity;
+        size = Math.min(size + 1, capacity);
+        time[newest] = timestamp;
+        x[newest] = pose.getX();
+        y[newest] = pose.getY();
+        theta[newest] = pose.getRotation().getRadians();
+        vx[newest] = fieldSpeeds.vxMetersPerSecond;
+        vy[newest] = fieldSpeeds.vyMetersPerSecond;
+        omega[newest] = fieldSpeeds.omegaRadiansPerSecond;
+    }
+
+    public void clear() {
+        newest = -1;
+        size = 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public double getOldestTime() {
+        return time[slot(0)];
+    }
+
+    public double getNewestTime() {
+        return time[newest];
+    }
+
+    /** @return ring index of the i-th oldest sample */
+    private int slot(int i) {
+        return (newest - size + 1 + i + capacity) % capacity;
+    }
+
+    /** @return the i of the newest sample at or before the timestamp, or -1 if it's older than all of them */
+    private int search(double timestamp) {
+        int low = 0;
+        int high = size - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (time[slot(mid)] <= timestamp) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return the pose at the timestamp, held at the oldest sample before the
+     *         history starts and extrapolated after it ends, or null if empty
+     */
+    public Pose2d getPoseAt(double timestamp) {
+        if (size == 0) {
+            return null;
+        }
+        int i = search(timestamp);
+        if (i < 0) {
+            int oldest = slot(0);
+            return new Pose2d(x[oldest], y[oldest], new Rotation2d(theta[oldest]));
+        }
+        int a = slot(i);
+        if (i == size - 1) {
+            // straight line at the last velocity, fine over the fraction of a
+            // second this is used for
+            double dt = timestamp - time[a];
+            return new Pose2d(x[a] + vx[a] * dt, y[a] + vy[a] * dt, new Rotation2d(theta[a] + omega[a] * dt));
+        }
+        int b = slot(i + 1);
+        double t = (timestamp - time[a]) / (time[b] - time[a]);
+        return new Pose2d(
+                x[a] + (x[b] - x[a]) * t,
+                y[a] + (y[b] - y[a]) * t,
+                new Rotation2d(theta[a] + MathUtil.angleModulus(theta[b] - theta[a]) * t));
+    }
+
+    /** @return field relative velocity at the timestamp, zero if empty */
+    public ChassisSpeeds getVelocityAt(double timestamp) {
+        if (size == 0) {
+            return new ChassisSpeeds();
+        }
+        int i = search(timestamp);
+        if (i < 0 || i == size - 1) {
+            int a = i < 0 ? slot(0) : newest;
+            return new ChassisSpeeds(vx[a], vy[a], omega[a]);
+        }
+        int a = slot(i);
+        int b = slot(i + 1);
+        double t = (timestamp - time[a]) / (time[b] - time[a]);
+        return new ChassisSpeeds(
+                vx[a] + (vx[b] - vx[a]) * t,
+                vy[a] + (vy[b] - vy[a]) * t,
+                omega[a] + (omega[b] - omega[a]) * t);
+    }
+}
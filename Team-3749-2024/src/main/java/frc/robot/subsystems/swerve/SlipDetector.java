@@ -0,0 +1,128 @@
+package frc.robot.subsystems.swerve;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.subsystems.swerve.GyroIO.GyroData;
+import frc.robot.subsystems.swerve.SwerveConstants.DriveConstants;
+
+/**
+ * Checks each module against the chassis motion the other three and the gyro
+ * rate imply. The worst module, if it's off by more than the threshold, is
+ * treated as slipping and its distance for odometry is replaced with what it
+ * should have rolled. More than one slipping module, or an accelerometer spike,
+ * means the wheels can't be trusted at all for a moment, which is reported as
+ * a collision so vision can take over
+ */
+public class SlipDetector {
+
+    private static final double[] moduleX = { DriveConstants.wheelBase / 2, DriveConstants.wheelBase / 2,
+            -DriveConstants.wheelBase / 2, -DriveConstants.wheelBase / 2 };
+    private static final double[] moduleY = { DriveConstants.trackWidth / 2, -DriveConstants.trackWidth / 2,
+            DriveConstants.trackWidth / 2, -DriveConstants.trackWidth / 2 };
+
+    private final double[] velocityX = new double[4];
+    private final double[] velocityY = new double[4];
+    private final double[] lastMeasuredDistance = new double[4];
+    private final double[] odometryDistance = new double[4];
+    private final SwerveModulePosition[] odometryPositions = new SwerveModulePosition[4];
+    private final boolean[] slipping = new boolean[4];
+
+    private double lastUpdateTime = Double.NaN;
+    private double lastCollisionTime = Double.NEGATIVE_INFINITY;
+
+    public SlipDetector(SwerveModule[] modules) {
+        for (int i = 0; i < 4; i++) {
+            SwerveModulePosition position = modules[i].getPosition();
+            lastMeasuredDistance[i] = position.distanceMeters;
+            odometryDistance[i] = position.distanceMeters;
+            odometryPositions[i] = new SwerveModulePosition(position.distanceMeters, position.angle);
+        }
+    }
+
+    /** Call once per loop after the modules and gyro have been read */
+    public void update(SwerveModule[] modules, GyroData gyroData) {
+        double now = Timer.getFPGATimestamp();
+        double dt = Double.isNaN(lastUpdateTime) ? 0 : now - lastUpdateTime;
+        lastUpdateTime = now;
+
+        double omega = Math.toRadians(gyroData.yawRateDegPerSec);
+        double sumX = 0;
+        double sumY = 0;
+        for (int i = 0; i < 4; i++) {
+            SwerveModuleState state = modules[i].getState();
+            velocityX[i] = state.speedMetersPerSecond * state.angle.getCos();
+            velocityY[i] = state.speedMetersPerSecond * state.angle.getSin();
+            // chassis center velocity this module implies
+            sumX += velocityX[i] + omega * moduleY[i];
+            sumY += velocityY[i] - omega * moduleX[i];
+        }
+        double chassisSpeed = Math.hypot(sumX, sumY) / 4;
+        double threshold = DriveConstants.slipThresholdMetersPerSec
+                + DriveConstants.slipThresholdFraction * chassisSpeed;
+
+        int worst = -1;
+        double worstResidual = 0;
+        int slipCount = 0;
+        for (int i = 0; i < 4; i++) {
+            // leave this module out of the chassis estimate it's checked against
+            double othersX = (sumX - velocityX[i] - omega * moduleY[i]) / 3;
+            double othersY = (sumY - velocityY[i] + omega * moduleX[i]) / 3;
+            double expectedX = othersX - omega * moduleY[i];
+            double expectedY = othersY + omega * moduleX[i];
+            double residual = Math.hypot(velocityX[i] - expectedX, velocityY[i] - expectedY);
+            slipping[i] = residual > threshold;
+            if (slipping[i]) {
+                slipCount++;
+            }
+            if (residual > worstResidual) {
+                worstResidual = residual;
+                worst = i;
+            }
+        }
+        if (worstResidual <= threshold) {
+            worst = -1;
+        }
+
+        for (int i = 0; i < 4; i++) {
+            SwerveModulePosition position = modules[i].getPosition();
+            double delta = position.distanceMeters - lastMeasuredDistance[i];
+            lastMeasuredDistance[i] = position.distanceMeters;
+            if (i == worst && slipCount == 1) {
+                double othersX = (sumX - velocityX[i] - omega * moduleY[i]) / 3;
+                double othersY = (sumY - velocityY[i] + omega * moduleX[i]) / 3;
+                Rotation2d angle = position.angle;
+                // how far the wheel should have rolled along where it's pointed
+                delta = ((othersX - omega * moduleY[i]) * angle.getCos()
+                        + (othersY + omega * moduleX[i]) * angle.getSin()) * dt;
+            }
+            odometryDistance[i] += delta;
+            odometryPositions[i] = new SwerveModulePosition(odometryDistance[i], position.angle);
+        }
+
+        double accelerationG = Math.hypot(gyroData.accelXG, gyroData.accelYG);
+        if (accelerationG > DriveConstants.collisionThresholdG || slipCount > 1) {
+            lastCollisionTime = now;
+        }
+
+        SmartDashboard.putBooleanArray("swerve slipping", slipping);
+        SmartDashboard.putNumber("swerve worst slip", worstResidual);
+        SmartDashboard.putBoolean("swerve collision", isRecentCollision());
+    }
+
+    /** @return module positions with slipping wheels corrected, for odometry */
+    public SwerveModulePosition[] getOdometryPositions() {
+        return odometryPositions;
+    }
+
+    public boolean isSlipping(int index) {
+        return slipping[index];
+    }
+
+    /** @return whether odometry took a hit recently enough that vision should lead */
+    public boolean isRecentCollision() {
+        return Timer.getFPGATimestamp() - lastCollisionTime < DriveConstants.collisionVisionTrustSec;
+    }
+}
@@ -5,13 +5,17 @@
 package frc.robot.subsystems.swerve;
 
 import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.Matrix;
 import edu.wpi.first.math.VecBuilder;
 import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
 import edu.wpi.first.math.geometry.*;
 import edu.wpi.first.math.kinematics.*;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.*;
 import frc.robot.Robot;
@@ -19,6 +23,7 @@ import frc.robot.subsystems.swerve.GyroIO.GyroData;
 import frc.robot.subsystems.swerve.SwerveConstants.DriveConstants;
 import frc.robot.subsystems.swerve.real.*;
 import frc.robot.subsystems.swerve.sim.*;
+import frc.robot.subsystems.vision.VisionConstants;
 import frc.robot.utils.*;
 
 /***
@@ -37,8 +42,13 @@ public class Swerve extends SubsystemBase {
 
   private GyroIO gyro;
   private GyroData gyroData = new GyroData();
+  private SlipDetector slipDetector;
   // equivilant to a odometer, but also intakes vision
   private SwerveDrivePoseEstimator swerveDrivePoseEstimator;
+  // wheels only, stands in for where the robot really is in sim so the
+  // simulated cameras aren't looking from a pose vision already corrected
+  private SwerveDriveOdometry simOdometry;
+  private final PoseHistory poseHistory = new PoseHistory(DriveConstants.poseHistoryCapacity);
 
   private boolean isEnabled = false;
 
@@ -80,6 +90,7 @@ public class Swerve extends SubsystemBase {
 
   private Pose2d desiredPose = new Pose2d(0, 0, Rotation2d.fromDegrees(0));
   private double prevVelocity = 0;
+
   private boolean utilizeVision = true;
 
   public Swerve() {
@@ -97,20 +108,20 @@ public class Swerve extends SubsystemBase {
       }
     }
 
+    slipDetector = new SlipDetector(modules);
     swerveDrivePoseEstimator = new SwerveDrivePoseEstimator(
         DriveConstants.driveKinematics,
         new Rotation2d(0),
-        new SwerveModulePosition[] {
-            modules[0].getPosition(),
-            modules[1].getPosition(),
-            modules[2].getPosition(),
-            modules[3].getPosition()
-        },
+        slipDetector.getOdometryPositions(),
         new Pose2d(new Translation2d(0, 0), new Rotation2d(0)),
         VecBuilder.fill(0.04, 0.04, 0.00),
         VecBuilder.fill(0.965, 0.965, 5000));
 
     if (Robot.isSimulation()) {
+      simOdometry = new SwerveDriveOdometry(
+          DriveConstants.driveKinematics,
+          new Rotation2d(0),
+          slipDetector.getOdometryPositions());
       // resetOdometry(new Pose2d(new Translation2d(1, 1), new
       // Rotation2d(Units.degreesToRadians(270))));
     }
@@ -120,10 +131,24 @@ public class Swerve extends SubsystemBase {
 
   }
 
+  /**
+   * @param discretize whether to correct for the speeds being held over a whole
+   *                   loop, see DriveConstants.discretizeChassisSpeeds
+   * @return module states for robot relative chassis speeds, before
+   *         desaturating
+   */
+  public static SwerveModuleState[] getModuleStates(ChassisSpeeds chassisSpeeds, boolean discretize) {
+    if (discretize) {
+      // the speeds are held for a whole loop, so pick the straight line twist
+      // that ends up where translating and rotating together should
+      chassisSpeeds = ChassisSpeeds.discretize(chassisSpeeds, Robot.kDefaultPeriod);
+    }
+    return DriveConstants.driveKinematics.toSwerveModuleStates(chassisSpeeds);
+  }
+
   public void setChassisSpeeds(ChassisSpeeds chassisSpeeds) {
     // Convert chassis speeds to individual module states
-    SwerveModuleState[] moduleStates = DriveConstants.driveKinematics.toSwerveModuleStates(
-        chassisSpeeds);
+    SwerveModuleState[] moduleStates = getModuleStates(chassisSpeeds, DriveConstants.discretizeChassisSpeeds);
     // take shortest path to destination
     if (DriverStation.isTeleopEnabled()) {
 
@@ -157,6 +182,16 @@ public class Swerve extends SubsystemBase {
     return speeds;
   }
 
+  public ChassisSpeeds getFieldRelativeChassisSpeeds() {
+    SwerveModuleState[] states = new SwerveModuleState[4];
+    for (int i = 0; i < 4; i++) {
+      states[i] = modules[i].getState();
+    }
+    return ChassisSpeeds.fromRobotRelativeSpeeds(
+        DriveConstants.driveKinematics.toChassisSpeeds(states),
+        getRotation2d());
+  }
+
   public Rotation2d getRotation2d() {
     Rotation2d rotation = swerveDrivePoseEstimator
         .getEstimatedPosition()
@@ -176,6 +211,28 @@ public class Swerve extends SubsystemBase {
     // return new Pose2d(new Translation2d(2, 4.9), new Rotation2d(Math.PI/2));
   }
 
+  /**
+   * @return the estimated pose at an FPGA timestamp, interpolated from the
+   *         history, or extrapolated at the latest velocity for a future time
+   */
+  public Pose2d getPoseAt(double timestamp) {
+    Pose2d pose = poseHistory.getPoseAt(timestamp);
+    return pose == null ? getPose() : pose;
+  }
+
+  /** @return where the robot will be in secondsAhead if it keeps its velocity */
+  public Pose2d getPredictedPose(double secondsAhead) {
+    return getPoseAt(Timer.getFPGATimestamp() + secondsAhead);
+  }
+
+  /** @return the wheel only pose in sim, or the estimated pose on the robot */
+  public Pose2d getSimulatedPose() {
+    if (simOdometry == null) {
+      return getPose();
+    }
+    return simOdometry.getPoseMeters();
+  }
+
   public SwerveDrivePoseEstimator getPoseEstimator() {
     return swerveDrivePoseEstimator;
   }
@@ -185,13 +242,13 @@ public class Swerve extends SubsystemBase {
     Rotation2d gyroHeading = new Rotation2d(gyroData.yawDeg / 180 * Math.PI);
     swerveDrivePoseEstimator.resetPosition(
         gyroHeading,
-        new SwerveModulePosition[] {
-            modules[0].getPosition(),
-            modules[1].getPosition(),
-            modules[2].getPosition(),
-            modules[3].getPosition()
-        },
+        slipDetector.getOdometryPositions(),
         pose);
+    // the old poses are in a frame that no longer exists
+    poseHistory.clear();
+    if (simOdometry != null) {
+      simOdometry.resetPosition(gyroHeading, slipDetector.getOdometryPositions(), pose);
+    }
 
     desiredOdometryLog.set(
         new Double[] {
@@ -210,19 +267,34 @@ public class Swerve extends SubsystemBase {
 
     swerveDrivePoseEstimator.update(
         gyroHeading,
-        new SwerveModulePosition[] {
-            modules[0].getPosition(),
-            modules[1].getPosition(),
-            modules[2].getPosition(),
-            modules[3].getPosition()
-        });
+        slipDetector.getOdometryPositions());
+    if (simOdometry != null) {
+      simOdometry.update(gyroHeading, slipDetector.getOdometryPositions());
+    }
   }
 
-  public void visionUpdateOdometry(LimelightHelpers.LimelightPose visionPose) {
+  /**
+   * Adds a vision pose with its own standard deviations, like the joint camera
+   * solve's covariance
+   */
+  public void visionUpdateOdometry(LimelightHelpers.LimelightPose visionPose, Matrix<N3, N1> stdDevs) {
+    // right after a hit the wheels are the thing we trust least, so lean on
+    // vision even if it was turned off, at least as much as the collision std
+    // devs but never less than the solve already does
+    if (slipDetector.isRecentCollision()) {
+      Matrix<N3, N1> collisionStdDevs = stdDevs.copy();
+      for (int i = 0; i < 3; i++) {
+        collisionStdDevs.set(i, 0,
+            Math.min(stdDevs.get(i, 0), VisionConstants.COLLISION_VISION_STANDARD_DEVIATIONS.get(i, 0)));
+      }
+      swerveDrivePoseEstimator.addVisionMeasurement(visionPose.pose,
+          visionPose.timestamp, collisionStdDevs);
+      return;
+    }
     if (utilizeVision) {
       SmartDashboard.putBoolean("use vision", utilizeVision);
       swerveDrivePoseEstimator.addVisionMeasurement(visionPose.pose,
-          visionPose.timestamp);
+          visionPose.timestamp, stdDevs);
     }
   }
 
@@ -260,31 +332,57 @@ public class Swerve extends SubsystemBase {
 
   public void resetGyro() {
     gyro.resetGyro();
-    if (MiscConstants.isRedAlliance()) {
-
-      swerveDrivePoseEstimator.resetPosition(new Rotation2d(), new SwerveModulePosition[] {
-          modules[0].getPosition(),
-          modules[1].getPosition(),
-          modules[2].getPosition(),
-          modules[3].getPosition()
-      }, new Pose2d(swerveDrivePoseEstimator.getEstimatedPosition().getTranslation(), Rotation2d.fromDegrees(180)));
-    } else {
-      swerveDrivePoseEstimator.resetPosition(new Rotation2d(), new SwerveModulePosition[] {
-          modules[0].getPosition(),
-          modules[1].getPosition(),
-          modules[2].getPosition(),
-          modules[3].getPosition()
-      }, new Pose2d(swerveDrivePoseEstimator.getEstimatedPosition().getTranslation(), new Rotation2d()));
+    Rotation2d heading = MiscConstants.isRedAlliance() ? Rotation2d.fromDegrees(180) : new Rotation2d();
+    swerveDrivePoseEstimator.resetPosition(new Rotation2d(), slipDetector.getOdometryPositions(),
+        new Pose2d(swerveDrivePoseEstimator.getEstimatedPosition().getTranslation(), heading));
+    // the old headings are off the new zero
+    poseHistory.clear();
+    // the sim odometry reads the same gyro, so it needs moving onto the new zero too
+    if (simOdometry != null) {
+      simOdometry.resetPosition(new Rotation2d(), slipDetector.getOdometryPositions(),
+          new Pose2d(simOdometry.getPoseMeters().getTranslation(), heading));
     }
   }
 
   public double totalAcceleration = 0;
 
-  @Override
-  public void periodic() {
+  /** Reads the gyro and modules and updates odometry, before anything uses the pose */
+  public void readInputs() {
     gyro.updateData(gyroData);
+    for (int i = 0; i < 4; i++) {
+      modules[i].readInputs();
+    }
+    slipDetector.update(modules, gyroData);
     updateOdometry();
+    poseHistory.add(Timer.getFPGATimestamp(), getPose(), getFieldRelativeChassisSpeeds());
+  }
+
+  /** Sends every module's voltages at once, within the power manager's limit */
+  public void writeOutputs() {
+    double maxDriveVolts = DriveConstants.maxMotorVolts * Robot.power.getDriveScale();
+    for (int i = 0; i < 4; i++) {
+      modules[i].writeOutputs(maxDriveVolts);
+    }
+  }
 
+  public double getDriveCurrentAmps() {
+    double current = 0;
+    for (int i = 0; i < 4; i++) {
+      current += Math.abs(modules[i].getModuleData().driveCurrentAmps);
+    }
+    return current;
+  }
+
+  public double getTurnCurrentAmps() {
+    double current = 0;
+    for (int i = 0; i < 4; i++) {
+      current += Math.abs(modules[i].getModuleData().turnCurrentAmps);
+    }
+    return current;
+  }
+
+  @Override
+  public void periodic() {
     for (int i = 0; i < 4; i++) {
       modules[i].periodic();
     }
@@ -332,7 +430,6 @@ public class Swerve extends SubsystemBase {
         Math.pow(getChassisSpeeds().vyMetersPerSecond, 2));
 
     SmartDashboard.putNumber("robot velocity", robotVelocity);
-
     SmartDashboard.putNumber("robot acceleration", (robotVelocity - prevVelocity) / .02);
     prevVelocity = robotVelocity;
 
@@ -48,6 +48,12 @@ public class SwerveConstants {
                                 ? kADrivingReal
                                 : 0;
 
+                // volts per rad/s of steering, from the NEO free speed through the turn gearing
+                public static final double kVTurning = 12.0
+                                / (Units.rotationsPerMinuteToRadiansPerSecond(5676) / turnMotorGearRatio);
+                // feedback on steering rate error, only while the module is being steered
+                public static final double kPTurningVelocity = 0.05;
+
         }
 
         public static final class DriveConstants {
@@ -141,6 +147,24 @@ public class SwerveConstants {
                 public static final double toleranceM_Misc = 0.02;
                 public static final double toleranceRad_Misc = Math.PI / 750;
 
+                // a module is slipping when it's off from what the other three and the
+                // gyro say by more than this plus a fraction of the chassis speed
+                public static final double slipThresholdMetersPerSec = 0.35;
+                public static final double slipThresholdFraction = 0.15;
+                // horizontal acceleration that counts as being hit
+                public static final double collisionThresholdG = 1.2;
+                // how long vision is trusted more after a collision
+                public static final double collisionVisionTrustSec = 2;
+
+                // discretize chassis speeds over the loop and feed forward the module
+                // steering rate, so driving while rotating goes where it's pointed
+                public static final boolean discretizeChassisSpeeds = true;
+                public static final boolean useSteeringFeedforward = true;
+
+                // samples of past poses kept for looking up where the robot was, a
+                // bit over 2.5 seconds at the main loop rate
+                public static final int poseHistoryCapacity = 128;
+
                 // will eventally be easier to change values from here than poke around through
                 // files
         }
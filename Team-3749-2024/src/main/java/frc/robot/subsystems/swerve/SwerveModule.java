@@ -4,9 +4,12 @@ import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.controller.SimpleMotorFeedforward;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.*;
+import edu.wpi.first.wpilibj.Timer;
 import frc.robot.Robot;
+import frc.robot.subsystems.swerve.SwerveConstants.DriveConstants;
 import frc.robot.subsystems.swerve.SwerveConstants.ModuleConstants;
 import frc.robot.subsystems.swerve.SwerveModuleIO.ModuleData;
+import frc.robot.utils.MotorThermalModel;
 import frc.robot.utils.ShuffleData;
 
 public class SwerveModule {
@@ -19,6 +22,12 @@ public class SwerveModule {
     private final SimpleMotorFeedforward drivingFeedFordward;
 
     private ModuleData moduleData = new ModuleData();
+    private double pendingDriveVolts = 0;
+    private double pendingTurnVolts = 0;
+    private double lastDesiredStateTime = Double.NaN;
+
+    private MotorThermalModel driveThermal;
+    private MotorThermalModel turnThermal;
     private SwerveModuleIO moduleIO;
 
     // private double previousSetpointVelocity = 0;
@@ -48,6 +57,8 @@ public class SwerveModule {
         }
 
         moduleIO = SwerveModule;
+        driveThermal = new MotorThermalModel(name + " drive", DriveConstants.driveMotorStallLimit);
+        turnThermal = new MotorThermalModel(name + " turn", DriveConstants.turnMotorStallLimit);
 
         drivingPidController = new PIDController(ModuleConstants.kPDriving, 0, 0);
         drivingFeedFordward = new SimpleMotorFeedforward(ModuleConstants.kSDriving,
@@ -103,10 +114,23 @@ public class SwerveModule {
             state.speedMetersPerSecond = 0;
         }
 
+        double now = Timer.getFPGATimestamp();
+        double dt = now - lastDesiredStateTime;
+        lastDesiredStateTime = now;
+        double steeringRateRadPerSec = 0;
+        if (DriveConstants.useSteeringFeedforward && dt > 0 && dt < 0.1 && state.speedMetersPerSecond != 0) {
+            double deltaRad = state.angle.minus(desiredState.angle).getRadians();
+            // the optimizer flipping the wheel around isn't steering
+            if (Math.abs(deltaRad) > Math.PI / 2) {
+                deltaRad -= Math.copySign(Math.PI, deltaRad);
+            }
+            steeringRateRadPerSec = deltaRad / dt;
+        }
+
         this.desiredState = state;
 
         setDriveSpeed(state.speedMetersPerSecond);
-        setTurnPosition(state.angle.getRadians());
+        setTurnPosition(state.angle.getRadians(), steeringRateRadPerSec);
 
     }
 
@@ -131,19 +155,44 @@ public class SwerveModule {
     }
 
     public void setTurnPosition(double positionRad) {
+        setTurnPosition(positionRad, 0);
+    }
+
+    /** @param velocityRadPerSec how fast the setpoint is moving, fed forward */
+    public void setTurnPosition(double positionRad, double velocityRadPerSec) {
         double turning_volts = turningPidController.calculate(moduleData.turnAbsolutePositionRad,
                 positionRad);
+        if (velocityRadPerSec != 0) {
+            turning_volts += ModuleConstants.kVTurning * velocityRadPerSec
+                    + ModuleConstants.kPTurningVelocity * (velocityRadPerSec - moduleData.turnVelocityRadPerSec);
+        }
         // Make a drive PID Controller
         setTurnVoltage(turning_volts);
     }
 
+    /** Written in {@link #writeOutputs()} */
     public void setDriveVoltage(double volts) {
-        moduleIO.setDriveVoltage(volts);
+        pendingDriveVolts = volts;
 
     }
 
+    /** Written in {@link #writeOutputs()} */
     public void setTurnVoltage(double volts) {
-        moduleIO.setTurnVoltage(volts);
+        pendingTurnVolts = volts;
+    }
+
+    public void readInputs() {
+        moduleIO.updateData(moduleData);
+        driveThermal.update(moduleData.driveCurrentAmps, moduleData.driveTempCelcius);
+        turnThermal.update(moduleData.turnCurrentAmps, moduleData.turnTempCelcius);
+    }
+
+    /** @param maxDriveVolts drive voltage limit from the power manager */
+    public void writeOutputs(double maxDriveVolts) {
+        moduleIO.setDriveVoltage(Math.max(-maxDriveVolts, Math.min(maxDriveVolts, pendingDriveVolts)));
+        moduleIO.setTurnVoltage(pendingTurnVolts);
+        moduleIO.setDriveCurrentLimit(driveThermal.getCurrentLimitAmps());
+        moduleIO.setTurnCurrentLimit(turnThermal.getCurrentLimitAmps());
     }
 
     public void stop() {
@@ -163,8 +212,6 @@ public class SwerveModule {
 
     // called within the swerve subsystem's periodic
     public void periodic() {
-        moduleIO.updateData(moduleData);
-
         driveSpeed.set(moduleData.driveVelocityMPerSec);
         drivePosition.set(moduleData.drivePositionM);
         driveTemp.set(moduleData.driveTempCelcius);
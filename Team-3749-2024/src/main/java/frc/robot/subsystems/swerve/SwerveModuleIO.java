@@ -27,6 +27,14 @@ public interface SwerveModuleIO {
   public default void setTurnVoltage(double volts) {
   }
 
+  /** Sets the drive motor's stall current limit, only sent when it changes */
+  public default void setDriveCurrentLimit(int amps) {
+  }
+
+  /** Sets the turn motor's stall current limit, only sent when it changes */
+  public default void setTurnCurrentLimit(int amps) {
+  }
+
   /** Enable or disable brake mode on the drive motor. */
   public default void setDriveBrakeMode(boolean enable) {
   }
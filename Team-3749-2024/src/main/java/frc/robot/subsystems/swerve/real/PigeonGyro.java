@@ -17,6 +17,9 @@ public class PigeonGyro implements GyroIO {
             data.yawDeg = pigeonGyro.getYaw().getValueAsDouble();
             data.pitchDeg = pigeonGyro.getPitch().getValueAsDouble();
             data.rollDeg = pigeonGyro.getRoll().getValueAsDouble();
+            data.yawRateDegPerSec = pigeonGyro.getAngularVelocityZWorld().getValueAsDouble();
+            data.accelXG = pigeonGyro.getAccelerationX().getValueAsDouble();
+            data.accelYG = pigeonGyro.getAccelerationY().getValueAsDouble();
         } catch (Exception e) {};
     }
 
@@ -9,6 +9,8 @@ import edu.wpi.first.math.util.Units;
 import frc.robot.subsystems.swerve.SwerveModuleIO;
 import frc.robot.subsystems.swerve.SwerveConstants.DriveConstants;
 import frc.robot.subsystems.swerve.SwerveConstants.ModuleConstants;
+import frc.robot.utils.VoltageOutput;
+
 public class SwerveModuleSparkMax implements SwerveModuleIO {
     private CANSparkMax driveMotor;
     private CANSparkMax turnMotor;
@@ -19,6 +21,12 @@ public class SwerveModuleSparkMax implements SwerveModuleIO {
     private double driveAppliedVolts;
     private double turnAppliedVolts;
 
+    private VoltageOutput driveOutput;
+    private VoltageOutput turnOutput;
+
+    private int driveCurrentLimitAmps = DriveConstants.driveMotorStallLimit;
+    private int turnCurrentLimitAmps = DriveConstants.turnMotorStallLimit;
+
     private int index;
 
     public SwerveModuleSparkMax(int index) {
@@ -53,6 +61,9 @@ public class SwerveModuleSparkMax implements SwerveModuleIO {
         driveMotor.setIdleMode(IdleMode.kBrake);
         turnMotor.setIdleMode(IdleMode.kBrake);
 
+        driveOutput = new VoltageOutput("module " + index + " drive", driveMotor::setVoltage);
+        turnOutput = new VoltageOutput("module " + index + " turn", turnMotor::setVoltage);
+
         this.index = index;
     };
 
@@ -81,14 +92,32 @@ public class SwerveModuleSparkMax implements SwerveModuleIO {
         driveAppliedVolts = MathUtil.clamp(volts, -DriveConstants.maxMotorVolts,
                 DriveConstants.maxMotorVolts);
         // driveAppliedVolts = Math.signum(driveAppliedVolts) * 12;
-        driveMotor.setVoltage(driveAppliedVolts);
+        driveOutput.setVoltage(driveAppliedVolts);
     };
 
+    @Override
+    public void setDriveCurrentLimit(int amps) {
+        if (amps == driveCurrentLimitAmps) {
+            return;
+        }
+        driveCurrentLimitAmps = amps;
+        driveMotor.setSmartCurrentLimit(amps, DriveConstants.driveMotorFreeLimit);
+    }
+
+    @Override
+    public void setTurnCurrentLimit(int amps) {
+        if (amps == turnCurrentLimitAmps) {
+            return;
+        }
+        turnCurrentLimitAmps = amps;
+        turnMotor.setSmartCurrentLimit(amps, DriveConstants.turnMotorFreeLimit);
+    }
+
     @Override
     public void setTurnVoltage(double volts) {
         turnAppliedVolts = MathUtil.clamp(volts, -DriveConstants.maxMotorVolts,
                 DriveConstants.maxMotorVolts);
-        turnMotor.setVoltage(turnAppliedVolts);
+        turnOutput.setVoltage(turnAppliedVolts);
     };
 
     private double getDrivePositionMeters() {
@@ -12,11 +12,13 @@ public class GyroSim implements GyroIO {
   @Override
   public void updateData(GyroData data) {
 
-    double angleDiffRad = Robot.swerve.getChassisSpeeds().omegaRadiansPerSecond * 0.02;
+    double yawRateRadPerSec = Robot.swerve.getChassisSpeeds().omegaRadiansPerSecond;
+    double angleDiffRad = yawRateRadPerSec * 0.02;
     Rotation2d currentRotationDiff = Rotation2d.fromRadians(angleDiffRad);
 
     yaw = (yaw + currentRotationDiff.getDegrees() + 360) % 360;
     data.yawDeg = yaw;
+    data.yawRateDegPerSec = Math.toDegrees(yawRateRadPerSec);
   }
 
   @Override
@@ -5,8 +5,6 @@ import java.util.List;
 import java.util.Optional;
 import org.photonvision.EstimatedRobotPose;
 import org.photonvision.PhotonCamera;
-import org.photonvision.PhotonPoseEstimator;
-import org.photonvision.PhotonPoseEstimator.PoseStrategy;
 import org.photonvision.common.hardware.VisionLEDMode;
 import org.photonvision.targeting.MultiTargetPNPResult;
 import org.photonvision.targeting.PhotonPipelineResult;
@@ -31,6 +29,7 @@ import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Robot;
 import frc.robot.subsystems.vision.VisionConstants.Cam;
+import frc.robot.subsystems.vision.sim.VisionSim;
 import frc.robot.utils.LimelightHelpers;
 import frc.robot.utils.ShuffleData;
 import frc.robot.utils.LimelightHelpers.LimelightPose;
@@ -43,8 +42,7 @@ import frc.robot.utils.LimelightHelpers.LimelightPose;
  */
 public class Limelight extends SubsystemBase {
         // Position
-        public Pose2d estimatedPose2dLeft = new Pose2d(0, 0, new Rotation2d());
-        public Pose2d estimatedPose2dRight = new Pose2d(0, 0, new Rotation2d());
+        public Pose2d estimatedPose2d = new Pose2d(0, 0, new Rotation2d());
 
         public boolean targeting = false;
         // PhotonCamera instance
@@ -53,8 +51,18 @@ public class Limelight extends SubsystemBase {
         // private final PhotonCamera cameraBack = new PhotonCamera("limelight2");
 
         private AprilTagFieldLayout aprilTagFieldLayout;
-        private PhotonPoseEstimator photonPoseEstimatorLeft;
-        private PhotonPoseEstimator photonPoseEstimatorRight;
+        // one solve over both cameras' tag corners instead of a pose estimator each
+        private MultiCameraPoseSolver poseSolver;
+        private VisionResourceManager resourceManager;
+        private VisionLatencyTracker latencyTracker;
+        // null on the robot
+        private VisionSim visionSim;
+
+        private double lastTimestampLeft = 0;
+        private double lastTimestampRight = 0;
+        private int jointSolves = 0;
+        private int singleSolves = 0;
+        private int rejectedSolves = 0;
 
         // Timer for tracking how long the Limelight subsystem has been running
         // Constructor
@@ -67,25 +75,22 @@ public class Limelight extends SubsystemBase {
                         aprilTagFieldLayout = AprilTagFieldLayout
                                         .loadFromResource(AprilTagFields.k2024Crescendo.m_resourceFile);
 
-                        // Initializing PhotonPoseEstimator based on robot type
+                        // Camera placement based on robot type, in Cam order
                         if (Robot.isSimulation()) {
-                                photonPoseEstimatorLeft = new PhotonPoseEstimator(aprilTagFieldLayout,
-                                                PoseStrategy.MULTI_TAG_PNP_ON_COPROCESSOR,
-                                                cameraLeft, VisionConstants.SIM_LEFT_ROBOT_TO_CAM);
-                                photonPoseEstimatorRight = new PhotonPoseEstimator(aprilTagFieldLayout,
-                                                PoseStrategy.MULTI_TAG_PNP_ON_COPROCESSOR,
-                                                cameraRight, VisionConstants.SIM_RIGHT_ROBOT_TO_CAM);
+                                poseSolver = new MultiCameraPoseSolver(aprilTagFieldLayout,
+                                                VisionConstants.SIM_LEFT_ROBOT_TO_CAM,
+                                                VisionConstants.SIM_RIGHT_ROBOT_TO_CAM);
+                                visionSim = new VisionSim(aprilTagFieldLayout);
+                                visionSim.addCamera(cameraLeft, VisionConstants.SIM_LEFT_ROBOT_TO_CAM);
+                                visionSim.addCamera(cameraRight, VisionConstants.SIM_RIGHT_ROBOT_TO_CAM);
                         } else {
-                                photonPoseEstimatorLeft = new PhotonPoseEstimator(aprilTagFieldLayout,
-                                                PoseStrategy.MULTI_TAG_PNP_ON_COPROCESSOR,
-                                                cameraLeft, VisionConstants.ROBOT_TO_LEFT_CAM);
-
-                                photonPoseEstimatorRight = new PhotonPoseEstimator(aprilTagFieldLayout,
-                                                PoseStrategy.MULTI_TAG_PNP_ON_COPROCESSOR,
-                                                cameraRight, VisionConstants.ROBOT_TO_RIGHT_CAM);
+                                poseSolver = new MultiCameraPoseSolver(aprilTagFieldLayout,
+                                                VisionConstants.ROBOT_TO_LEFT_CAM,
+                                                VisionConstants.ROBOT_TO_RIGHT_CAM);
                         }
-                        photonPoseEstimatorLeft.setMultiTagFallbackStrategy(PoseStrategy.LOWEST_AMBIGUITY);
-                        photonPoseEstimatorRight.setMultiTagFallbackStrategy(PoseStrategy.LOWEST_AMBIGUITY);
+                        latencyTracker = new VisionLatencyTracker(cameraLeft.getName(), cameraRight.getName());
+                        resourceManager = new VisionResourceManager(poseSolver, latencyTracker, cameraLeft,
+                                        cameraRight);
 
                 } catch (Exception e) {
                         // Handling exceptions during initialization
@@ -97,30 +102,109 @@ public class Limelight extends SubsystemBase {
         // Overridden periodic method for logging during each robot loop iteration
         @Override
         public void periodic() {
-                // manualPose();
-
-                // System.out.println("right detect");
-                photonPoseEstimatorLeft.setReferencePose(estimatedPose2dLeft);
-                Optional<EstimatedRobotPose> estimateleft = photonPoseEstimatorLeft.update();
-                if (estimateleft.isPresent()) {
-                        Pose2d estimatedPose2dLeft = estimateleft.get().estimatedPose.toPose2d();
-                        SmartDashboard.putNumberArray("LEFT LL Odometry",
-                                        new double[] { estimatedPose2dLeft.getX(), estimatedPose2dLeft.getY(),
-                                                        estimatedPose2dLeft.getRotation().getDegrees() });
-                        Robot.swerve.visionUpdateOdometry(
-                                        new LimelightPose(estimatedPose2dLeft, estimateleft.get().timestampSeconds));
+                if (poseSolver == null) {
+                        return;
+                }
+                updateIntrinsics(Cam.LEFT, cameraLeft);
+                updateIntrinsics(Cam.RIGHT, cameraRight);
+
+                PhotonPipelineResult resultLeft = cameraLeft.getLatestResult();
+                PhotonPipelineResult resultRight = cameraRight.getLatestResult();
+                resourceManager.recordFrame(Cam.LEFT.camNum, resultLeft);
+                resourceManager.recordFrame(Cam.RIGHT.camNum, resultRight);
+                resourceManager.update(Robot.swerve.getPose());
+
+                boolean newLeft = resultLeft.hasTargets() && resultLeft.getTimestampSeconds() != lastTimestampLeft;
+                boolean newRight = resultRight.hasTargets() && resultRight.getTimestampSeconds() != lastTimestampRight;
+                lastTimestampLeft = resultLeft.getTimestampSeconds();
+                lastTimestampRight = resultRight.getTimestampSeconds();
+                // capture times on the RIO's clock, after each coprocessor's offset
+                double timestampLeft = latencyTracker.correctTimestamp(Cam.LEFT.camNum, lastTimestampLeft);
+                double timestampRight = latencyTracker.correctTimestamp(Cam.RIGHT.camNum, lastTimestampRight);
+
+                if (newLeft && newRight
+                                && Math.abs(timestampLeft - timestampRight) < VisionConstants.MAX_FRAME_SKEW_SEC) {
+                        poseSolver.clear();
+                        poseSolver.addTargets(Cam.LEFT.camNum, resultLeft.getTargets());
+                        poseSolver.addTargets(Cam.RIGHT.camNum, resultRight.getTargets());
+                        boolean behind = latencyTracker.isFallingBehind(Cam.LEFT.camNum)
+                                        || latencyTracker.isFallingBehind(Cam.RIGHT.camNum);
+                        if (solveAndSend((timestampLeft + timestampRight) / 2, behind)) {
+                                jointSolves++;
+                                latencyTracker.recordFused(Cam.LEFT.camNum, resultLeft);
+                                latencyTracker.recordFused(Cam.RIGHT.camNum, resultRight);
+                        }
+                } else {
+                        // too far apart to be one instant, each frame still gets the
+                        // planar solve on its own
+                        if (newLeft) {
+                                poseSolver.clear();
+                                poseSolver.addTargets(Cam.LEFT.camNum, resultLeft.getTargets());
+                                if (solveAndSend(timestampLeft, latencyTracker.isFallingBehind(Cam.LEFT.camNum))) {
+                                        singleSolves++;
+                                        latencyTracker.recordFused(Cam.LEFT.camNum, resultLeft);
+                                }
+                        }
+                        if (newRight) {
+                                poseSolver.clear();
+                                poseSolver.addTargets(Cam.RIGHT.camNum, resultRight.getTargets());
+                                if (solveAndSend(timestampRight, latencyTracker.isFallingBehind(Cam.RIGHT.camNum))) {
+                                        singleSolves++;
+                                        latencyTracker.recordFused(Cam.RIGHT.camNum, resultRight);
+                                }
+                        }
                 }
+                SmartDashboard.putNumber("vision joint solves", jointSolves);
+                SmartDashboard.putNumber("vision single solves", singleSolves);
+                SmartDashboard.putNumber("vision rejected solves", rejectedSolves);
+                latencyTracker.log();
+        }
 
-                photonPoseEstimatorRight.setReferencePose(estimatedPose2dRight);
-                 Optional<EstimatedRobotPose> estimateRight = photonPoseEstimatorRight.update();
-                if (estimateRight.isPresent()) {
-                        estimatedPose2dRight= estimateRight.get().estimatedPose.toPose2d();
-                        SmartDashboard.putNumberArray("RIGHT LL Odometry",
-                                        new double[] { estimatedPose2dRight.getX(), estimatedPose2dRight.getY(),
-                                                        estimatedPose2dRight.getRotation().getDegrees() });
-                        Robot.swerve.visionUpdateOdometry(
-                                        new LimelightPose(estimatedPose2dRight, estimateRight.get().timestampSeconds));
+        @Override
+        public void simulationPeriodic() {
+                if (visionSim != null) {
+                        visionSim.update(Robot.swerve.getSimulatedPose());
+                }
+        }
+
+        private void updateIntrinsics(Cam cam, PhotonCamera camera) {
+                if (!poseSolver.hasIntrinsics(cam.camNum)) {
+                        camera.getCameraMatrix().ifPresent(matrix -> poseSolver.setIntrinsics(cam.camNum, matrix));
+                }
+        }
+
+        /**
+         * @param fallingBehind whether any camera in the solve is, see
+         *                      VisionLatencyTracker.isFallingBehind
+         * @return whether the solve was good enough to send to the pose estimator
+         */
+        private boolean solveAndSend(double timestampSeconds, boolean fallingBehind) {
+                if (poseSolver.getTagCount() == 0) {
+                        return false;
+                }
+                if (!poseSolver.solve(Robot.swerve.getPose())) {
+                        rejectedSolves++;
+                        return false;
+                }
+                estimatedPose2d = poseSolver.getPose();
+                Matrix<N3, N1> stdDevs = poseSolver.getStdDevs();
+                if (fallingBehind) {
+                        stdDevs = stdDevs.times(VisionConstants.FALLING_BEHIND_STD_DEV_SCALE);
                 }
+                SmartDashboard.putNumberArray("LL Odometry",
+                                new double[] { estimatedPose2d.getX(), estimatedPose2d.getY(),
+                                                estimatedPose2d.getRotation().getDegrees() });
+                SmartDashboard.putNumberArray("LL std devs",
+                                new double[] { stdDevs.get(0, 0), stdDevs.get(1, 0), stdDevs.get(2, 0) });
+                SmartDashboard.putNumber("LL reprojection error", poseSolver.getRmsErrorPixels());
+                SmartDashboard.putNumber("LL tags used", poseSolver.getTagCount());
+                // against where we thought we were when the frame was taken, so lag
+                // doesn't show up as error
+                Pose2d poseAtCapture = Robot.swerve.getPoseAt(timestampSeconds);
+                SmartDashboard.putNumber("LL error at capture",
+                                estimatedPose2d.getTranslation().getDistance(poseAtCapture.getTranslation()));
+                Robot.swerve.visionUpdateOdometry(new LimelightPose(estimatedPose2d, timestampSeconds), stdDevs);
+                return true;
         }
 
         // public void manualPose() {
@@ -0,0 +1,454 @@
+package frc.robot.subsystems.vision;
+
+import java.util.List;
+
+import org.photonvision.estimation.TargetModel;
+import org.photonvision.targeting.PhotonTrackedTarget;
+import org.photonvision.targeting.TargetCorner;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.math.MatBuilder;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.Nat;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+
+/**
+ * Solves for one robot pose from the tag corners every camera saw, instead of
+ * a pose per camera. The robot is assumed flat on the carpet so only x, y and
+ * heading are solved for, which keeps a single tag per camera from flipping
+ * between its two ambiguous solutions. Corners are reprojected through each
+ * camera's robot relative placement and intrinsics and the pixel error is
+ * minimized with Gauss-Newton. The covariance comes from the same normal
+ * equations, scaled by how well the corners actually fit
+ */
+public class MultiCameraPoseSolver {
+
+        private static final int maxTagId = 32;
+        private static final int maxCorners = 64;
+        private static final int maxIterations = 12;
+
+        // field position of every tag's corners, in the order photon reports them
+        private final double[][] tagCorners = new double[maxTagId + 1][];
+        // every tag's center and the direction its face points
+        private final double[][] tagFacing = new double[maxTagId + 1][];
+
+        private final AprilTagFieldLayout layout;
+        // per camera, rows of the rotation taking robot frame vectors into the
+        // camera frame, and the camera position on the robot
+        private final double[][] camRotation;
+        private final double[][] camTranslation;
+        private final Transform3d[] robotToCam;
+        private final double[] fx;
+        private final double[] fy;
+        private final double[] cx;
+        private final double[] cy;
+        private final boolean[] hasIntrinsics;
+
+        private final int[] cornerCam = new int[maxCorners];
+        private final double[] cornerU = new double[maxCorners];
+        private final double[] cornerV = new double[maxCorners];
+        private final double[] cornerX = new double[maxCorners];
+        private final double[] cornerY = new double[maxCorners];
+        private final double[] cornerZ = new double[maxCorners];
+        private int cornerCount = 0;
+        private int tagCount = 0;
+
+        // seeds from each camera's least ambiguous tag, tried after the odometry seed
+        private final double[] seedX = new double[8];
+        private final double[] seedY = new double[8];
+        private final double[] seedTheta = new double[8];
+        private int seedCount = 0;
+
+        // normal equations, filled by evaluate()
+        private double h00, h01, h02, h11, h12, h22;
+        private double g0, g1, g2;
+        private double cost;
+
+        private double solvedX, solvedY, solvedTheta;
+        private double solvedCost;
+        private double varX, varY, varTheta;
+
+        public MultiCameraPoseSolver(AprilTagFieldLayout layout, Transform3d... robotToCam) {
+                this.layout = layout;
+                for (AprilTag tag : layout.getTags()) {
+                        if (tag.ID < 0 || tag.ID > maxTagId) {
+                                continue;
+                        }
+                        List<Translation3d> vertices = TargetModel.kAprilTag36h11.getFieldVertices(tag.pose);
+                        double[] corners = new double[vertices.size() * 3];
+                        for (int i = 0; i < vertices.size(); i++) {
+                                corners[i * 3] = vertices.get(i).getX();
+                                corners[i * 3 + 1] = vertices.get(i).getY();
+                                corners[i * 3 + 2] = vertices.get(i).getZ();
+                        }
+                        tagCorners[tag.ID] = corners;
+                        Translation3d normal = new Translation3d(1, 0, 0).rotateBy(tag.pose.getRotation());
+                        tagFacing[tag.ID] = new double[] { tag.pose.getX(), tag.pose.getY(), tag.pose.getZ(),
+                                        normal.getX(), normal.getY(), normal.getZ() };
+                }
+
+                int cameras = robotToCam.length;
+                this.robotToCam = robotToCam;
+                camRotation = new double[cameras][9];
+                camTranslation = new double[cameras][3];
+                fx = new double[cameras];
+                fy = new double[cameras];
+                cx = new double[cameras];
+                cy = new double[cameras];
+                hasIntrinsics = new boolean[cameras];
+                for (int c = 0; c < cameras; c++) {
+                        // rotating the unit axes gives the columns of the camera's rotation,
+                        // which are the rows of its inverse
+                        Translation3d[] axes = { new Translation3d(1, 0, 0), new Translation3d(0, 1, 0),
+                                        new Translation3d(0, 0, 1) };
+                        for (int row = 0; row < 3; row++) {
+                                Translation3d axis = axes[row].rotateBy(robotToCam[c].getRotation());
+                                camRotation[c][row * 3] = axis.getX();
+                                camRotation[c][row * 3 + 1] = axis.getY();
+                                camRotation[c][row * 3 + 2] = axis.getZ();
+                        }
+                        camTranslation[c][0] = robotToCam[c].getX();
+                        camTranslation[c][1] = robotToCam[c].getY();
+                        camTranslation[c][2] = robotToCam[c].getZ();
+                }
+        }
+
+        /**
+         * The coprocessor only publishes intrinsics once it's connected, so this can
+         * be called every loop until {@link #hasIntrinsics(int)}
+         */
+        public void setIntrinsics(int cam, Matrix<N3, N3> cameraMatrix) {
+                fx[cam] = cameraMatrix.get(0, 0);
+                fy[cam] = cameraMatrix.get(1, 1);
+                cx[cam] = cameraMatrix.get(0, 2);
+                cy[cam] = cameraMatrix.get(1, 2);
+                hasIntrinsics[cam] = fx[cam] > 0 && fy[cam] > 0;
+        }
+
+        public boolean hasIntrinsics(int cam) {
+                return hasIntrinsics[cam];
+        }
+
+        public void clear() {
+                cornerCount = 0;
+                tagCount = 0;
+                seedCount = 0;
+        }
+
+        /**
+         * Adds every known tag in one camera's frame. Corners are used as detected,
+         * limelight lens distortion is small next to the corner noise
+         *
+         * @return how many tags were added
+         */
+        public int addTargets(int cam, List<PhotonTrackedTarget> targets) {
+                if (!hasIntrinsics[cam]) {
+                        return 0;
+                }
+                int added = 0;
+                PhotonTrackedTarget leastAmbiguous = null;
+                for (PhotonTrackedTarget target : targets) {
+                        int id = target.getFiducialId();
+                        if (id < 0 || id > maxTagId || tagCorners[id] == null) {
+                                continue;
+                        }
+                        List<TargetCorner> detected = target.getDetectedCorners();
+                        double[] corners = tagCorners[id];
+                        if (detected.size() * 3 != corners.length
+                                        || cornerCount + detected.size() > maxCorners) {
+                                continue;
+                        }
+                        for (int i = 0; i < detected.size(); i++) {
+                                cornerCam[cornerCount] = cam;
+                                cornerU[cornerCount] = detected.get(i).x;
+                                cornerV[cornerCount] = detected.get(i).y;
+                                cornerX[cornerCount] = corners[i * 3];
+                                cornerY[cornerCount] = corners[i * 3 + 1];
+                                cornerZ[cornerCount] = corners[i * 3 + 2];
+                                cornerCount++;
+                        }
+                        added++;
+                        if (leastAmbiguous == null || target.getPoseAmbiguity() < leastAmbiguous.getPoseAmbiguity()) {
+                                leastAmbiguous = target;
+                        }
+                }
+                tagCount += added;
+
+                if (leastAmbiguous != null) {
+                        var tagPose = layout.getTagPose(leastAmbiguous.getFiducialId());
+                        if (tagPose.isPresent()) {
+                                addSeed(tagPose.get().transformBy(leastAmbiguous.getBestCameraToTarget().inverse())
+                                                .transformBy(robotToCam[cam].inverse()).toPose2d());
+                                addSeed(tagPose.get().transformBy(leastAmbiguous.getAlternateCameraToTarget().inverse())
+                                                .transformBy(robotToCam[cam].inverse()).toPose2d());
+                        }
+                }
+                return added;
+        }
+
+        private void addSeed(Pose2d pose) {
+                if (seedCount < seedX.length) {
+                        seedX[seedCount] = pose.getX();
+                        seedY[seedCount] = pose.getY();
+                        seedTheta[seedCount] = pose.getRotation().getRadians();
+                        seedCount++;
+                }
+        }
+
+        public int getTagCount() {
+                return tagCount;
+        }
+
+        public int getCornerCount() {
+                return cornerCount;
+        }
+
+        /**
+         * Solves from the odometry pose and from every tag's own solutions, keeping
+         * whichever fits the corners best
+         *
+         * @return false if nothing fit well enough to use
+         */
+        public boolean solve(Pose2d odometryPose) {
+                if (cornerCount < 4) {
+                        return false;
+                }
+                boolean solved = false;
+                double bestCost = Double.POSITIVE_INFINITY;
+                double bestX = 0, bestY = 0, bestTheta = 0;
+                for (int s = -1; s < seedCount; s++) {
+                        double x = s < 0 ? odometryPose.getX() : seedX[s];
+                        double y = s < 0 ? odometryPose.getY() : seedY[s];
+                        double theta = s < 0 ? odometryPose.getRotation().getRadians() : seedTheta[s];
+                        if (!refine(x, y, theta)) {
+                                continue;
+                        }
+                        if (solvedCost < bestCost) {
+                                bestCost = solvedCost;
+                                bestX = solvedX;
+                                bestY = solvedY;
+                                bestTheta = solvedTheta;
+                                solved = true;
+                        }
+                }
+                if (!solved) {
+                        return false;
+                }
+                // leaves the normal equations at the best pose for the covariance
+                evaluate(bestX, bestY, bestTheta);
+                solvedX = bestX;
+                solvedY = bestY;
+                solvedTheta = bestTheta;
+                solvedCost = cost;
+
+                double det = h00 * (h11 * h22 - h12 * h12) - h01 * (h01 * h22 - h12 * h02)
+                                + h02 * (h01 * h12 - h11 * h02);
+                if (Math.abs(det) < 1e-12) {
+                        return false;
+                }
+                double pixelVariance = Math.pow(Math.max(VisionConstants.CORNER_PIXEL_STD_DEV, getRmsErrorPixels()), 2);
+                varX = pixelVariance * (h11 * h22 - h12 * h12) / det;
+                varY = pixelVariance * (h00 * h22 - h02 * h02) / det;
+                varTheta = pixelVariance * (h00 * h11 - h01 * h01) / det;
+
+                return getRmsErrorPixels() < VisionConstants.MAX_REPROJECTION_ERROR_PIXELS
+                                && solvedX > -VisionConstants.FIELD_MARGIN
+                                && solvedX < VisionConstants.FIELD_LENGTH + VisionConstants.FIELD_MARGIN
+                                && solvedY > -VisionConstants.FIELD_MARGIN
+                                && solvedY < VisionConstants.FIELD_WIDTH + VisionConstants.FIELD_MARGIN;
+        }
+
+        private boolean refine(double x, double y, double theta) {
+                for (int i = 0; i < maxIterations; i++) {
+                        if (!evaluate(x, y, theta)) {
+                                return false;
+                        }
+                        // solve H * step = -g by cofactors, it's only 3x3
+                        double c00 = h11 * h22 - h12 * h12;
+                        double c01 = h02 * h12 - h01 * h22;
+                        double c02 = h01 * h12 - h02 * h11;
+                        double det = h00 * c00 + h01 * c01 + h02 * c02;
+                        if (Math.abs(det) < 1e-12) {
+                                return false;
+                        }
+                        double c11 = h00 * h22 - h02 * h02;
+                        double c12 = h01 * h02 - h00 * h12;
+                        double c22 = h00 * h11 - h01 * h01;
+                        double stepX = -(c00 * g0 + c01 * g1 + c02 * g2) / det;
+                        double stepY = -(c01 * g0 + c11 * g1 + c12 * g2) / det;
+                        double stepTheta = -(c02 * g0 + c12 * g1 + c22 * g2) / det;
+
+                        // a bad seed can ask for a huge first step, don't jump across the field
+                        double stepScale = Math.min(1, Math.min(1.0 / Math.max(1e-9, Math.hypot(stepX, stepY)),
+                                        0.5 / Math.max(1e-9, Math.abs(stepTheta))));
+                        x += stepX * stepScale;
+                        y += stepY * stepScale;
+                        theta += stepTheta * stepScale;
+                        if (Math.hypot(stepX, stepY) < 1e-4 && Math.abs(stepTheta) < 1e-4) {
+                                break;
+                        }
+                }
+                if (!evaluate(x, y, theta)) {
+                        return false;
+                }
+                solvedX = x;
+                solvedY = y;
+                solvedTheta = theta;
+                solvedCost = cost;
+                return true;
+        }
+
+        /**
+         * Reprojects every corner from a robot pose and accumulates the Gauss-Newton
+         * normal equations
+         *
+         * @return false if a corner ends up behind its camera
+         */
+        private boolean evaluate(double x, double y, double theta) {
+                h00 = h01 = h02 = h11 = h12 = h22 = 0;
+                g0 = g1 = g2 = 0;
+                cost = 0;
+                double cos = Math.cos(theta);
+                double sin = Math.sin(theta);
+                for (int i = 0; i < cornerCount; i++) {
+                        int c = cornerCam[i];
+                        double[] r = camRotation[c];
+                        double[] t = camTranslation[c];
+
+                        // field to robot
+                        double dx = cornerX[i] - x;
+                        double dy = cornerY[i] - y;
+                        double robotX = cos * dx + sin * dy;
+                        double robotY = -sin * dx + cos * dy;
+                        double ox = robotX - t[0];
+                        double oy = robotY - t[1];
+                        double oz = cornerZ[i] - t[2];
+                        // robot to camera, +x out of the lens, +y left, +z up
+                        double qx = r[0] * ox + r[1] * oy + r[2] * oz;
+                        double qy = r[3] * ox + r[4] * oy + r[5] * oz;
+                        double qz = r[6] * ox + r[7] * oy + r[8] * oz;
+                        if (qx < 0.05) {
+                                return false;
+                        }
+
+                        double residualU = cx[c] - fx[c] * qy / qx - cornerU[i];
+                        double residualV = cy[c] - fy[c] * qz / qx - cornerV[i];
+                        cost += residualU * residualU + residualV * residualV;
+
+                        // robot frame point derivatives with respect to x, y and theta,
+                        // none of them move it vertically
+                        double du0 = 0, du1 = 0, du2 = 0, dv0 = 0, dv1 = 0, dv2 = 0;
+                        for (int j = 0; j < 3; j++) {
+                                double drx = j == 0 ? -cos : j == 1 ? -sin : robotY;
+                                double dry = j == 0 ? sin : j == 1 ? -cos : -robotX;
+                                double dqx = r[0] * drx + r[1] * dry;
+                                double dqy = r[3] * drx + r[4] * dry;
+                                double dqz = r[6] * drx + r[7] * dry;
+                                double du = -fx[c] * (dqy - qy * dqx / qx) / qx;
+                                double dv = -fy[c] * (dqz - qz * dqx / qx) / qx;
+                                if (j == 0) {
+                                        du0 = du;
+                                        dv0 = dv;
+                                } else if (j == 1) {
+                                        du1 = du;
+                                        dv1 = dv;
+                                } else {
+                                        du2 = du;
+                                        dv2 = dv;
+                                }
+                        }
+                        h00 += du0 * du0 + dv0 * dv0;
+                        h01 += du0 * du1 + dv0 * dv1;
+                        h02 += du0 * du2 + dv0 * dv2;
+                        h11 += du1 * du1 + dv1 * dv1;
+                        h12 += du1 * du2 + dv1 * dv2;
+                        h22 += du2 * du2 + dv2 * dv2;
+                        g0 += du0 * residualU + dv0 * residualV;
+                        g1 += du1 * residualU + dv1 * residualV;
+                        g2 += du2 * residualU + dv2 * residualV;
+                }
+                return true;
+        }
+
+        public int getMaxTagId() {
+                return maxTagId;
+        }
+
+        /**
+         * Projects a tag's corners into a camera from a robot pose. The image is
+         * taken to be twice the principal point in each direction
+         *
+         * @param bounds filled with the min u, min v, max u and max v of the corners
+         * @return false if the tag is unknown, faces away from the camera, is behind
+         *         it or lands entirely outside the image
+         */
+        public boolean projectTag(int cam, int id, Pose2d robotPose, double[] bounds) {
+                if (!hasIntrinsics[cam] || id < 0 || id > maxTagId || tagCorners[id] == null) {
+                        return false;
+                }
+                double cos = robotPose.getRotation().getCos();
+                double sin = robotPose.getRotation().getSin();
+                double[] r = camRotation[cam];
+                double[] t = camTranslation[cam];
+                double[] facing = tagFacing[id];
+                double camFieldX = robotPose.getX() + cos * t[0] - sin * t[1];
+                double camFieldY = robotPose.getY() + sin * t[0] + cos * t[1];
+                if ((camFieldX - facing[0]) * facing[3] + (camFieldY - facing[1]) * facing[4]
+                                + (t[2] - facing[2]) * facing[5] <= 0) {
+                        return false;
+                }
+
+                bounds[0] = Double.POSITIVE_INFINITY;
+                bounds[1] = Double.POSITIVE_INFINITY;
+                bounds[2] = Double.NEGATIVE_INFINITY;
+                bounds[3] = Double.NEGATIVE_INFINITY;
+                double[] corners = tagCorners[id];
+                for (int i = 0; i < corners.length; i += 3) {
+                        double dx = corners[i] - robotPose.getX();
+                        double dy = corners[i + 1] - robotPose.getY();
+                        double ox = cos * dx + sin * dy - t[0];
+                        double oy = -sin * dx + cos * dy - t[1];
+                        double oz = corners[i + 2] - t[2];
+                        double qx = r[0] * ox + r[1] * oy + r[2] * oz;
+                        double qy = r[3] * ox + r[4] * oy + r[5] * oz;
+                        double qz = r[6] * ox + r[7] * oy + r[8] * oz;
+                        if (qx < 0.05) {
+                                return false;
+                        }
+                        double u = cx[cam] - fx[cam] * qy / qx;
+                        double v = cy[cam] - fy[cam] * qz / qx;
+                        bounds[0] = Math.min(bounds[0], u);
+                        bounds[1] = Math.min(bounds[1], v);
+                        bounds[2] = Math.max(bounds[2], u);
+                        bounds[3] = Math.max(bounds[3], v);
+                }
+                return bounds[2] > 0 && bounds[0] < 2 * cx[cam] && bounds[3] > 0 && bounds[1] < 2 * cy[cam];
+        }
+
+        public Pose2d getPose() {
+                return new Pose2d(solvedX, solvedY, new Rotation2d(solvedTheta));
+        }
+
+        /** @return root mean square corner error of the last solve, with the 3 solved for values taken out */
+        public double getRmsErrorPixels() {
+                int dof = Math.max(1, cornerCount * 2 - 3);
+                return Math.sqrt(solvedCost / dof);
+        }
+
+        /**
+         * @return standard deviations of x, y and heading for the pose estimator.
+         *         It only takes a diagonal, so the cross terms are dropped
+         */
+        public Matrix<N3, N1> getStdDevs() {
+                return MatBuilder.fill(Nat.N3(), Nat.N1(),
+                                Math.max(VisionConstants.MIN_TRANSLATION_STD_DEV, Math.sqrt(varX)),
+                                Math.max(VisionConstants.MIN_TRANSLATION_STD_DEV, Math.sqrt(varY)),
+                                Math.max(VisionConstants.MIN_ROTATION_STD_DEV, Math.sqrt(varTheta)));
+        }
+}
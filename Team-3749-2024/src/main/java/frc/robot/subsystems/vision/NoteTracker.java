@@ -0,0 +1,236 @@
+package frc.robot.subsystems.vision;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.Robot;
+import frc.robot.utils.LimelightResultCache;
+
+/**
+ * Keeps a field relative map of notes seen by the note detection camera.
+ * Detections are projected onto the floor from the pose the robot was at when
+ * the frame was captured, merged with nearby notes already in the map, and
+ * every note's confidence decays while it isn't being seen. The map is stored in fixed size primitive arrays
+ */
+public class NoteTracker extends SubsystemBase {
+
+        private final LimelightResultCache noteCam = LimelightResultCache.get(VisionConstants.NOTE_CAM_NAME);
+
+        private final double[] noteX = new double[VisionConstants.NOTE_MAP_CAPACITY];
+        private final double[] noteY = new double[VisionConstants.NOTE_MAP_CAPACITY];
+        private final double[] noteConfidence = new double[VisionConstants.NOTE_MAP_CAPACITY];
+        private final double[] noteLastSeen = new double[VisionConstants.NOTE_MAP_CAPACITY];
+
+        private long lastFrameTimestamp = 0;
+        private double lastUpdateTime = Timer.getFPGATimestamp();
+
+        // robot relative camera placement, flattened once since the math below is 2d
+        private final double camX = VisionConstants.ROBOT_TO_NOTE_CAM.getX();
+        private final double camY = VisionConstants.ROBOT_TO_NOTE_CAM.getY();
+        private final double camZ = VisionConstants.ROBOT_TO_NOTE_CAM.getZ();
+        private final double camPitchRad = VisionConstants.ROBOT_TO_NOTE_CAM.getRotation().getY();
+        private final double camYawRad = VisionConstants.ROBOT_TO_NOTE_CAM.getRotation().getZ();
+
+        // one log array per note count so publishing the map doesn't allocate
+        private final double[][] mapLogs = new double[VisionConstants.NOTE_MAP_CAPACITY + 1][];
+
+        public NoteTracker() {
+                for (int count = 0; count < mapLogs.length; count++) {
+                        mapLogs[count] = new double[count * 2];
+                }
+        }
+
+        /** @return number of slots in the map, some of which may be empty */
+        public int getCapacity() {
+                return VisionConstants.NOTE_MAP_CAPACITY;
+        }
+
+        public boolean hasNote(int index) {
+                return noteConfidence[index] > 0;
+        }
+
+        public double getNoteX(int index) {
+                return noteX[index];
+        }
+
+        public double getNoteY(int index) {
+                return noteY[index];
+        }
+
+        public double getNoteConfidence(int index) {
+                return noteConfidence[index];
+        }
+
+        public double getNoteLastSeen(int index) {
+                return noteLastSeen[index];
+        }
+
+        /**
+         * @return the index of the closest note that is on the field and within
+         *         detection range, or -1 if there isn't one
+         */
+        public int getNearestReachableNoteIndex(Pose2d robotPose) {
+                int nearest = -1;
+                double nearestDistanceSquared = VisionConstants.NOTE_MAX_DETECTION_DISTANCE
+                                * VisionConstants.NOTE_MAX_DETECTION_DISTANCE;
+                for (int i = 0; i < noteConfidence.length; i++) {
+                        if (!hasNote(i) || !isReachable(noteX[i], noteY[i])) {
+                                continue;
+                        }
+                        double dx = noteX[i] - robotPose.getX();
+                        double dy = noteY[i] - robotPose.getY();
+                        double distanceSquared = dx * dx + dy * dy;
+                        if (distanceSquared < nearestDistanceSquared) {
+                                nearestDistanceSquared = distanceSquared;
+                                nearest = i;
+                        }
+                }
+                return nearest;
+        }
+
+        /** @return the closest reachable note, or null if there isn't one */
+        public Translation2d getNearestReachableNote(Pose2d robotPose) {
+                int index = getNearestReachableNoteIndex(robotPose);
+                if (index < 0) {
+                        return null;
+                }
+                return new Translation2d(noteX[index], noteY[index]);
+        }
+
+        /** Forgets a note, such as once it has been intaken */
+        public void removeNote(int index) {
+                noteConfidence[index] = 0;
+        }
+
+        public void clear() {
+                for (int i = 0; i < noteConfidence.length; i++) {
+                        noteConfidence[i] = 0;
+                }
+        }
+
+        private boolean isReachable(double x, double y) {
+                // notes pushed against the walls can't be driven up to
+                double margin = Units.inchesToMeters(6);
+                return x > margin && x < VisionConstants.FIELD_LENGTH - margin
+                                && y > margin && y < VisionConstants.FIELD_WIDTH - margin;
+        }
+
+        private void decay(double now) {
+                double dt = now - lastUpdateTime;
+                lastUpdateTime = now;
+                double decay = Math.exp(-dt / VisionConstants.NOTE_DECAY_TIME_CONSTANT);
+                for (int i = 0; i < noteConfidence.length; i++) {
+                        if (!hasNote(i)) {
+                                continue;
+                        }
+                        noteConfidence[i] *= decay;
+                        if (noteConfidence[i] < VisionConstants.NOTE_MIN_CONFIDENCE) {
+                                noteConfidence[i] = 0;
+                        }
+                }
+        }
+
+        private void addObservations(LimelightResultCache.Frame frame, Pose2d robotPose, double now) {
+                double robotCos = robotPose.getRotation().getCos();
+                double robotSin = robotPose.getRotation().getSin();
+
+                for (int i = 0; i < frame.detectorCount; i++) {
+                        if (frame.detectorConfidence[i] < VisionConstants.NOTE_MIN_DETECTION_CONFIDENCE) {
+                                continue;
+                        }
+                        // angle below the horizon to the note, limelight ty is positive up
+                        double depressionRad = camPitchRad - Units.degreesToRadians(frame.detectorTyDeg[i]);
+                        if (depressionRad < Units.degreesToRadians(1)) {
+                                continue;
+                        }
+                        double forward = (camZ - VisionConstants.NOTE_HEIGHT) / Math.tan(depressionRad);
+                        if (forward > VisionConstants.NOTE_MAX_DETECTION_DISTANCE) {
+                                continue;
+                        }
+                        // limelight tx is positive to the right, robot y is positive left
+                        double yawRad = camYawRad - Units.degreesToRadians(frame.detectorTxDeg[i]);
+                        double robotRelativeX = camX + forward * Math.cos(yawRad);
+                        double robotRelativeY = camY + forward * Math.sin(yawRad);
+
+                        double fieldX = robotPose.getX() + robotRelativeX * robotCos - robotRelativeY * robotSin;
+                        double fieldY = robotPose.getY() + robotRelativeX * robotSin + robotRelativeY * robotCos;
+                        addObservation(fieldX, fieldY, frame.detectorConfidence[i], now);
+                }
+        }
+
+        private void addObservation(double x, double y, double detectionConfidence, double now) {
+                int closest = -1;
+                double closestDistanceSquared = VisionConstants.NOTE_ASSOCIATION_RADIUS
+                                * VisionConstants.NOTE_ASSOCIATION_RADIUS;
+                int weakest = 0;
+                for (int i = 0; i < noteConfidence.length; i++) {
+                        if (noteConfidence[i] < noteConfidence[weakest]) {
+                                weakest = i;
+                        }
+                        if (!hasNote(i)) {
+                                continue;
+                        }
+                        double dx = noteX[i] - x;
+                        double dy = noteY[i] - y;
+                        double distanceSquared = dx * dx + dy * dy;
+                        if (distanceSquared < closestDistanceSquared) {
+                                closestDistanceSquared = distanceSquared;
+                                closest = i;
+                        }
+                }
+
+                double gain = VisionConstants.NOTE_CONFIDENCE_GAIN * detectionConfidence;
+                if (closest >= 0) {
+                        noteX[closest] += (x - noteX[closest]) * VisionConstants.NOTE_POSITION_BLEND;
+                        noteY[closest] += (y - noteY[closest]) * VisionConstants.NOTE_POSITION_BLEND;
+                        noteConfidence[closest] = Math.min(1, noteConfidence[closest] + gain);
+                        noteLastSeen[closest] = now;
+                        return;
+                }
+                // the map is full of stronger notes than this single sighting
+                if (hasNote(weakest) && noteConfidence[weakest] > gain) {
+                        return;
+                }
+                noteX[weakest] = x;
+                noteY[weakest] = y;
+                noteConfidence[weakest] = Math.max(gain, VisionConstants.NOTE_MIN_CONFIDENCE);
+                noteLastSeen[weakest] = now;
+        }
+
+        @Override
+        public void periodic() {
+                double now = Timer.getFPGATimestamp();
+                decay(now);
+
+                LimelightResultCache.Frame frame = noteCam.getFrame();
+                if (frame.ntTimestampMicros != lastFrameTimestamp) {
+                        lastFrameTimestamp = frame.ntTimestampMicros;
+                        // the json arrives after the pipeline and capture latency, and the
+                        // robot has kept driving since
+                        double captureTime = frame.ntTimestampMicros / 1e6
+                                        - (frame.pipelineLatencyMs + frame.captureLatencyMs) / 1000;
+                        addObservations(frame, Robot.swerve.getPoseAt(captureTime), now);
+                }
+
+                int count = 0;
+                for (int i = 0; i < noteConfidence.length; i++) {
+                        if (hasNote(i)) {
+                                count++;
+                        }
+                }
+                double[] mapLog = mapLogs[count];
+                int slot = 0;
+                for (int i = 0; i < noteConfidence.length; i++) {
+                        if (hasNote(i)) {
+                                mapLog[slot * 2] = noteX[i];
+                                mapLog[slot * 2 + 1] = noteY[i];
+                                slot++;
+                        }
+                }
+                SmartDashboard.putNumber("note tracker count", count);
+                SmartDashboard.putNumberArray("note tracker map", mapLog);
+        }
+}
@@ -74,8 +74,22 @@ public class VisionConstants {
         // public static final Transform2d RIGHT_CAM_TO_ROBOT2D = new Transform2d(RIGHT_CAM_TO_ROBOT.getX(),
         //                 RIGHT_CAM_TO_ROBOT.getY(), RIGHT_CAM_TO_ROBOT.getRotation().toRotation2d());
 
-        public static final Transform3d SIM_LEFT_ROBOT_TO_CAM = new Transform3d(1, 0, 0, new Rotation3d());
-        public static final Transform3d SIM_RIGHT_ROBOT_TO_CAM = new Transform3d(1, 0, 0, new Rotation3d());
+        // same placement as the robot so the simulated cameras see what the real ones would
+        public static final Transform3d SIM_LEFT_ROBOT_TO_CAM = ROBOT_TO_LEFT_CAM;
+        public static final Transform3d SIM_RIGHT_ROBOT_TO_CAM = ROBOT_TO_RIGHT_CAM;
+
+        // Simulated AprilTag cameras, roughly a limelight 3 running photon
+        public static final int SIM_CAM_WIDTH_PX = 1280;
+        public static final int SIM_CAM_HEIGHT_PX = 960;
+        public static final double SIM_CAM_DIAGONAL_FOV_DEG = 75.8;
+        public static final double SIM_CAM_FPS = 30;
+        public static final double SIM_CAM_AVG_LATENCY_MS = 35;
+        public static final double SIM_CAM_LATENCY_STD_DEV_MS = 5;
+        // average and spread of the pixel error added to every detected corner
+        public static final double SIM_CAM_AVG_CORNER_ERROR_PX = 0.25;
+        public static final double SIM_CAM_CORNER_ERROR_STD_DEV_PX = 0.08;
+        // the streams are only useful for looking at, and rendering them is slow
+        public static final boolean SIM_CAM_STREAMS = false;
 
         public static final double CAM_HEIGHT = Units.inchesToMeters(20); // meters
         public static final double SIM_CAM_HEIGHT = 1;
@@ -91,9 +105,77 @@ public class VisionConstants {
         public static final double POSE_AMBIGUITY_SHIFTER = 0.2;
         public static final double NOISY_DISTANCE_METERS = 2.5;
         public static final int TAG_PRESENCE_WEIGHT = 10;
-
+        // joint multi camera solve
+        // frames from the two cameras closer together than this are solved as one
+        public static final double MAX_FRAME_SKEW_SEC = 0.015;
+        public static final double CORNER_PIXEL_STD_DEV = 1.5;
+        public static final double MAX_REPROJECTION_ERROR_PIXELS = 6;
+        public static final double MIN_TRANSLATION_STD_DEV = 0.03; // meters
+        public static final double MIN_ROTATION_STD_DEV = Units.degreesToRadians(2);
+        // solved poses further than this outside the field are thrown out
+        public static final double FIELD_MARGIN = 0.5; // meters
+        // used for a moment after a collision, when odometry can't be trusted
+        public static final Matrix<N3, N1> COLLISION_VISION_STANDARD_DEVIATIONS = MatBuilder.fill(Nat.N3(),
+                        Nat.N1(),
+                        0.3, 0.3, 1.0 * Math.PI);
+
+        // Note detection
+        public static final String NOTE_CAM_NAME = "limelight-note";
+        // positive pitch is tilted down towards the floor
+        public static final Transform3d ROBOT_TO_NOTE_CAM = new Transform3d(
+                        new Translation3d(Units.inchesToMeters(11), Units.inchesToMeters(0),
+                                        Units.inchesToMeters(14)),
+                        new Rotation3d(0, Units.degreesToRadians(25), 0));
+        public static final double NOTE_HEIGHT = Units.inchesToMeters(1); // center of a note on the floor
+        public static final double NOTE_MIN_DETECTION_CONFIDENCE = 0.6;
+        public static final double NOTE_MAX_DETECTION_DISTANCE = 4.5; // meters
+        // observations closer than this to a stored note are treated as the same note
+        public static final double NOTE_ASSOCIATION_RADIUS = 0.35;
+        // how much of a new observation gets blended into a stored note's position
+        public static final double NOTE_POSITION_BLEND = 0.3;
+        public static final double NOTE_CONFIDENCE_GAIN = 0.35;
+        public static final double NOTE_DECAY_TIME_CONSTANT = 1.5; // seconds
+        public static final double NOTE_MIN_CONFIDENCE = 0.15;
+        public static final int NOTE_MAP_CAPACITY = 24;
+        public static final double FIELD_LENGTH = 16.54;
+        public static final double FIELD_WIDTH = 8.21;
+
+        // Latency tracking
+        // the coprocessor clock offset is the smallest transit time over a window
+        public static final double CLOCK_OFFSET_WINDOW_SEC = 2;
+        // what that smallest transit would be with perfectly synced clocks
+        public static final double MIN_NETWORK_DELAY_SEC = 0.0005;
+        public static final double MAX_CLOCK_OFFSET_SEC = 0.1;
+        // how much of each window's offset gets blended in
+        public static final double CLOCK_OFFSET_GAIN = 0.5;
+        // a camera is falling behind when capture to fuse averages over this
+        public static final double MAX_HEALTHY_LATENCY_SEC = 0.1;
+        // or when nothing has come in for this long
+        public static final double STALE_FRAME_SEC = 0.5;
+        // a falling behind camera's std devs are scaled by this. Its frames are older
+        // when they land, so more of the correction rests on replayed odometry
+        public static final double FALLING_BEHIND_STD_DEV_SCALE = 2;
+
+        // AprilTag pipeline switching
+        // every predicted tag has to be at least this tall at full resolution for
+        // the fast pipeline to still find it
+        public static final double FAST_PIPELINE_MIN_TAG_PIXELS = 40;
+        // a camera stays on a pipeline at least this long after switching
+        public static final double PIPELINE_MIN_DWELL_SEC = 1;
+        // and has this long to report the pipeline it was switched to
+        public static final double PIPELINE_CONFIRM_SEC = 0.5;
+        // counts as scoring at the amp within this distance of the approach pose
+        public static final double AMP_ZONE_RADIUS = 2; // meters
+
+        // indices of the pipelines set up on each AprilTag coprocessor. APRILTAG_FAST
+        // has to be added by hand in the PhotonVision UI, a copy of APRILTAG with the
+        // decimation raised. A camera that doesn't have it stays on APRILTAG
         public static enum Pipelines {
-                APRILTAG(0);
+                // full resolution, searches the whole frame
+                APRILTAG(0),
+                // same resolution with a higher detector decimation, so the intrinsics
+                // and corner coordinates still match but tags far away are missed
+                APRILTAG_FAST(1);
 
                 public int index;
 
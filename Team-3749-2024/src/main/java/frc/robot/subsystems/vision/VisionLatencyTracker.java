@@ -0,0 +1,190 @@
+package frc.robot.subsystems.vision;
+
+import java.util.EnumSet;
+
+import org.photonvision.targeting.PhotonPipelineResult;
+
+import edu.wpi.first.networktables.NetworkTableEvent;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.NetworkTablesJNI;
+import edu.wpi.first.networktables.RawSubscriber;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.utils.Histogram;
+
+/**
+ * Follows every AprilTag frame from capture to being fused into the pose
+ * estimator, and corrects its timestamp for the coprocessor's clock.
+ * <p>
+ * Each result is stamped on arrival by a NetworkTables listener. The publish
+ * time is the coprocessor's clock moved into ours by NT's own time sync, so
+ * receive minus publish is the network delay minus whatever that sync has
+ * wrong. The smallest of those over a window is taken as the offset, since the
+ * fastest frames barely spent any time on the wire. Capture to publish is the
+ * pipeline latency the coprocessor reports, receive to fuse is our loop, and
+ * the whole capture to fuse time decides whether a camera is falling behind,
+ * which Limelight uses to trust that camera's poses less. Everything is
+ * recorded into lock free histograms, the listener thread and the main loop
+ * both write to them. They're reset after every log so each one shows the
+ * last second rather than the whole match
+ */
+public class VisionLatencyTracker {
+
+        private static class CameraLatency {
+                final RawSubscriber subscriber;
+                final Histogram pipelineMs = new Histogram(0, 100, 50);
+                final Histogram transitMs = new Histogram(-50, 50, 100);
+                final Histogram fuseDelayMs = new Histogram(0, 100, 50);
+                final Histogram totalMs = new Histogram(0, 200, 100);
+                final String offsetKey;
+                final String pipelineKey;
+                final String totalKey;
+                final String transitKey;
+                final String fuseDelayKey;
+                final String behindKey;
+
+                // only touched by the listener thread
+                double windowMinTransit = Double.POSITIVE_INFINITY;
+                double windowStart = Double.NaN;
+
+                // written by the listener thread, read by the main loop
+                volatile double clockOffsetSec = 0;
+                volatile long lastPublishMicros = -1;
+                volatile long lastReceiveMicros = 0;
+                // every frame the coprocessor sent, only the listener thread writes it
+                volatile long framesReceived = 0;
+
+                // main loop only
+                double averageTotalSec = 0;
+
+                CameraLatency(String name) {
+                        subscriber = NetworkTableInstance.getDefault().getTable("photonvision").getSubTable(name)
+                                        .getRawTopic("rawBytes").subscribe("rawBytes", new byte[] {});
+                        offsetKey = "vision/" + name + " clock offset ms";
+                        pipelineKey = "vision/" + name + " capture to publish ms";
+                        totalKey = "vision/" + name + " capture to fuse ms";
+                        transitKey = "vision/" + name + " transit ms";
+                        fuseDelayKey = "vision/" + name + " receive to fuse ms";
+                        behindKey = "vision/" + name + " falling behind";
+                }
+        }
+
+        private final CameraLatency[] cameras;
+        private double lastLogTime = Timer.getFPGATimestamp();
+
+        /** @param cameraNames in Cam order */
+        public VisionLatencyTracker(String... cameraNames) {
+                cameras = new CameraLatency[cameraNames.length];
+                for (int c = 0; c < cameraNames.length; c++) {
+                        CameraLatency camera = new CameraLatency(cameraNames[c]);
+                        cameras[c] = camera;
+                        NetworkTableInstance.getDefault().addListener(camera.subscriber,
+                                        EnumSet.of(NetworkTableEvent.Kind.kValueAll),
+                                        event -> onReceive(camera, event.valueData.value.getTime()));
+                }
+        }
+
+        /** Runs on the NetworkTables listener thread */
+        private static void onReceive(CameraLatency camera, long publishMicros) {
+                long receiveMicros = NetworkTablesJNI.now();
+                double transitSec = (receiveMicros - publishMicros) / 1e6;
+                camera.transitMs.record(transitSec * 1000);
+
+                double receiveSec = receiveMicros / 1e6;
+                if (Double.isNaN(camera.windowStart)) {
+                        camera.windowStart = receiveSec;
+                }
+                camera.windowMinTransit = Math.min(camera.windowMinTransit, transitSec);
+                if (receiveSec - camera.windowStart > VisionConstants.CLOCK_OFFSET_WINDOW_SEC) {
+                        double offset = camera.windowMinTransit - VisionConstants.MIN_NETWORK_DELAY_SEC;
+                        offset = Math.max(-VisionConstants.MAX_CLOCK_OFFSET_SEC,
+                                        Math.min(VisionConstants.MAX_CLOCK_OFFSET_SEC, offset));
+                        camera.clockOffsetSec += (offset - camera.clockOffsetSec) * VisionConstants.CLOCK_OFFSET_GAIN;
+                        camera.windowMinTransit = Double.POSITIVE_INFINITY;
+                        camera.windowStart = receiveSec;
+                }
+
+                // invalidate first so a reader in between can tell the pair is torn
+                camera.lastPublishMicros = -1;
+                camera.lastReceiveMicros = receiveMicros;
+                camera.lastPublishMicros = publishMicros;
+                camera.framesReceived++;
+        }
+
+        /** @return a result's capture time moved onto the RIO's clock */
+        public double correctTimestamp(int cam, double timestampSeconds) {
+                return timestampSeconds + cameras[cam].clockOffsetSec;
+        }
+
+        /** Call right after a frame's pose was sent to the pose estimator */
+        public void recordFused(int cam, PhotonPipelineResult result) {
+                CameraLatency camera = cameras[cam];
+                double now = Timer.getFPGATimestamp();
+                double totalSec = now - correctTimestamp(cam, result.getTimestampSeconds());
+                camera.totalMs.record(totalSec * 1000);
+                camera.pipelineMs.record(result.getLatencyMillis());
+                camera.averageTotalSec += (totalSec - camera.averageTotalSec) * 0.2;
+
+                // photon's timestamp is the publish time minus the pipeline latency
+                long publishMicros = Math.round((result.getTimestampSeconds() + result.getLatencyMillis() / 1000) * 1e6);
+                long first = camera.lastPublishMicros;
+                long receiveMicros = camera.lastReceiveMicros;
+                long second = camera.lastPublishMicros;
+                if (first == second && Math.abs(first - publishMicros) < 5) {
+                        camera.fuseDelayMs.record((now * 1e6 - receiveMicros) / 1000);
+                }
+        }
+
+        /**
+         * @return whether frames are taking longer than
+         *         VisionConstants.MAX_HEALTHY_LATENCY_SEC to get fused, or have
+         *         stopped arriving
+         */
+        public boolean isFallingBehind(int cam) {
+                CameraLatency camera = cameras[cam];
+                double sinceReceiveSec = Timer.getFPGATimestamp() - camera.lastReceiveMicros / 1e6;
+                return camera.averageTotalSec > VisionConstants.MAX_HEALTHY_LATENCY_SEC
+                                || sinceReceiveSec > VisionConstants.STALE_FRAME_SEC;
+        }
+
+        /**
+         * @return how many frames have arrived from the camera, counted as they come
+         *         in rather than by polling, so it's right past the loop rate
+         */
+        public long getFramesReceived(int cam) {
+                return cameras[cam].framesReceived;
+        }
+
+        public double getClockOffsetSec(int cam) {
+                return cameras[cam].clockOffsetSec;
+        }
+
+        /** Puts every camera's last second of latencies on the dashboard, about once a second */
+        public void log() {
+                double now = Timer.getFPGATimestamp();
+                if (now - lastLogTime < 1) {
+                        return;
+                }
+                lastLogTime = now;
+                for (int c = 0; c < cameras.length; c++) {
+                        CameraLatency camera = cameras[c];
+                        SmartDashboard.putNumber(camera.offsetKey, camera.clockOffsetSec * 1000);
+                        SmartDashboard.putNumberArray(camera.pipelineKey, percentiles(camera.pipelineMs));
+                        SmartDashboard.putNumberArray(camera.totalKey, percentiles(camera.totalMs));
+                        SmartDashboard.putNumberArray(camera.transitKey, percentiles(camera.transitMs));
+                        SmartDashboard.putNumberArray(camera.fuseDelayKey, percentiles(camera.fuseDelayMs));
+                        SmartDashboard.putBoolean(camera.behindKey, isFallingBehind(c));
+                        // a frame recorded by the listener mid reset can be half counted,
+                        // which is one frame off in a second's worth
+                        camera.pipelineMs.reset();
+                        camera.totalMs.reset();
+                        camera.transitMs.reset();
+                        camera.fuseDelayMs.reset();
+                }
+        }
+
+        /** @return median, 95th percentile and max */
+        private static double[] percentiles(Histogram histogram) {
+                return new double[] { histogram.getPercentile(0.5), histogram.getPercentile(0.95), histogram.getMax() };
+        }
+}
@@ -0,0 +1,176 @@
+package frc.robot.subsystems.vision;
+
+import org.photonvision.PhotonCamera;
+import org.photonvision.targeting.PhotonPipelineResult;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.subsystems.arm.ShootKinematics;
+import frc.robot.subsystems.vision.VisionConstants.Pipelines;
+import frc.robot.utils.AutoConstants.AlignTarget;
+import frc.robot.utils.MiscConstants;
+
+/**
+ * Picks the pipeline each AprilTag camera runs and reports how fast they're
+ * actually going. The tags each camera should see from the current pose are
+ * projected into its image. Inside a scoring zone, when every tag in view is
+ * big enough to still be found, the camera runs the fast pipeline for more
+ * frames while aiming. Anywhere else, or with nothing predicted in view, it
+ * goes back to the full pipeline to search. A camera stays on a pipeline for
+ * VisionConstants.PIPELINE_MIN_DWELL_SEC so it doesn't keep restarting on a
+ * boundary. A switch only counts once the camera reports the new pipeline back,
+ * and a camera that never reports the fast one doesn't get asked for it again
+ */
+public class VisionResourceManager {
+
+        private final PhotonCamera[] cameras;
+        private final MultiCameraPoseSolver solver;
+        private final VisionLatencyTracker latencyTracker;
+
+        private final Pipelines[] pipelines;
+        private final double[] lastSwitchTime;
+        private final boolean[] fastUnavailable;
+        private final int[] predictedTags;
+        private final double[] smallestTagPixels;
+
+        private final double[] lastFrameTimestamp;
+        // frames the loop saw, only for the latency average. FPS comes from the
+        // tracker, which sees every frame even past the loop rate
+        private final int[] sampledFrames;
+        private final double[] latencySumMs;
+        private final long[] lastFramesReceived;
+        private final String[] fpsKeys;
+        private final String[] latencyKeys;
+        private final String[] pipelineKeys;
+        private final String[] reportedPipelineKeys;
+        private final String[] predictedKeys;
+        private double lastLogTime = Timer.getFPGATimestamp();
+
+        private final double[] bounds = new double[4];
+
+        /**
+         * @param latencyTracker counts the frames for FPS, tracking the same cameras
+         *                       in the same order
+         * @param cameras        in the same order as the solver's camera placements
+         */
+        public VisionResourceManager(MultiCameraPoseSolver solver, VisionLatencyTracker latencyTracker,
+                        PhotonCamera... cameras) {
+                this.solver = solver;
+                this.latencyTracker = latencyTracker;
+                this.cameras = cameras;
+                int count = cameras.length;
+                pipelines = new Pipelines[count];
+                lastSwitchTime = new double[count];
+                fastUnavailable = new boolean[count];
+                predictedTags = new int[count];
+                smallestTagPixels = new double[count];
+                lastFrameTimestamp = new double[count];
+                sampledFrames = new int[count];
+                latencySumMs = new double[count];
+                lastFramesReceived = new long[count];
+                fpsKeys = new String[count];
+                latencyKeys = new String[count];
+                pipelineKeys = new String[count];
+                reportedPipelineKeys = new String[count];
+                predictedKeys = new String[count];
+                for (int c = 0; c < count; c++) {
+                        String name = cameras[c].getName();
+                        fpsKeys[c] = "vision/" + name + " fps";
+                        latencyKeys[c] = "vision/" + name + " latency ms";
+                        pipelineKeys[c] = "vision/" + name + " pipeline";
+                        reportedPipelineKeys[c] = "vision/" + name + " reported pipeline";
+                        predictedKeys[c] = "vision/" + name + " predicted tags";
+                        lastSwitchTime[c] = Double.NEGATIVE_INFINITY;
+                }
+        }
+
+        /** Counts a camera's frame toward its average latency if it's a new one */
+        public void recordFrame(int cam, PhotonPipelineResult result) {
+                double timestamp = result.getTimestampSeconds();
+                if (timestamp == lastFrameTimestamp[cam]) {
+                        return;
+                }
+                lastFrameTimestamp[cam] = timestamp;
+                sampledFrames[cam]++;
+                latencySumMs[cam] += result.getLatencyMillis();
+        }
+
+        /** Call once per loop after the frames are recorded */
+        public void update(Pose2d robotPose) {
+                double now = Timer.getFPGATimestamp();
+                boolean scoring = isInScoringZone(robotPose);
+                for (int c = 0; c < cameras.length; c++) {
+                        predictTags(c, robotPose);
+                        // a disconnected camera can't report anything, that's not a missing pipeline
+                        boolean unconfirmed = pipelines[c] != null && cameras[c].isConnected()
+                                        && cameras[c].getPipelineIndex() != pipelines[c].index
+                                        && now - lastSwitchTime[c] > VisionConstants.PIPELINE_CONFIRM_SEC;
+                        if (unconfirmed && pipelines[c] == Pipelines.APRILTAG_FAST) {
+                                // most likely the pipeline was never set up on the coprocessor
+                                fastUnavailable[c] = true;
+                                DriverStation.reportWarning(cameras[c].getName() + " never switched to pipeline "
+                                                + Pipelines.APRILTAG_FAST.index + ", staying on the full pipeline", false);
+                        }
+                        Pipelines wanted = scoring && !fastUnavailable[c] && predictedTags[c] > 0
+                                        && smallestTagPixels[c] >= VisionConstants.FAST_PIPELINE_MIN_TAG_PIXELS
+                                                        ? Pipelines.APRILTAG_FAST
+                                                        : Pipelines.APRILTAG;
+                        if (unconfirmed
+                                        || wanted != pipelines[c] && now - lastSwitchTime[c] > VisionConstants.PIPELINE_MIN_DWELL_SEC) {
+                                // an unconfirmed switch is asked for again, the request may have been lost
+                                cameras[c].setPipelineIndex(wanted.index);
+                                pipelines[c] = wanted;
+                                lastSwitchTime[c] = now;
+                        }
+                }
+                logRates(now);
+        }
+
+        private void predictTags(int cam, Pose2d robotPose) {
+                predictedTags[cam] = 0;
+                smallestTagPixels[cam] = Double.POSITIVE_INFINITY;
+                for (int id = 0; id <= solver.getMaxTagId(); id++) {
+                        if (solver.projectTag(cam, id, robotPose, bounds)) {
+                                predictedTags[cam]++;
+                                smallestTagPixels[cam] = Math.min(smallestTagPixels[cam], bounds[3] - bounds[1]);
+                        }
+                }
+        }
+
+        private static boolean isInScoringZone(Pose2d robotPose) {
+                boolean isRed = MiscConstants.isRedAlliance();
+                if (robotPose.getTranslation().getDistance(ShootKinematics.getSpeakerPosition(isRed)) < ShootKinematics
+                                .getMaxDistance()) {
+                        return true;
+                }
+                return robotPose.getTranslation().getDistance(
+                                AlignTarget.AMP.getPose(isRed).getTranslation()) < VisionConstants.AMP_ZONE_RADIUS;
+        }
+
+        private void logRates(double now) {
+                double elapsed = now - lastLogTime;
+                if (elapsed < 1) {
+                        return;
+                }
+                lastLogTime = now;
+                for (int c = 0; c < cameras.length; c++) {
+                        long framesReceived = latencyTracker.getFramesReceived(c);
+                        SmartDashboard.putNumber(fpsKeys[c], (framesReceived - lastFramesReceived[c]) / elapsed);
+                        SmartDashboard.putNumber(latencyKeys[c],
+                                        sampledFrames[c] > 0 ? latencySumMs[c] / sampledFrames[c] : 0);
+                        SmartDashboard.putString(pipelineKeys[c],
+                                        pipelines[c] == null ? "unset" : pipelines[c].toString());
+                        SmartDashboard.putNumber(reportedPipelineKeys[c], cameras[c].getPipelineIndex());
+                        SmartDashboard.putNumber(predictedKeys[c], predictedTags[c]);
+                        lastFramesReceived[c] = framesReceived;
+                        sampledFrames[c] = 0;
+                        latencySumMs[c] = 0;
+                }
+        }
+
+        public Pipelines getPipeline(int cam) {
+                return pipelines[cam];
+        }
+}
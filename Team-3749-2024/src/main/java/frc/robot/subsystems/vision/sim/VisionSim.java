@@ -0,0 +1,57 @@
+package frc.robot.subsystems.vision.sim;
+
+import org.photonvision.PhotonCamera;
+import org.photonvision.simulation.PhotonCameraSim;
+import org.photonvision.simulation.SimCameraProperties;
+import org.photonvision.simulation.VisionSystemSim;
+
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.subsystems.vision.VisionConstants;
+
+/**
+ * Renders the field's AprilTags into the PhotonCameras from the simulated
+ * robot pose, so the coprocessor results Limelight reads in sim come through
+ * the same path as on the robot. Resolution, noise, FPS and latency are set
+ * from the SIM_CAM constants in VisionConstants
+ */
+public class VisionSim {
+
+        private final VisionSystemSim visionSystem = new VisionSystemSim("apriltags");
+
+        public VisionSim(AprilTagFieldLayout layout) {
+                visionSystem.addAprilTags(layout);
+                SmartDashboard.putData("vision sim field", visionSystem.getDebugField());
+        }
+
+        public void addCamera(PhotonCamera camera, Transform3d robotToCam) {
+                PhotonCameraSim cameraSim = new PhotonCameraSim(camera, getCameraProperties());
+                cameraSim.enableRawStream(VisionConstants.SIM_CAM_STREAMS);
+                cameraSim.enableProcessedStream(VisionConstants.SIM_CAM_STREAMS);
+                cameraSim.enableDrawWireframe(VisionConstants.SIM_CAM_STREAMS);
+                visionSystem.addCamera(cameraSim, robotToCam);
+        }
+
+        private static SimCameraProperties getCameraProperties() {
+                SimCameraProperties properties = new SimCameraProperties();
+                properties.setCalibration(VisionConstants.SIM_CAM_WIDTH_PX, VisionConstants.SIM_CAM_HEIGHT_PX,
+                                Rotation2d.fromDegrees(VisionConstants.SIM_CAM_DIAGONAL_FOV_DEG));
+                properties.setCalibError(VisionConstants.SIM_CAM_AVG_CORNER_ERROR_PX,
+                                VisionConstants.SIM_CAM_CORNER_ERROR_STD_DEV_PX);
+                properties.setFPS(VisionConstants.SIM_CAM_FPS);
+                properties.setAvgLatencyMs(VisionConstants.SIM_CAM_AVG_LATENCY_MS);
+                properties.setLatencyStdDevMs(VisionConstants.SIM_CAM_LATENCY_STD_DEV_MS);
+                return properties;
+        }
+
+        /**
+         * @param robotPose where the robot really is, not the estimate the
+         *                  cameras are about to correct
+         */
+        public void update(Pose2d robotPose) {
+                visionSystem.update(robotPose);
+        }
+}
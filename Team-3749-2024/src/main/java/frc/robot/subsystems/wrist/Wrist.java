@@ -2,10 +2,10 @@ package frc.robot.subsystems.wrist;
 
 import java.util.HashMap;
 
-import edu.wpi.first.math.controller.ArmFeedforward;
-import edu.wpi.first.math.controller.ProfiledPIDController;
-import edu.wpi.first.math.trajectory.TrapezoidProfile.State;
+import edu.wpi.first.math.trajectory.ExponentialProfile.Constraints;
+import edu.wpi.first.math.trajectory.ExponentialProfile.State;
 import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.smartdashboard.Mechanism2d;
 import edu.wpi.first.wpilibj.smartdashboard.MechanismLigament2d;
 import edu.wpi.first.wpilibj.smartdashboard.MechanismRoot2d;
@@ -15,21 +15,19 @@ import frc.robot.Robot;
 import frc.robot.subsystems.arm.ArmConstants.ArmStates;
 import frc.robot.subsystems.wrist.WristConstants.WristStates;
 import frc.robot.subsystems.wrist.WristIO.WristData;
+import frc.robot.utils.MiscConstants;
+import frc.robot.utils.MotorThermalModel;
 import frc.robot.utils.ShuffleData;
-import frc.robot.utils.UtilityFunctions;
-import edu.wpi.first.wpilibj.Timer;
 
 public class Wrist extends SubsystemBase {
     // hello test
     private WristIO wristIO;
     private WristData data = new WristData();
 
-    private ProfiledPIDController wristController = new ProfiledPIDController(WristConstants.PID.kP,
-            WristConstants.PID.kI, WristConstants.PID.kD,
-            WristConstants.trapezoidConstraint);
-
-    private ArmFeedforward wristFF = new ArmFeedforward(WristConstants.simkS, WristConstants.simkG,
-            WristConstants.simkV);
+    // motion profile from the motor model, see Arm
+    private WristClosedLoop closedLoopControl = new WristClosedLoop(MiscConstants.controlPeriodSec,
+            getProfileConstraints(WristConstants.stowGoalRad, WristConstants.fullDeployedRad));
+    private boolean profileRunning = false;
 
     private HashMap<Boolean, Double> setpointToggle = new HashMap<Boolean, Double>();
 
@@ -50,6 +48,10 @@ public class Wrist extends SubsystemBase {
     // private ShuffleData<Double> setpointVelocityLog = new
     // ShuffleData<Double>(this.getName(), "setpoint velocity",
     // 0.0);
+    private ShuffleData<Double> trackingErrorRMSLog = new ShuffleData<Double>(this.getName(),
+            "tracking error rms", 0.0);
+    private ShuffleData<Double> trackingErrorMaxLog = new ShuffleData<Double>(this.getName(),
+            "tracking error max", 0.0);
     private ShuffleData<String> stateLog = new ShuffleData<String>(this.getName(), "state",
             WristStates.STOW.name());
 
@@ -60,38 +62,71 @@ public class Wrist extends SubsystemBase {
         if (Robot.isSimulation()) {
             wristIO = new WristSim();
         }
-        wristController.setGoal(WristConstants.stowGoalRad);
         state = WristStates.STOW;
     }
 
     public void setGoal(WristStates state) {
         switch (state) {
             case ALMOST_DEPLOYED:
-                wristController.setGoal(WristConstants.almostDeployedRad);
+                setGoal(WristConstants.almostDeployedRad);
                 break;
             case PASS:
-                wristController.setGoal(WristConstants.passingRad);
+                setGoal(WristConstants.passingRad);
                 break;
             case FULL_DEPLOYED:
-                wristController.setGoal(WristConstants.fullDeployedRad);
+                setGoal(WristConstants.fullDeployedRad);
                 break;
             case SUBWOOFER:
-                wristController.setGoal(WristConstants.subwooferRad);
+                setGoal(WristConstants.subwooferRad);
                 break;
 
             default: // STOW condition + something went horribly wrong :)
-                wristController.setGoal(WristConstants.stowGoalRad);
+                setGoal(WristConstants.stowGoalRad);
                 break;
         }
 
     }
 
+    public void setGoal(double goalRad) {
+        closedLoopControl.setGoal(goalRad);
+    }
+
+    public void setConstraints(Constraints constraints) {
+        closedLoopControl.setConstraints(constraints);
+    }
+
+    /**
+     * Profile constraints for a move between two angles, with kS and the most
+     * gravity feedforward anywhere along the move taken off the top, and
+     * acceleration capped at WristConstants.maxProfileAccelRadPerSec2
+     */
+    public static Constraints getProfileConstraints(double startRad, double goalRad) {
+        double maxGravityVolts = 0;
+        for (int i = 0; i <= 10; i++) {
+            double positionRad = startRad + (goalRad - startRad) * i / 10.0;
+            double gravityVolts = Robot.isSimulation()
+                    ? WristConstants.simkG * Math.cos(positionRad)
+                    : gravityFeedForward(positionRad);
+            maxGravityVolts = Math.max(maxGravityVolts, Math.abs(gravityVolts));
+        }
+        double kS = Robot.isSimulation() ? WristConstants.simkS : WristConstants.realkS;
+        // the slower direction's kV, so the profile can be followed both ways
+        double kV = Robot.isSimulation()
+                ? WristConstants.simkV
+                : Math.max(WristConstants.realkVForward, WristConstants.realkVBackward);
+        double kA = Robot.isSimulation() ? WristConstants.simkA : WristConstants.realkA;
+        double volts = WristConstants.profileVolts - kS - maxGravityVolts;
+        // see Arm.getProfileConstraints
+        kA = Math.max(kA, volts / WristConstants.maxProfileAccelRadPerSec2);
+        return Constraints.fromCharacteristics(volts, kV, kA);
+    }
+
     public State getWristGoal() {
-        return wristController.getGoal();
+        return closedLoopControl.getGoal();
     }
 
     public State getWristSetpoint() {
-        return wristController.getSetpoint();
+        return closedLoopControl.getSetpoint();
     }
 
     public WristStates getState() {
@@ -106,76 +141,83 @@ public class Wrist extends SubsystemBase {
         return (data.velocityRadPerSec);
     }
 
-    private Timer timer = new Timer();
+    public double getCurrentAmps() {
+        return Math.abs(data.currentAmps);
+    }
 
-    public void moveWristToGoal() {
+    // moveWristToGoal only asks for closed loop control, which then runs in
+    // controlPeriodic until a loop goes by without it being asked for again
+    private boolean closedLoopRequested = false;
+    private boolean closedLoop = false;
+    private double pendingVolts = 0;
 
-        double pidGain = wristController.calculate(data.positionRad);
+    private MotorThermalModel thermal = new MotorThermalModel("wrist", 40);
 
-        State setpoint = Robot.wrist.getWristSetpoint();
-        double velocityRadPerSec = setpoint.velocity;
-        double positionRad = setpoint.position;
+    private double trackingErrorSumSquared = 0;
+    private double trackingErrorMax = 0;
+    private int trackingErrorSamples = 0;
 
-        double voltage = UtilityFunctions.withinMargin(0.35, getWristGoal().position, data.positionRad)
-                ? pidGain
-                : 0;
+    /** Runs the profile and feedback in controlPeriodic for this loop */
+    public void moveWristToGoal() {
+        closedLoopRequested = true;
+        closedLoop = true;
+    }
 
-        if ((positionRad == WristConstants.stowGoalRad)
-                && Math.abs(data.velocityRadPerSec) < 0.05) {
-            setVoltage(pidGain);
+    /** Reads the encoders and runs feedback, every control period */
+    public void controlPeriodic() {
+        wristIO.updateControlData(data);
+        if (!closedLoop || !DriverStation.isEnabled()) {
+            profileRunning = false;
             return;
         }
-
-        if (Robot.isSimulation()) {
-
-            voltage += wristFF.calculate(data.positionRad, velocityRadPerSec); // is getting the goal redundant?
-        } else {
-            voltage += Math.signum(pidGain) * WristConstants.realkS;
-            voltage += getWristGoal().position == WristConstants.almostDeployedRad
-
-                    ? velocityRadPerSec * WristConstants.realkVForward
-                    : velocityRadPerSec * WristConstants.realkVBackward;
-            voltage += calculateGravityFeedForward(data.positionRad, Robot.arm.getPositionRad());
+        if (!profileRunning) {
+            closedLoopControl.start(data.positionRad, data.velocityRadPerSec);
+            profileRunning = true;
         }
-        if (state == WristStates.FULL_DEPLOYED && getWristGoal().position == WristConstants.fullDeployedRad
-                && voltage < 1.5) {
-            if (timer.get() == 0) {
-                timer.start();
-            }
-            if (timer.get() < 0.25) {
-
-                voltage = 1.5;
-            }
-        } else {
-
-            timer.stop();
-            timer.reset();
-        }
-        setVoltage(voltage);
-        // double volts = 0;
-        // volts += calculateGravityFeedForward(data.positionRad,
-        // Robot.arm.getPositionRad());
-        // volts += kSData.get()* Math.signum(pidGain) ;
-        // volts += setpoint.velocity * kVData.get();
-        // volts += accelerationSetpoint * kAData.get();
-        // volts += (setpoint.position - getPositionRad()) * kPData.get();
-        // setVoltage(volts);
+        wristIO.setVoltage(closedLoopControl.step(data.positionRad, data.velocityRadPerSec, state));
 
+        double error = Math.abs(getWristSetpoint().position - data.positionRad);
+        trackingErrorSumSquared += error * error;
+        trackingErrorMax = Math.max(trackingErrorMax, error);
+        trackingErrorSamples++;
     }
 
+    /** Open loop voltage, written in {@link #writeOutputs()} */
     public void setVoltage(double volts) {
-        wristIO.setVoltage(volts);
+        closedLoop = false;
+        closedLoopRequested = false;
+        pendingVolts = volts;
+    }
+
+    /** Reads everything but the encoders, which controlPeriodic keeps fresh */
+    public void readInputs() {
+        wristIO.updateData(data);
+        thermal.update(data.currentAmps, data.tempCelcius);
+    }
+
+    /** Sends the open loop voltage, closed loop output is sent by controlPeriodic */
+    public void writeOutputs() {
+        if (!closedLoop) {
+            wristIO.setVoltage(pendingVolts);
+        }
+        wristIO.setCurrentLimit(thermal.getCurrentLimitAmps());
     }
 
     // private ShuffleData<Double> kGData = new ShuffleData<Double>("wrist",
     // "kGData", 0.0);
 
     public void runFF(double add) {
+        closedLoop = false;
+        closedLoopRequested = false;
 
-        wristIO.setVoltage(calculateGravityFeedForward(data.positionRad, Robot.arm.getPositionRad()) + add);
+        pendingVolts = calculateGravityFeedForward(data.positionRad, Robot.arm.getPositionRad()) + add;
     }
 
     public double calculateGravityFeedForward(double wristPositionRad, double armPositionRad) {
+        return gravityFeedForward(wristPositionRad);
+    }
+
+    static double gravityFeedForward(double wristPositionRad) {
         // the way data was collected has it on the front end of the FF rather than the
         // middle. the 0.6 helps to alliviate this at the cost of working well at
         // variable arm angle. Yes, that kinda defeats some of the purpose of the
@@ -196,7 +238,6 @@ public class Wrist extends SubsystemBase {
         // System.out.println(Math.abs(getVelocityRadPerSec()) > 0.125);
         if (!atGoal() || Math.abs(getVelocityRadPerSec()) > 0.8) {
             state = WristStates.IN_TRANIST;
-            Robot.arm.setDeployedMode(true);
             return;
         }
 
@@ -211,7 +252,6 @@ public class Wrist extends SubsystemBase {
         }
         if (getWristGoal().position == WristConstants.stowGoalRad) {
             state = WristStates.STOW;
-            Robot.arm.setDeployedMode(false);
             return;
 
         }
@@ -231,7 +271,8 @@ public class Wrist extends SubsystemBase {
 
     @Override
     public void periodic() {
-        wristIO.updateData(data);
+        closedLoop = closedLoopRequested;
+        closedLoopRequested = false;
         updateState();
         // moveWristToGoal();
         // mechanismArm.setAngle(data.positionRad);
@@ -245,6 +286,13 @@ public class Wrist extends SubsystemBase {
         // setpointVelocityLog.set(Units.radiansToDegrees(getWristSetpoint().velocity));
         voltageLog.set(data.appliedVolts);
         currentLog.set(data.currentAmps);
+        if (trackingErrorSamples > 0) {
+            trackingErrorRMSLog.set(Units.radiansToDegrees(Math.sqrt(trackingErrorSumSquared / trackingErrorSamples)));
+            trackingErrorMaxLog.set(Units.radiansToDegrees(trackingErrorMax));
+            trackingErrorSumSquared = 0;
+            trackingErrorMax = 0;
+            trackingErrorSamples = 0;
+        }
         // errorPositionLog.set(Units.radiansToDegrees(getWristSetpoint().position -
         // data.positionRad));
         // errorVelocityLog.set(Units.radiansToDegrees(getWristSetpoint().velocity -
@@ -0,0 +1,109 @@
+package frc.robot.subsystems.wrist;
+
+import edu.wpi.first.math.controller.ArmFeedforward;
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.trajectory.ExponentialProfile;
+import edu.wpi.first.math.trajectory.ExponentialProfile.Constraints;
+import edu.wpi.first.math.trajectory.ExponentialProfile.State;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Robot;
+import frc.robot.subsystems.wrist.WristConstants.WristStates;
+import frc.robot.utils.UtilityFunctions;
+
+/**
+ * The wrist's motion profile, feedback and feedforward, stepped once a control
+ * period. Wrist owns one and sends its output to the motor, and the sim tests
+ * run the same loop against WristSim
+ */
+class WristClosedLoop {
+
+    private final double periodSec;
+    private final PIDController controller;
+    private final ArmFeedforward simFeedforward = new ArmFeedforward(WristConstants.simkS, WristConstants.simkG,
+            WristConstants.simkV, WristConstants.simkA);
+
+    private ExponentialProfile profile;
+    private State goal = new State(WristConstants.stowGoalRad, 0);
+    private State setpoint = new State(WristConstants.stowGoalRad, 0);
+    private Timer deployKickTimer = new Timer();
+
+    /** @param periodSec how often {@link #step} is called */
+    WristClosedLoop(double periodSec, Constraints constraints) {
+        this.periodSec = periodSec;
+        controller = new PIDController(WristConstants.PID.kP, WristConstants.PID.kI, WristConstants.PID.kD,
+                periodSec);
+        profile = new ExponentialProfile(constraints);
+    }
+
+    void setGoal(double goalRad) {
+        goal = new State(goalRad, 0);
+    }
+
+    void setConstraints(Constraints constraints) {
+        profile = new ExponentialProfile(constraints);
+    }
+
+    State getGoal() {
+        return goal;
+    }
+
+    State getSetpoint() {
+        return setpoint;
+    }
+
+    /** Starts the profile from where the wrist is rather than wherever the last move left off */
+    void start(double positionRad, double velocityRadPerSec) {
+        setpoint = new State(positionRad, velocityRadPerSec);
+        controller.reset();
+    }
+
+    /**
+     * Moves the setpoint one period along the profile
+     *
+     * @param state the wrist's current state, fully deployed gets a push to seat it
+     * @return volts to follow the new setpoint
+     */
+    double step(double positionRad, double velocityRadPerSec, WristStates state) {
+        double previousVelocity = setpoint.velocity;
+        setpoint = profile.calculate(periodSec, setpoint, goal);
+        double accelerationSetpoint = (setpoint.velocity - previousVelocity) / periodSec;
+        double pidGain = controller.calculate(positionRad, setpoint.position);
+
+        double voltage = UtilityFunctions.withinMargin(0.35, goal.position, positionRad)
+                ? pidGain
+                : 0;
+
+        if ((setpoint.position == WristConstants.stowGoalRad)
+                && Math.abs(velocityRadPerSec) < 0.05) {
+            return pidGain;
+        }
+
+        if (Robot.isSimulation()) {
+
+            voltage += simFeedforward.calculate(positionRad, setpoint.velocity, accelerationSetpoint);
+        } else {
+            voltage += Math.signum(pidGain) * WristConstants.realkS;
+            voltage += goal.position == WristConstants.almostDeployedRad
+
+                    ? setpoint.velocity * WristConstants.realkVForward
+                    : setpoint.velocity * WristConstants.realkVBackward;
+            // no kA term, realkA is a guess that only shapes the profile
+            voltage += Wrist.gravityFeedForward(positionRad);
+        }
+        if (state == WristStates.FULL_DEPLOYED && goal.position == WristConstants.fullDeployedRad
+                && voltage < 1.5) {
+            if (deployKickTimer.get() == 0) {
+                deployKickTimer.start();
+            }
+            if (deployKickTimer.get() < 0.25) {
+
+                voltage = 1.5;
+            }
+        } else {
+
+            deployKickTimer.stop();
+            deployKickTimer.reset();
+        }
+        return voltage;
+    }
+}
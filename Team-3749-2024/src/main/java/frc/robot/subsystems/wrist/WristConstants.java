@@ -2,7 +2,6 @@ package frc.robot.subsystems.wrist;
 
 import com.pathplanner.lib.util.PIDConstants;
 
-import edu.wpi.first.math.trajectory.TrapezoidProfile.Constraints;
 import edu.wpi.first.math.util.Units;
 import frc.robot.Robot;
 
@@ -38,27 +37,31 @@ public final class WristConstants {
 
         public static final PIDConstants PID = Robot.isReal() ? realPID : simPID;
 
-        private static final Constraints simConstraint = new Constraints(
-                        Math.PI,
-                        2 * Math.PI); // we stealing from arm with
-        // this one
-        private static final Constraints realConstraint = new Constraints(
-                        2.25 * Math.PI,
-                        1.75 * Math.PI);
+        // volts the motion profile plans with, see ArmConstants.profileVolts. The sim
+        // clamps to 8
+        public static final double profileVolts = Robot.isReal() ? 10 : 7;
+        // see ArmConstants.maxProfileAccelRadPerSec2, the old trapezoid's limit until
+        // realkA is characterized
+        public static final double maxProfileAccelRadPerSec2 = Robot.isReal() ? 1.75 * Math.PI
+                        : Double.POSITIVE_INFINITY;
 
-        public static final Constraints trapezoidConstraint = Robot.isReal()
-                        ? realConstraint
-                        : simConstraint;
+        // past this the intake is outside the frame perimeter unless the arm is below
+        // ArmConstants.maxArmRadWithWristDeployed
+        public static final double maxWristRadInFramePerimeter = almostDeployedRad;
 
         // thanks arm (robbery)
         public static final double simkS = 0.0;
         public static final double simkG = .33775;
         public static final double simkV = 6.616;
-        public static final double simkA = 0;
+        public static final double simkA = 0.0105; // one NEO into the same sim arm
 
         public static final double realkS = 0.0;
         public static final double realkVForward = 3.95;// 1.6 // radians
         public static final double realkVBackward = 2.8; // radians
+        // not characterized yet, on the slow side so the profile stays followable.
+        // Only the profile plans with it, it stays out of the feedforward until it's
+        // measured
+        public static final double realkA = 0.15;
 
         public static final double kYIntercept = 0.0654;
         public static final double kBar = 0.635;
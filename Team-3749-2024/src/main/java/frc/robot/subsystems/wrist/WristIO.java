@@ -28,10 +28,20 @@ public interface WristIO {
 
     }
 
+    /** Updates only what feedback needs. Called every control period */
+    public default void updateControlData(WristData data) {
+
+    }
+
     /** Run the drive motor at the specified voltage. */
     public default void setVoltage(double volts) {
         
     }
+    /** Sets the smart current limit. Implementations only send it when it changes */
+    public default void setCurrentLimit(int amps) {
+
+    }
+
     public default void setBrakeMode(){
 
     }
@@ -4,7 +4,7 @@ import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.simulation.SingleJointedArmSim;
-import frc.robot.utils.MiscConstants.Sim;
+import frc.robot.utils.MiscConstants;
 
 public class WristSim implements WristIO {
     
@@ -18,22 +18,34 @@ public class WristSim implements WristIO {
         true,
         Units.degreesToRadians(0));
     private double appliedVolts = 0.0;
+    private final double periodSec;
     
     public WristSim() 
     {
-        
-        
+        this(MiscConstants.controlPeriodSec);
+    }
+
+    /** @param periodSec how far the sim steps every updateControlData */
+    public WristSim(double periodSec)
+    {
+        this.periodSec = periodSec;
     }
 
+   @Override
+   public void updateControlData(WristData data)
+   {
+    // the sim is only stepped here, once every control period
+    wristMotor.update(periodSec);
+    data.velocityRadPerSec = wristMotor.getVelocityRadPerSec();
+    data.positionRad = wristMotor.getAngleRads();
+   }
+
    @Override
    public void updateData(WristData data) 
    {
-    wristMotor.update(Sim.loopPeriodSec);
     data.tempCelcius = 0;
-    data.velocityRadPerSec = wristMotor.getVelocityRadPerSec();
     data.currentAmps = wristMotor.getCurrentDrawAmps();
     data.appliedVolts = appliedVolts;
-    data.positionRad = wristMotor.getAngleRads();//(data.positionRad + (data.velocityRadPerSec * 0.02));
 
    }
 
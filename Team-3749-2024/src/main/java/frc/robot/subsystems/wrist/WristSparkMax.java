@@ -6,8 +6,12 @@ import com.revrobotics.RelativeEncoder;
 import com.revrobotics.SparkAbsoluteEncoder;
 import com.revrobotics.CANSparkBase.IdleMode;
 import com.revrobotics.CANSparkLowLevel.MotorType;
+import com.revrobotics.CANSparkLowLevel.PeriodicFrame;
 
 import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.utils.MiscConstants;
+import frc.robot.utils.VoltageOutput;
 
 /*
  * note from jonathan:
@@ -21,8 +25,11 @@ public class WristSparkMax implements WristIO {
 private CANSparkMax wristMotor = new CANSparkMax(WristConstants.wristId, MotorType.kBrushless);
     private AbsoluteEncoder wristEncoder = wristMotor.getAbsoluteEncoder(SparkAbsoluteEncoder.Type.kDutyCycle);
     private RelativeEncoder relativeEncoder = wristMotor.getEncoder();
+    private VoltageOutput output = new VoltageOutput("wrist", wristMotor::setVoltage);
     private double appliedVolts = 0;
+    private int currentLimitAmps = 40;
     private double previousVelocity = 0;
+    private double previousVelocityTime = Double.NaN;
 
     public WristSparkMax() {
         
@@ -30,8 +37,11 @@ private CANSparkMax wristMotor = new CANSparkMax(WristConstants.wristId, MotorTy
         wristEncoder.setVelocityConversionFactor(2 * Math.PI);
         relativeEncoder.setVelocityConversionFactor(2*Math.PI / 150.0 / 60.0);
         wristMotor.setInverted(true);
-        wristMotor.setSmartCurrentLimit(40);
+        wristMotor.setSmartCurrentLimit(currentLimitAmps);
         wristMotor.setIdleMode(IdleMode.kCoast);
+        // relative encoder velocity and absolute encoder position
+        wristMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus1, MiscConstants.controlStatusFramePeriodMs);
+        wristMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus5, MiscConstants.controlStatusFramePeriodMs);
 
     }
 
@@ -53,13 +63,26 @@ private CANSparkMax wristMotor = new CANSparkMax(WristConstants.wristId, MotorTy
     
 
     @Override
-    public void updateData(WristData data) {
-        previousVelocity = data.velocityRadPerSec;
-
+    public void updateControlData(WristData data) {
         data.positionRad = getAbsolutePosition() ;
         data.velocityRadPerSec = relativeEncoder.getVelocity();
-        data.accelerationRadPerSecSquared = (relativeEncoder.getVelocity() - previousVelocity) / 0.02;
 
+        // only difference new velocity frames, see ArmSparkMax
+        double now = Timer.getFPGATimestamp();
+        if (data.velocityRadPerSec != previousVelocity) {
+            if (!Double.isNaN(previousVelocityTime)) {
+                data.accelerationRadPerSecSquared = (data.velocityRadPerSec - previousVelocity)
+                        / (now - previousVelocityTime);
+            }
+            previousVelocity = data.velocityRadPerSec;
+            previousVelocityTime = now;
+        } else if (now - previousVelocityTime > MiscConstants.accelerationStaleSec) {
+            data.accelerationRadPerSecSquared = 0;
+        }
+    }
+
+    @Override
+    public void updateData(WristData data) {
         data.appliedVolts = wristMotor.getBusVoltage() * wristMotor.getAppliedOutput();
         data.currentAmps = wristMotor.getOutputCurrent();
         data.tempCelcius = wristMotor.getMotorTemperature();
@@ -69,8 +92,17 @@ private CANSparkMax wristMotor = new CANSparkMax(WristConstants.wristId, MotorTy
     @Override
     public void setVoltage(double volts) {
         appliedVolts = MathUtil.clamp(volts, -12, 12);
-        wristMotor.setVoltage(appliedVolts);
+        output.setVoltage(appliedVolts);
     }
+    @Override
+    public void setCurrentLimit(int amps) {
+        if (amps == currentLimitAmps) {
+            return;
+        }
+        currentLimitAmps = amps;
+        wristMotor.setSmartCurrentLimit(amps);
+    }
+
     @Override
     public void setBrakeMode() {
         wristMotor.setIdleMode(IdleMode.kBrake);
@@ -2,9 +2,14 @@ package frc.robot.utils;
 
 import com.pathplanner.lib.path.PathConstraints;
 import com.pathplanner.lib.util.HolonomicPathFollowerConfig;
+import com.pathplanner.lib.util.GeometryUtil;
 import com.pathplanner.lib.util.PIDConstants;
 import com.pathplanner.lib.util.ReplanningConfig;
 
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.util.Units;
 import frc.robot.subsystems.swerve.SwerveConstants.DriveConstants;
 
 public final class AutoConstants {
@@ -41,4 +46,50 @@ public final class AutoConstants {
                         DriveConstants.maxAngularSpeedRadiansPerSecond,
                         DriveConstants.maxAngularAccelerationRadiansPerSecondSquared);
 
+        // Blue alliance spots the robot drives to before scoring or intaking, flipped
+        // for red
+        public static final Translation2d blueAmpApproach = new Translation2d(1.76, 7.73);
+        public static final Translation2d blueSpeakerApproach = new Translation2d(1.42, 5.55);
+        public static final Translation2d blueSourceApproach = new Translation2d(15.35, 1.1);
+        public static final Translation2d blueStageShotApproach = new Translation2d(2.6, 4.3);
+
+        /**
+         * Poses that DriveToPose lines up on. Both alliances are flipped once here so
+         * nothing is flipped while driving
+         */
+        public enum AlignTarget {
+                AMP(new Pose2d(blueAmpApproach, Rotation2d.fromDegrees(90))),
+                // the shooter is on the back, so face away from the speaker
+                SPEAKER(new Pose2d(blueSpeakerApproach, Rotation2d.fromDegrees(0))),
+                SOURCE(new Pose2d(blueSourceApproach, Rotation2d.fromDegrees(120))),
+                STAGE_SHOT(new Pose2d(blueStageShotApproach, Rotation2d.fromDegrees(-25.7)));
+
+                public final Pose2d bluePose;
+                public final Pose2d redPose;
+
+                AlignTarget(Pose2d bluePose) {
+                        this.bluePose = bluePose;
+                        this.redPose = GeometryUtil.flipFieldPose(bluePose);
+                }
+
+                public Pose2d getPose(boolean isRedAlliance) {
+                        return isRedAlliance ? redPose : bluePose;
+                }
+        }
+
+        // DriveToPose
+        public static double kP_DriveToPoseDrive = 3;
+        public static double kD_DriveToPoseDrive = 0;
+        public static double kP_DriveToPoseTurn = 4;
+        public static double kD_DriveToPoseTurn = 0.1;
+
+        public static final double driveToPoseToleranceMeters = 0.03;
+        public static final double driveToPoseToleranceRad = Units.degreesToRadians(1.5);
+        // how long the robot has to stay in tolerance to be settled
+        public static final double driveToPoseSettleTimeSec = 0.1;
+        // feedforward is faded out between these distances so the feedback settles
+        // the last few centimeters on its own
+        public static final double driveToPoseFFMinRadius = 0.05;
+        public static final double driveToPoseFFMaxRadius = 0.5;
+
 }
\ No newline at end of file
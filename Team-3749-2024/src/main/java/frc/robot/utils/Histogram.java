@@ -0,0 +1,79 @@
+package frc.robot.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed bucket histogram that can be recorded to from any thread without
+ * locking or allocating. Values outside of the range go in the first or last
+ * bucket
+ */
+public class Histogram {
+    private final double minValue;
+    private final double bucketWidth;
+    private final AtomicLongArray counts;
+    private final AtomicLong total = new AtomicLong();
+    // stored as raw long bits so the max can be updated with a compare and set
+    private final AtomicLong maxBits = new AtomicLong(Double.doubleToRawLongBits(Double.NEGATIVE_INFINITY));
+
+    /**
+     * @param minValue lower edge of the first bucket
+     * @param maxValue upper edge of the last bucket
+     * @param buckets  number of equal width buckets
+     */
+    public Histogram(double minValue, double maxValue, int buckets) {
+        this.minValue = minValue;
+        this.bucketWidth = (maxValue - minValue) / buckets;
+        this.counts = new AtomicLongArray(buckets);
+    }
+
+    public void record(double value) {
+        int bucket = (int) ((value - minValue) / bucketWidth);
+        bucket = Math.max(0, Math.min(counts.length() - 1, bucket));
+        counts.incrementAndGet(bucket);
+        total.incrementAndGet();
+
+        long prev = maxBits.get();
+        while (value > Double.longBitsToDouble(prev)
+                && !maxBits.compareAndSet(prev, Double.doubleToRawLongBits(value))) {
+            prev = maxBits.get();
+        }
+    }
+
+    public long getCount() {
+        return total.get();
+    }
+
+    public double getMax() {
+        return Double.longBitsToDouble(maxBits.get());
+    }
+
+    /**
+     * @param percentile 0 to 1
+     * @return the upper edge of the bucket the percentile falls in, or NaN if
+     *         nothing has been recorded
+     */
+    public double getPercentile(double percentile) {
+        long count = total.get();
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long target = (long) Math.ceil(percentile * count);
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return minValue + (i + 1) * bucketWidth;
+            }
+        }
+        return minValue + counts.length() * bucketWidth;
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        total.set(0);
+        maxBits.set(Double.doubleToRawLongBits(Double.NEGATIVE_INFINITY));
+    }
+}
@@ -17,8 +17,8 @@ import frc.robot.commands.swerve.TeleopJoystickRelative;
 import frc.robot.commands.arm.Climb;
 import frc.robot.commands.arm.GetConstraints;
 import frc.robot.commands.arm.MoveArmToGoal;
-import frc.robot.commands.superstructure.GroundIntake;
 import frc.robot.commands.swerve.AlignToAmp;
+import frc.robot.commands.swerve.DriveToPose;
 // import frc.robot.commands.arm.ArmMoveToGoal;
 import frc.robot.commands.swerve.SwerveTeleop;
 import frc.robot.commands.swerve.SwerveTeleopShoot;
@@ -82,7 +82,7 @@ public class JoystickIO {
          * L2: Intake
          * L1: Outtake
          * R2: Source Intake
-         * R1: 
+         * R1: Drive to nearest shot
          * X: Outtake
          * Y:Pass
          * A:
@@ -101,6 +101,7 @@ public class JoystickIO {
          * Start:
          * Back?: Climb
          * DPadDown: Reset
+         * DPadUp/Right/Left: Tag last shot hit/high/low
          */
 
 
@@ -118,6 +119,11 @@ public class JoystickIO {
                 .onFalse(Commands.runOnce(() -> {
                     Robot.state = SuperStructureStates.STOW;
                 }, Robot.wrist, Robot.intake));
+        // drive to nearest shot
+        Robot.pilot.rightBumper().whileTrue(new DriveToPose(() -> {
+            Pose2d shootingPose = ShootKinematics.shootingPose2DCalculate(Robot.swerve.getPose());
+            return shootingPose == null ? Robot.swerve.getPose() : shootingPose;
+        }));
         // outtake
         Robot.pilot.leftBumper()
                 .onTrue(Commands.runOnce(() -> Robot.intake.setState(IntakeStates.OUTTAKE), Robot.intake))
@@ -182,6 +188,11 @@ public class JoystickIO {
 
         Robot.operator.povDown().onTrue(Commands.runOnce(() -> Robot.state = SuperStructureStates.RESET));
 
+        // tag the last shot for the shot recorder
+        Robot.operator.povUp().onTrue(Commands.runOnce(() -> ShotRecorder.tagLastShot(ShotRecorder.tagHit)));
+        Robot.operator.povRight().onTrue(Commands.runOnce(() -> ShotRecorder.tagLastShot(ShotRecorder.tagMissHigh)));
+        Robot.operator.povLeft().onTrue(Commands.runOnce(() -> ShotRecorder.tagLastShot(ShotRecorder.tagMissLow)));
+
         // Robot.operator.rightBumper().onTrue(Commands.runOnce(() ->
         // Robot.shooter.setState(ShooterStates.SPOOL)))
         // .onFalse(Commands.runOnce(() -> Robot.shooter.setState(ShooterStates.STOP)));
@@ -502,7 +502,7 @@ public class LimelightHelpers {
      */
     @Deprecated
     public static double[] getBotpose(String limelightName) {
-        return getLimelightNTDoubleArray(limelightName, "botpose");
+        return getBotPose(limelightName);
     }
 
     /**
@@ -513,7 +513,7 @@ public class LimelightHelpers {
      */
     @Deprecated
     public static double[] getBotpose_wpiRed(String limelightName) {
-        return getLimelightNTDoubleArray(limelightName, "botpose_wpired");
+        return getBotPose_wpiRed(limelightName);
     }
 
     /**
@@ -524,19 +524,21 @@ public class LimelightHelpers {
      */
     @Deprecated
     public static double[] getBotpose_wpiBlue(String limelightName) {
-        return getLimelightNTDoubleArray(limelightName, "botpose_wpiblue");
+        return getBotPose_wpiBlue(limelightName);
     }
 
+    // the botpose getters read LimelightResultCache, which only goes to NT once a
+    // loop. The arrays are copied since the cache's are shared
     public static double[] getBotPose(String limelightName) {
-        return getLimelightNTDoubleArray(limelightName, "botpose");
+        return LimelightResultCache.get(limelightName).getBotPoseArray().clone();
     }
 
     public static double[] getBotPose_wpiRed(String limelightName) {
-        return getLimelightNTDoubleArray(limelightName, "botpose_wpired");
+        return LimelightResultCache.get(limelightName).getBotPoseRedArray().clone();
     }
 
     public static double[] getBotPose_wpiBlue(String limelightName) {
-        return getLimelightNTDoubleArray(limelightName, "botpose_wpiblue");
+        return LimelightResultCache.get(limelightName).getBotPoseBlueArray().clone();
     }
 
     public static double[] getBotPose_TargetSpace(String limelightName) {
@@ -571,17 +573,17 @@ public class LimelightHelpers {
     /////
 
     public static Pose3d getBotPose3d(String limelightName) {
-        double[] poseArray = getLimelightNTDoubleArray(limelightName, "botpose");
+        double[] poseArray = LimelightResultCache.get(limelightName).getBotPoseArray();
         return toPose3D(poseArray);
     }
 
     public static Pose3d getBotPose3d_wpiRed(String limelightName) {
-        double[] poseArray = getLimelightNTDoubleArray(limelightName, "botpose_wpired");
+        double[] poseArray = LimelightResultCache.get(limelightName).getBotPoseRedArray();
         return toPose3D(poseArray);
     }
 
     public static Pose3d getBotPose3d_wpiBlue(String limelightName) {
-        double[] poseArray = getLimelightNTDoubleArray(limelightName, "botpose_wpiblue");
+        double[] poseArray = LimelightResultCache.get(limelightName).getBotPoseBlueArray();
         return toPose3D(poseArray);
     }
 
@@ -619,7 +621,7 @@ public class LimelightHelpers {
      */
     public static Pose2d getBotPose2d_wpiBlue(String limelightName) {
 
-        double[] result = getBotPose_wpiBlue(limelightName);
+        double[] result = LimelightResultCache.get(limelightName).getBotPoseBlueArray();
         return toPose2D(result);
     }
 
@@ -632,7 +634,7 @@ public class LimelightHelpers {
      */
     public static Pose2d getBotPose2d_wpiRed(String limelightName) {
 
-        double[] result = getBotPose_wpiRed(limelightName);
+        double[] result = LimelightResultCache.get(limelightName).getBotPoseRedArray();
         return toPose2D(result);
 
     }
@@ -646,7 +648,7 @@ public class LimelightHelpers {
      */
     public static Pose2d getBotPose2d(String limelightName) {
 
-        double[] result = getBotPose(limelightName);
+        double[] result = LimelightResultCache.get(limelightName).getBotPoseArray();
         return toPose2D(result);
 
     }
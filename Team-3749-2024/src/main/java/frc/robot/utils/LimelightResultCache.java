@@ -0,0 +1,361 @@
+package frc.robot.utils;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.HashMap;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.networktables.DoubleArraySubscriber;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEvent;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StringSubscriber;
+import edu.wpi.first.networktables.TimestampedDoubleArray;
+
+/**
+ * Per frame cache of one Limelight's results. The botpose arrays are read from
+ * NetworkTables once per loop in {@link #updateAll()} and only copied when
+ * their NT timestamp changes, and LimelightHelpers' botpose getters read them
+ * from here. The json dump is parsed on the NetworkTables listener thread with
+ * a streaming parser that fills preallocated arrays, so the control thread
+ * never touches Jackson. The primitive getters don't allocate a Pose3d
+ */
+public class LimelightResultCache {
+
+    public static final int maxTargets = 16;
+
+    /** One parsed json dump. Only ever filled by the listener thread */
+    public static class Frame {
+        public long ntTimestampMicros = 0;
+        public double pipelineIndex = 0;
+        public double pipelineLatencyMs = 0;
+        public double captureLatencyMs = 0;
+        public boolean valid = false;
+
+        public final double[] botposeWpiBlue = new double[6];
+        public final double[] botposeWpiRed = new double[6];
+
+        public int fiducialCount = 0;
+        public final int[] fiducialId = new int[maxTargets];
+        public final double[] fiducialTxDeg = new double[maxTargets];
+        public final double[] fiducialTyDeg = new double[maxTargets];
+        public final double[] fiducialArea = new double[maxTargets];
+
+        public int detectorCount = 0;
+        public final int[] detectorClassId = new int[maxTargets];
+        public final double[] detectorConfidence = new double[maxTargets];
+        public final double[] detectorTxDeg = new double[maxTargets];
+        public final double[] detectorTyDeg = new double[maxTargets];
+        public final double[] detectorArea = new double[maxTargets];
+
+        private void clear() {
+            valid = false;
+            fiducialCount = 0;
+            detectorCount = 0;
+        }
+    }
+
+    private static final HashMap<String, LimelightResultCache> caches = new HashMap<String, LimelightResultCache>();
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    /** @return the shared cache for a limelight, creating and filling it on first use */
+    public static synchronized LimelightResultCache get(String limelightName) {
+        String name = LimelightHelpers.sanitizeName(limelightName);
+        LimelightResultCache cache = caches.get(name);
+        if (cache == null) {
+            cache = new LimelightResultCache(name);
+            cache.update();
+            caches.put(name, cache);
+        }
+        return cache;
+    }
+
+    /** Updates every limelight's cache. Call once per loop before anything reads them */
+    public static synchronized void updateAll() {
+        for (LimelightResultCache cache : caches.values()) {
+            cache.update();
+        }
+    }
+
+    private static final double[] noPose = new double[0];
+
+    private final DoubleArraySubscriber botposeSubscriber;
+    private final DoubleArraySubscriber botposeBlueSubscriber;
+    private final DoubleArraySubscriber botposeRedSubscriber;
+    private final StringSubscriber jsonSubscriber;
+
+    private long lastPoseTimestampMicros = 0;
+    private boolean hasNewPose = false;
+    // the arrays as NT sent them, for LimelightHelpers. Never written to
+    private double[] botposeArray = noPose;
+    private double[] botposeBlueArray = noPose;
+    private double[] botposeRedArray = noPose;
+    private final double[] botposeBlue = new double[6];
+    private final double[] botposeRed = new double[6];
+    private double botposeLatencyMs = 0;
+
+    // triple buffer: the listener thread fills back, the control thread reads
+    // front, and the two are only ever swapped with ready under the lock
+    private Frame front = new Frame();
+    private Frame ready = new Frame();
+    private Frame back = new Frame();
+    private boolean readyIsNew = false;
+    private final Object swapLock = new Object();
+
+    private LimelightResultCache(String limelightName) {
+        NetworkTable table = LimelightHelpers.getLimelightNTTable(limelightName);
+        botposeSubscriber = table.getDoubleArrayTopic("botpose").subscribe(noPose);
+        botposeBlueSubscriber = table.getDoubleArrayTopic("botpose_wpiblue").subscribe(noPose);
+        botposeRedSubscriber = table.getDoubleArrayTopic("botpose_wpired").subscribe(noPose);
+        jsonSubscriber = table.getStringTopic("json").subscribe("");
+
+        NetworkTableInstance.getDefault().addListener(jsonSubscriber,
+                EnumSet.of(NetworkTableEvent.Kind.kValueAll),
+                event -> parse(event.valueData.value.getString(), event.valueData.value.getTime()));
+    }
+
+    /** Reads the latest botpose and picks up the newest parsed json frame */
+    private void update() {
+        TimestampedDoubleArray blue = botposeBlueSubscriber.getAtomic();
+        hasNewPose = blue.timestamp != lastPoseTimestampMicros && blue.value.length >= 6;
+        if (hasNewPose) {
+            lastPoseTimestampMicros = blue.timestamp;
+            botposeBlueArray = blue.value;
+            System.arraycopy(blue.value, 0, botposeBlue, 0, 6);
+            botposeLatencyMs = blue.value.length > 6 ? blue.value[6] : 0;
+
+            botposeArray = botposeSubscriber.get();
+            botposeRedArray = botposeRedSubscriber.get();
+            if (botposeRedArray.length >= 6) {
+                System.arraycopy(botposeRedArray, 0, botposeRed, 0, 6);
+            }
+        }
+
+        synchronized (swapLock) {
+            if (readyIsNew) {
+                Frame temp = front;
+                front = ready;
+                ready = temp;
+                readyIsNew = false;
+            }
+        }
+    }
+
+    /** @return true if the botpose changed in the last update */
+    public boolean hasNewPose() {
+        return hasNewPose;
+    }
+
+    /** @return false while the botpose is all zeros, which is what the limelight sends with no tags */
+    public boolean hasPose() {
+        return botposeBlue[0] != 0 || botposeBlue[1] != 0;
+    }
+
+    public double getBotPoseX(boolean isRedAlliance) {
+        return isRedAlliance ? botposeRed[0] : botposeBlue[0];
+    }
+
+    public double getBotPoseY(boolean isRedAlliance) {
+        return isRedAlliance ? botposeRed[1] : botposeBlue[1];
+    }
+
+    public double getBotPoseYawRad(boolean isRedAlliance) {
+        return Units.degreesToRadians(isRedAlliance ? botposeRed[5] : botposeBlue[5]);
+    }
+
+    public double getBotPoseLatencyMs() {
+        return botposeLatencyMs;
+    }
+
+    /** @return NT time in microseconds the current botpose was published */
+    public long getBotPoseNtTimestampMicros() {
+        return lastPoseTimestampMicros;
+    }
+
+    /** @return FPGA time in seconds that the pose was captured */
+    public double getBotPoseTimestampSec() {
+        return lastPoseTimestampMicros / 1e6 - botposeLatencyMs / 1000.0;
+    }
+
+    /** @return the botpose array as NT sent it, shared, so don't write to it */
+    double[] getBotPoseArray() {
+        return botposeArray;
+    }
+
+    /** @return the blue origin botpose array as NT sent it, shared, so don't write to it */
+    double[] getBotPoseBlueArray() {
+        return botposeBlueArray;
+    }
+
+    /** @return the red origin botpose array as NT sent it, shared, so don't write to it */
+    double[] getBotPoseRedArray() {
+        return botposeRedArray;
+    }
+
+    /**
+     * @return the newest parsed json frame. Only valid until the next
+     *         {@link #updateAll()}, don't hold onto it
+     */
+    public Frame getFrame() {
+        return front;
+    }
+
+    private void parse(String json, long ntTimestampMicros) {
+        Frame frame = back;
+        frame.clear();
+        frame.ntTimestampMicros = ntTimestampMicros;
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if (field.equals("Results") && parser.currentToken() == JsonToken.START_OBJECT) {
+                    parseResults(parser, frame);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("lljson error: " + e.getMessage());
+            return;
+        }
+
+        synchronized (swapLock) {
+            back = ready;
+            ready = frame;
+            readyIsNew = true;
+        }
+    }
+
+    private static void parseResults(JsonParser parser, Frame frame) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "pID":
+                    frame.pipelineIndex = parser.getValueAsDouble();
+                    break;
+                case "tl":
+                    frame.pipelineLatencyMs = parser.getValueAsDouble();
+                    break;
+                case "cl":
+                    frame.captureLatencyMs = parser.getValueAsDouble();
+                    break;
+                case "v":
+                    frame.valid = parser.getValueAsInt() == 1;
+                    break;
+                case "botpose_wpiblue":
+                    readArray(parser, token, frame.botposeWpiBlue);
+                    break;
+                case "botpose_wpired":
+                    readArray(parser, token, frame.botposeWpiRed);
+                    break;
+                case "Fiducial":
+                    if (token == JsonToken.START_ARRAY) {
+                        parseFiducials(parser, frame);
+                    }
+                    break;
+                case "Detector":
+                    if (token == JsonToken.START_ARRAY) {
+                        parseDetections(parser, frame);
+                    }
+                    break;
+                default:
+                    if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+                        parser.skipChildren();
+                    }
+                    break;
+            }
+        }
+    }
+
+    private static void parseFiducials(JsonParser parser, Frame frame) throws IOException {
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            int i = frame.fiducialCount;
+            boolean hasRoom = i < maxTargets;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if (!hasRoom || token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                switch (field) {
+                    case "fID":
+                        frame.fiducialId[i] = parser.getValueAsInt();
+                        break;
+                    case "tx":
+                        frame.fiducialTxDeg[i] = parser.getValueAsDouble();
+                        break;
+                    case "ty":
+                        frame.fiducialTyDeg[i] = parser.getValueAsDouble();
+                        break;
+                    case "ta":
+                        frame.fiducialArea[i] = parser.getValueAsDouble();
+                        break;
+                    default:
+                        break;
+                }
+            }
+            if (hasRoom) {
+                frame.fiducialCount++;
+            }
+        }
+    }
+
+    private static void parseDetections(JsonParser parser, Frame frame) throws IOException {
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            int i = frame.detectorCount;
+            boolean hasRoom = i < maxTargets;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if (!hasRoom || token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                switch (field) {
+                    case "classID":
+                        frame.detectorClassId[i] = parser.getValueAsInt();
+                        break;
+                    case "conf":
+                        frame.detectorConfidence[i] = parser.getValueAsDouble();
+                        break;
+                    case "tx":
+                        frame.detectorTxDeg[i] = parser.getValueAsDouble();
+                        break;
+                    case "ty":
+                        frame.detectorTyDeg[i] = parser.getValueAsDouble();
+                        break;
+                    case "ta":
+                        frame.detectorArea[i] = parser.getValueAsDouble();
+                        break;
+                    default:
+                        break;
+                }
+            }
+            if (hasRoom) {
+                frame.detectorCount++;
+            }
+        }
+    }
+
+    private static void readArray(JsonParser parser, JsonToken token, double[] into) throws IOException {
+        if (token != JsonToken.START_ARRAY) {
+            return;
+        }
+        int i = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (i < into.length) {
+                into[i] = parser.getValueAsDouble();
+            }
+            i++;
+        }
+    }
+}
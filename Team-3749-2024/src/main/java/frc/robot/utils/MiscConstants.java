@@ -51,6 +51,59 @@ public class MiscConstants {
     public static final double loopPeriodSec = 0.02;
   }
 
+  // arm, wrist and flywheel feedback run on their own loop at this period, see
+  // Robot.controlPeriodic. Set it to 0.02 to compare against the main loop rate
+  public static final double controlPeriodSec = 0.005;
+  // Spark MAX status frames carrying what the control loop reads are sent this
+  // often instead of the REV defaults (velocity 20 ms, absolute encoder 200 ms),
+  // so every control period sees a fresh sample
+  public static final int controlStatusFramePeriodMs = (int) Math.round(controlPeriodSec * 1000);
+  // a velocity that hasn't changed for this long is taken as the mechanism
+  // sitting still rather than a frame that hasn't arrived
+  public static final double accelerationStaleSec = 4 * controlPeriodSec;
+
+  // VoltageOutput skips motor writes this close to the last one sent, but
+  // still resends at least this often
+  public static final double outputEpsilonVolts = 0.01;
+  public static final double outputKeepAliveSec = 0.1;
+
+  public static final class PowerConstants {
+
+    // keep predicted sag above this, a little over the 7 V brownout
+    public static final double minBatteryVolts = 7.5;
+
+    // battery, main breaker and wiring. The estimate is kept in these bounds
+    public static final double nominalResistanceOhms = 0.02;
+    public static final double minResistanceOhms = 0.008;
+    public static final double maxResistanceOhms = 0.06;
+    public static final double forgettingFactor = 0.995;
+
+    // drive is cut before it gets too sluggish to dodge, the shooter can just
+    // spin up slower
+    public static final double minDriveScale = 0.4;
+    public static final double minShooterScale = 0.1;
+    // how quickly a scale comes back once there's headroom again, per loop
+    public static final double scaleRecoveryPerLoop = 0.02;
+  }
+
+  public static final class ThermalConstants {
+
+    // rough NEO numbers, 40 A continuous settles about 50 C over ambient
+    public static final double ambientCelcius = 25;
+    public static final double degreesPerAmpSquared = 0.031;
+    public static final double timeConstantSec = 180;
+    // how slowly the sensor pulls the model in, as slow as the model itself so
+    // the current squared term drives anything quicker and the sensor only
+    // takes out drift
+    public static final double sensorCorrectionTimeConstantSec = timeConstantSec;
+    // the current average the minutes to limit forecast is based on
+    public static final double dutyCycleWindowSec = 30;
+
+    public static final double derateStartCelcius = 70;
+    public static final double maxCelcius = 100;
+    public static final int minCurrentLimitAmps = 10;
+  }
+
   public static final class ControllerConstants {
 
     public static final double deadband = 0.125;
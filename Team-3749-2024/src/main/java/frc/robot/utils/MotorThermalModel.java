@@ -0,0 +1,100 @@
+package frc.robot.utils;
+
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.utils.MiscConstants.ThermalConstants;
+
+/**
+ * First order thermal model of one NEO. Heating goes with current squared and
+ * the winding cools toward ambient, so the estimate moves as soon as current
+ * does rather than waiting on the slow motor controller sensor. The sensor is
+ * still blended in slowly to keep the model from drifting. The current limit
+ * is derated linearly from ThermalConstants.derateStartCelcius down to
+ * ThermalConstants.minCurrentLimitAmps at ThermalConstants.maxCelcius
+ */
+public class MotorThermalModel {
+
+    private final int maxCurrentLimitAmps;
+    private final String tempKey;
+    private final String limitKey;
+    private final String minutesKey;
+
+    private double tempCelcius = ThermalConstants.ambientCelcius;
+    // low passed current squared, the duty cycle the forecast assumes continues
+    private double averageCurrentSquared = 0;
+    private double lastUpdateTime = Double.NaN;
+    private int currentLimitAmps;
+
+    /**
+     * @param name                shown on the dashboard under "thermal"
+     * @param maxCurrentLimitAmps the limit to use while the motor is cool
+     */
+    public MotorThermalModel(String name, int maxCurrentLimitAmps) {
+        this.maxCurrentLimitAmps = maxCurrentLimitAmps;
+        this.currentLimitAmps = maxCurrentLimitAmps;
+        this.tempKey = "thermal/" + name + " temp";
+        this.limitKey = "thermal/" + name + " current limit";
+        this.minutesKey = "thermal/" + name + " minutes to limit";
+    }
+
+    /**
+     * @param currentAmps       measured output current
+     * @param sensorTempCelcius motor controller temperature, 0 or less if there
+     *                          isn't one like in sim
+     */
+    public void update(double currentAmps, double sensorTempCelcius) {
+        double now = Timer.getFPGATimestamp();
+        double dt = Double.isNaN(lastUpdateTime) ? 0 : now - lastUpdateTime;
+        lastUpdateTime = now;
+
+        double currentSquared = currentAmps * currentAmps;
+        double steadyStateCelcius = ThermalConstants.ambientCelcius
+                + ThermalConstants.degreesPerAmpSquared * currentSquared;
+        // exact step of the first order model so a long dt can't overshoot
+        double decay = Math.exp(-dt / ThermalConstants.timeConstantSec);
+        tempCelcius = steadyStateCelcius + (tempCelcius - steadyStateCelcius) * decay;
+        if (sensorTempCelcius > 0) {
+            double correction = 1 - Math.exp(-dt / ThermalConstants.sensorCorrectionTimeConstantSec);
+            tempCelcius += (sensorTempCelcius - tempCelcius) * correction;
+        }
+
+        double averageDecay = Math.exp(-dt / ThermalConstants.dutyCycleWindowSec);
+        averageCurrentSquared = currentSquared + (averageCurrentSquared - currentSquared) * averageDecay;
+
+        double derate = (tempCelcius - ThermalConstants.derateStartCelcius)
+                / (ThermalConstants.maxCelcius - ThermalConstants.derateStartCelcius);
+        derate = Math.max(0, Math.min(1, derate));
+        currentLimitAmps = (int) Math.round(maxCurrentLimitAmps
+                - derate * (maxCurrentLimitAmps - ThermalConstants.minCurrentLimitAmps));
+
+        SmartDashboard.putNumber(tempKey, tempCelcius);
+        SmartDashboard.putNumber(limitKey, currentLimitAmps);
+        SmartDashboard.putNumber(minutesKey, getMinutesToLimit());
+    }
+
+    public double getTempCelcius() {
+        return tempCelcius;
+    }
+
+    /** @return the derated current limit to send to the motor controller */
+    public int getCurrentLimitAmps() {
+        return currentLimitAmps;
+    }
+
+    /**
+     * @return minutes until the motor reaches ThermalConstants.maxCelcius if the
+     *         recent average current keeps up, or infinity if it never would
+     */
+    public double getMinutesToLimit() {
+        if (tempCelcius >= ThermalConstants.maxCelcius) {
+            return 0;
+        }
+        double steadyStateCelcius = ThermalConstants.ambientCelcius
+                + ThermalConstants.degreesPerAmpSquared * averageCurrentSquared;
+        if (steadyStateCelcius <= ThermalConstants.maxCelcius) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return ThermalConstants.timeConstantSec / 60.0
+                * Math.log((steadyStateCelcius - tempCelcius) / (steadyStateCelcius - ThermalConstants.maxCelcius));
+    }
+}
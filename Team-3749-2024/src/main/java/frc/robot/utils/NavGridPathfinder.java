@@ -0,0 +1,404 @@
+package frc.robot.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pathplanner.lib.util.GeometryUtil;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.Filesystem;
+
+/**
+ * Grid pathfinder over PathPlanner's navgrid.json. The grid is loaded once into
+ * a bitset on a background thread, and distance fields to the goals we drive to
+ * most are precomputed so those paths are just a walk downhill. Anything else,
+ * or any path while dynamic obstacles are set, uses A*. Paths are found on the
+ * same thread with {@link #findPathAsync} so the search never runs in the robot
+ * loop, and are shortened by skipping waypoints that have line of sight to each
+ * other
+ */
+public class NavGridPathfinder {
+
+    public enum NavGoal {
+        AMP(AutoConstants.blueAmpApproach),
+        SPEAKER(AutoConstants.blueSpeakerApproach),
+        SOURCE(AutoConstants.blueSourceApproach),
+        STAGE_SHOT(AutoConstants.blueStageShotApproach);
+
+        public final Translation2d bluePosition;
+
+        NavGoal(Translation2d bluePosition) {
+            this.bluePosition = bluePosition;
+        }
+
+        public Translation2d getPosition(boolean isRedAlliance) {
+            return isRedAlliance ? GeometryUtil.flipFieldPosition(bluePosition) : bluePosition;
+        }
+    }
+
+    private static final double diagonalCost = Math.sqrt(2);
+    private static final int[] neighborColumn = { 1, -1, 0, 0, 1, 1, -1, -1 };
+    private static final int[] neighborRow = { 0, 0, 1, -1, 1, -1, 1, -1 };
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "navgrid pathfinder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static volatile boolean loaded = false;
+    private static int columns;
+    private static int rows;
+    private static double nodeSizeMeters;
+    private static BitSet staticObstacles;
+    // replaced rather than modified so the pathfinding thread always sees a
+    // consistent set
+    private static volatile BitSet dynamicObstacles = new BitSet();
+    // [0 blue, 1 red][goal]
+    private static float[][][] distanceFields;
+
+    /** Loads navgrid.json and builds the distance fields on the pathfinding thread */
+    public static void loadNavGrid() {
+        executor.submit(() -> {
+            try {
+                JsonNode root = new ObjectMapper()
+                        .readTree(new File(Filesystem.getDeployDirectory(), "pathplanner/navgrid.json"));
+                JsonNode grid = root.get("grid");
+                nodeSizeMeters = root.get("nodeSizeMeters").asDouble();
+                rows = grid.size();
+                columns = grid.get(0).size();
+                staticObstacles = new BitSet(rows * columns);
+                for (int row = 0; row < rows; row++) {
+                    for (int column = 0; column < columns; column++) {
+                        if (grid.get(row).get(column).asBoolean()) {
+                            staticObstacles.set(index(column, row));
+                        }
+                    }
+                }
+
+                distanceFields = new float[2][NavGoal.values().length][];
+                for (NavGoal goal : NavGoal.values()) {
+                    distanceFields[0][goal.ordinal()] = buildDistanceField(goal.getPosition(false));
+                    distanceFields[1][goal.ordinal()] = buildDistanceField(goal.getPosition(true));
+                }
+                loaded = true;
+                System.out.println("navgrid loaded");
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    public static boolean isLoaded() {
+        return loaded;
+    }
+
+    /** Blocks every cell within the radius of a point until the obstacles are cleared */
+    public static synchronized void addDynamicObstacle(Translation2d center, double radiusMeters) {
+        if (!loaded) {
+            return;
+        }
+        BitSet updated = (BitSet) dynamicObstacles.clone();
+        int minColumn = clampColumn((int) Math.floor((center.getX() - radiusMeters) / nodeSizeMeters));
+        int maxColumn = clampColumn((int) Math.floor((center.getX() + radiusMeters) / nodeSizeMeters));
+        int minRow = clampRow((int) Math.floor((center.getY() - radiusMeters) / nodeSizeMeters));
+        int maxRow = clampRow((int) Math.floor((center.getY() + radiusMeters) / nodeSizeMeters));
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                double dx = (column + 0.5) * nodeSizeMeters - center.getX();
+                double dy = (row + 0.5) * nodeSizeMeters - center.getY();
+                if (dx * dx + dy * dy <= radiusMeters * radiusMeters) {
+                    updated.set(index(column, row));
+                }
+            }
+        }
+        dynamicObstacles = updated;
+    }
+
+    public static synchronized void clearDynamicObstacles() {
+        dynamicObstacles = new BitSet();
+    }
+
+    /** Finds a path on the pathfinding thread */
+    public static CompletableFuture<List<Translation2d>> findPathAsync(Translation2d start, Translation2d goal) {
+        return CompletableFuture.supplyAsync(() -> findPath(start, goal), executor);
+    }
+
+    /**
+     * @return waypoints from start to goal, including both, or null if the grid
+     *         isn't loaded or there is no path. Searches on the calling thread,
+     *         use {@link #findPathAsync} from the robot loop
+     */
+    public static List<Translation2d> findPath(Translation2d start, Translation2d goal) {
+        if (!loaded) {
+            return null;
+        }
+        BitSet dynamic = dynamicObstacles;
+        int startCell = nearestFreeCell(cellOf(start), dynamic);
+        int goalCell = nearestFreeCell(cellOf(goal), dynamic);
+        if (startCell < 0 || goalCell < 0) {
+            return null;
+        }
+
+        List<Integer> cells = null;
+        float[] field = dynamic.isEmpty() ? getDistanceField(goalCell) : null;
+        if (field != null) {
+            cells = descend(field, startCell);
+        }
+        if (cells == null) {
+            cells = aStar(startCell, goalCell, dynamic);
+        }
+        if (cells == null) {
+            return null;
+        }
+
+        List<Translation2d> points = new ArrayList<Translation2d>(cells.size());
+        points.add(start);
+        for (int i = 1; i < cells.size() - 1; i++) {
+            points.add(centerOf(cells.get(i)));
+        }
+        points.add(goal);
+        return smooth(points, dynamic);
+    }
+
+    private static float[] getDistanceField(int goalCell) {
+        for (int alliance = 0; alliance < 2; alliance++) {
+            for (NavGoal goal : NavGoal.values()) {
+                float[] field = distanceFields[alliance][goal.ordinal()];
+                if (field[goalCell] == 0) {
+                    return field;
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Dijkstra outwards from the goal so every free cell knows its distance to it */
+    private static float[] buildDistanceField(Translation2d goal) {
+        float[] distance = new float[rows * columns];
+        Arrays.fill(distance, Float.POSITIVE_INFINITY);
+        int goalCell = nearestFreeCell(cellOf(goal), new BitSet());
+        if (goalCell < 0) {
+            return distance;
+        }
+        PriorityQueue<Long> open = new PriorityQueue<Long>();
+        distance[goalCell] = 0;
+        open.add(encode(0, goalCell));
+        while (!open.isEmpty()) {
+            long entry = open.poll();
+            int cell = (int) entry;
+            float cost = Float.intBitsToFloat((int) (entry >>> 32));
+            if (cost > distance[cell]) {
+                continue;
+            }
+            for (int i = 0; i < neighborColumn.length; i++) {
+                int neighbor = neighbor(cell, i, staticObstacles, null);
+                if (neighbor < 0) {
+                    continue;
+                }
+                float next = cost + (float) (i < 4 ? 1 : diagonalCost);
+                if (next < distance[neighbor]) {
+                    distance[neighbor] = next;
+                    open.add(encode(next, neighbor));
+                }
+            }
+        }
+        return distance;
+    }
+
+    private static List<Integer> descend(float[] field, int startCell) {
+        if (Float.isInfinite(field[startCell])) {
+            return null;
+        }
+        List<Integer> cells = new ArrayList<Integer>();
+        int cell = startCell;
+        cells.add(cell);
+        for (int steps = 0; field[cell] > 0 && steps < rows * columns; steps++) {
+            int best = -1;
+            float bestDistance = field[cell];
+            for (int i = 0; i < neighborColumn.length; i++) {
+                int neighbor = neighbor(cell, i, staticObstacles, null);
+                if (neighbor >= 0 && field[neighbor] < bestDistance) {
+                    bestDistance = field[neighbor];
+                    best = neighbor;
+                }
+            }
+            if (best < 0) {
+                return null;
+            }
+            cell = best;
+            cells.add(cell);
+        }
+        return cells;
+    }
+
+    private static List<Integer> aStar(int startCell, int goalCell, BitSet dynamic) {
+        int cellCount = rows * columns;
+        float[] costSoFar = new float[cellCount];
+        int[] cameFrom = new int[cellCount];
+        Arrays.fill(costSoFar, Float.POSITIVE_INFINITY);
+        Arrays.fill(cameFrom, -1);
+
+        PriorityQueue<Long> open = new PriorityQueue<Long>();
+        costSoFar[startCell] = 0;
+        open.add(encode(heuristic(startCell, goalCell), startCell));
+        while (!open.isEmpty()) {
+            int cell = (int) (long) open.poll();
+            if (cell == goalCell) {
+                List<Integer> cells = new ArrayList<Integer>();
+                for (int at = goalCell; at != -1; at = cameFrom[at]) {
+                    cells.add(0, at);
+                }
+                return cells;
+            }
+            for (int i = 0; i < neighborColumn.length; i++) {
+                int neighbor = neighbor(cell, i, staticObstacles, dynamic);
+                if (neighbor < 0) {
+                    continue;
+                }
+                float next = costSoFar[cell] + (float) (i < 4 ? 1 : diagonalCost);
+                if (next < costSoFar[neighbor]) {
+                    costSoFar[neighbor] = next;
+                    cameFrom[neighbor] = cell;
+                    open.add(encode(next + heuristic(neighbor, goalCell), neighbor));
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Drops every waypoint that the previous kept waypoint can see past */
+    private static List<Translation2d> smooth(List<Translation2d> points, BitSet dynamic) {
+        List<Translation2d> smoothed = new ArrayList<Translation2d>();
+        int anchor = 0;
+        smoothed.add(points.get(0));
+        while (anchor < points.size() - 1) {
+            int next = anchor + 1;
+            for (int i = points.size() - 1; i > anchor + 1; i--) {
+                if (hasLineOfSight(points.get(anchor), points.get(i), dynamic)) {
+                    next = i;
+                    break;
+                }
+            }
+            smoothed.add(points.get(next));
+            anchor = next;
+        }
+        return smoothed;
+    }
+
+    private static boolean hasLineOfSight(Translation2d from, Translation2d to, BitSet dynamic) {
+        double distance = from.getDistance(to);
+        int samples = (int) Math.ceil(distance / (nodeSizeMeters / 4)) + 1;
+        for (int i = 0; i <= samples; i++) {
+            double t = (double) i / samples;
+            int cell = cellOf(from.getX() + (to.getX() - from.getX()) * t,
+                    from.getY() + (to.getY() - from.getY()) * t);
+            if (isBlocked(cell, staticObstacles, dynamic)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the neighbor in direction i, or -1 if it is off the grid, blocked, or
+     *         a diagonal that would clip a corner
+     */
+    private static int neighbor(int cell, int i, BitSet obstacles, BitSet dynamic) {
+        int column = cell % columns + neighborColumn[i];
+        int row = cell / columns + neighborRow[i];
+        if (column < 0 || column >= columns || row < 0 || row >= rows) {
+            return -1;
+        }
+        int neighbor = index(column, row);
+        if (isBlocked(neighbor, obstacles, dynamic)) {
+            return -1;
+        }
+        if (i >= 4 && (isBlocked(index(column, cell / columns), obstacles, dynamic)
+                || isBlocked(index(cell % columns, row), obstacles, dynamic))) {
+            return -1;
+        }
+        return neighbor;
+    }
+
+    private static boolean isBlocked(int cell, BitSet obstacles, BitSet dynamic) {
+        return obstacles.get(cell) || (dynamic != null && dynamic.get(cell));
+    }
+
+    /** Breadth first search out to the closest unblocked cell */
+    private static int nearestFreeCell(int cell, BitSet dynamic) {
+        if (!isBlocked(cell, staticObstacles, dynamic)) {
+            return cell;
+        }
+        int[] queue = new int[rows * columns];
+        BitSet visited = new BitSet(rows * columns);
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = cell;
+        visited.set(cell);
+        while (head < tail) {
+            int current = queue[head++];
+            if (!isBlocked(current, staticObstacles, dynamic)) {
+                return current;
+            }
+            for (int i = 0; i < 4; i++) {
+                int column = current % columns + neighborColumn[i];
+                int row = current / columns + neighborRow[i];
+                if (column < 0 || column >= columns || row < 0 || row >= rows) {
+                    continue;
+                }
+                int next = index(column, row);
+                if (!visited.get(next)) {
+                    visited.set(next);
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static float heuristic(int cell, int goalCell) {
+        int dx = Math.abs(cell % columns - goalCell % columns);
+        int dy = Math.abs(cell / columns - goalCell / columns);
+        return (float) (Math.max(dx, dy) + (diagonalCost - 1) * Math.min(dx, dy));
+    }
+
+    /** Packs a non negative cost and a cell so the queue orders by cost */
+    private static long encode(float cost, int cell) {
+        return ((long) Float.floatToIntBits(cost) << 32) | cell;
+    }
+
+    private static int index(int column, int row) {
+        return row * columns + column;
+    }
+
+    private static int clampColumn(int column) {
+        return Math.max(0, Math.min(columns - 1, column));
+    }
+
+    private static int clampRow(int row) {
+        return Math.max(0, Math.min(rows - 1, row));
+    }
+
+    private static int cellOf(Translation2d position) {
+        return cellOf(position.getX(), position.getY());
+    }
+
+    private static int cellOf(double x, double y) {
+        return index(clampColumn((int) Math.floor(x / nodeSizeMeters)), clampRow((int) Math.floor(y / nodeSizeMeters)));
+    }
+
+    private static Translation2d centerOf(int cell) {
+        return new Translation2d((cell % columns + 0.5) * nodeSizeMeters, (cell / columns + 0.5) * nodeSizeMeters);
+    }
+}
@@ -0,0 +1,125 @@
+package frc.robot.utils;
+
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.Robot;
+import frc.robot.utils.MiscConstants.PowerConstants;
+
+/**
+ * Keeps the battery out of brownout by limiting the drivetrain and shooter
+ * before the voltage gets there. Every loop the battery is fit to
+ * V = openCircuitVolts - resistance * totalCurrent with recursive least
+ * squares, which gives how much current the robot can pull before sagging to
+ * PowerConstants.minBatteryVolts. The arm, wrist, intake and steering always
+ * get what they need, the drive motors get the rest first and the shooter
+ * spin up gets whatever is left
+ */
+public class PowerManager {
+
+    private double openCircuitVolts = 12.5;
+    private double resistanceOhms = PowerConstants.nominalResistanceOhms;
+    // covariance of [openCircuitVolts, resistanceOhms]
+    private static final double initialP00 = 1;
+    private static final double initialP11 = 1e-3;
+    private double p00 = initialP00;
+    private double p01 = 0;
+    private double p11 = initialP11;
+
+    private double batteryVolts = 12.5;
+    private double totalCurrentAmps = 0;
+    private double currentBudgetAmps = 0;
+    private double driveScale = 1;
+    private double shooterScale = 1;
+
+    public PowerManager() {
+    }
+
+    /** Call in the sense phase, after every subsystem has read its inputs */
+    public void update() {
+        batteryVolts = RobotController.getBatteryVoltage();
+
+        double essentialAmps = Robot.arm.getCurrentAmps()
+                + Robot.wrist.getCurrentAmps()
+                + Robot.intake.getCurrentAmps()
+                + Robot.swerve.getTurnCurrentAmps();
+        double driveAmps = Robot.swerve.getDriveCurrentAmps();
+        double shooterAmps = Robot.shooter.getCurrentAmps();
+        totalCurrentAmps = essentialAmps + driveAmps + shooterAmps;
+
+        estimateBattery(totalCurrentAmps, batteryVolts);
+
+        currentBudgetAmps = Math.max(0, (openCircuitVolts - PowerConstants.minBatteryVolts) / resistanceOhms);
+        double driveBudgetAmps = currentBudgetAmps - essentialAmps;
+        driveScale = rescale(driveScale, driveBudgetAmps, driveAmps, PowerConstants.minDriveScale);
+        double shooterBudgetAmps = driveBudgetAmps - driveAmps;
+        shooterScale = rescale(shooterScale, shooterBudgetAmps, shooterAmps, PowerConstants.minShooterScale);
+
+        SmartDashboard.putNumber("power/battery volts", batteryVolts);
+        SmartDashboard.putNumber("power/predicted volts", getPredictedVolts());
+        SmartDashboard.putNumber("power/resistance mOhm", resistanceOhms * 1000);
+        SmartDashboard.putNumber("power/total current", totalCurrentAmps);
+        SmartDashboard.putNumber("power/current budget", currentBudgetAmps);
+        SmartDashboard.putNumber("power/drive scale", driveScale);
+        SmartDashboard.putNumber("power/shooter scale", shooterScale);
+    }
+
+    private void estimateBattery(double currentAmps, double volts) {
+        // regressor is [1, -current]
+        double pPhi0 = p00 - p01 * currentAmps;
+        double pPhi1 = p01 - p11 * currentAmps;
+        double denominator = PowerConstants.forgettingFactor + pPhi0 - currentAmps * pPhi1;
+        double k0 = pPhi0 / denominator;
+        double k1 = pPhi1 / denominator;
+
+        double error = volts - (openCircuitVolts - resistanceOhms * currentAmps);
+        openCircuitVolts += k0 * error;
+        resistanceOhms += k1 * error;
+        resistanceOhms = Math.max(PowerConstants.minResistanceOhms,
+                Math.min(PowerConstants.maxResistanceOhms, resistanceOhms));
+
+        p00 = (p00 - k0 * pPhi0) / PowerConstants.forgettingFactor;
+        p01 = (p01 - k0 * pPhi1) / PowerConstants.forgettingFactor;
+        p11 = (p11 - k1 * pPhi1) / PowerConstants.forgettingFactor;
+        // while the current barely changes nothing is learned about the
+        // resistance, so stop the forgetting factor from winding it up
+        p00 = Math.min(p00, initialP00);
+        p11 = Math.min(p11, initialP11);
+    }
+
+    /**
+     * Scales output down right away when over budget, and back up slowly once
+     * there's headroom. Current roughly follows voltage, so the new scale is the
+     * old one times how far over or under budget we are
+     */
+    private static double rescale(double scale, double budgetAmps, double usedAmps, double minScale) {
+        double target = usedAmps < 1 ? 1 : scale * budgetAmps / usedAmps;
+        target = Math.max(minScale, Math.min(1, target));
+        if (target < scale) {
+            return target;
+        }
+        return Math.min(target, scale + PowerConstants.scaleRecoveryPerLoop);
+    }
+
+    /** @return battery voltage expected at the current draw */
+    public double getPredictedVolts() {
+        return openCircuitVolts - resistanceOhms * totalCurrentAmps;
+    }
+
+    public double getTotalCurrentAmps() {
+        return totalCurrentAmps;
+    }
+
+    public double getResistanceOhms() {
+        return resistanceOhms;
+    }
+
+    /** @return fraction of the drive motors' voltage limit they're allowed */
+    public double getDriveScale() {
+        return driveScale;
+    }
+
+    /** @return fraction of the shooter's spin up rate it's allowed */
+    public double getShooterScale() {
+        return shooterScale;
+    }
+}
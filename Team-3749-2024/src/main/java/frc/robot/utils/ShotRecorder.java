@@ -0,0 +1,154 @@
+package frc.robot.utils;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.Robot;
+import frc.robot.subsystems.arm.ShootKinematics;
+
+/**
+ * Appends a record of every speaker shot to shots.bin in the operating
+ * directory, so the shot table can be corrected from what actually happened on
+ * the field. A shot is recorded when the intake starts feeding, and the
+ * operator can then tag it as a hit or a miss high or low. A tag is its own
+ * record and applies to the shot before it, so the file is only ever appended
+ * to. Writing happens on a background thread so the disk can't hold up the
+ * loop. ShotTableRefiner reads the file back
+ */
+public class ShotRecorder {
+
+    public static final int tagHit = 0;
+    public static final int tagMissHigh = 1;
+    public static final int tagMissLow = -1;
+
+    private static final byte shotType = 1;
+    private static final byte tagType = 2;
+    // type, timestamp, alliance and 11 doubles
+    private static final int shotBytes = 1 + 8 + 1 + 11 * 8;
+
+    private static final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "shot recorder");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static int shotsRecorded = 0;
+
+    public static class ShotRecord {
+        public double timestamp;
+        public boolean isRed;
+        public double xMeters;
+        public double yMeters;
+        public double headingRad;
+        public double distanceMeters;
+        public double armRad;
+        // what the shot table said at the time, to tell if the arm had settled
+        public double tableArmRad;
+        public double wristRad;
+        public double topVelocityRadPerSec;
+        public double bottomVelocityRadPerSec;
+        public double vxMetersPerSecond;
+        public double vyMetersPerSecond;
+        public boolean isTagged = false;
+        public int tag = tagHit;
+    }
+
+    /** Records the shot that's being fed right now */
+    public static void recordShot() {
+        Pose2d pose = Robot.swerve.getPose();
+        ChassisSpeeds speeds = Robot.swerve.getFieldRelativeChassisSpeeds();
+        double distance = ShootKinematics.getDistanceToSpeaker(pose);
+
+        ByteBuffer buffer = ByteBuffer.allocate(shotBytes);
+        buffer.put(shotType);
+        buffer.putDouble(Timer.getFPGATimestamp());
+        buffer.put((byte) (MiscConstants.isRedAlliance() ? 1 : 0));
+        buffer.putDouble(pose.getX());
+        buffer.putDouble(pose.getY());
+        buffer.putDouble(pose.getRotation().getRadians());
+        buffer.putDouble(distance);
+        buffer.putDouble(Robot.arm.getPositionRad());
+        buffer.putDouble(ShootKinematics.getArmAngleRadGivenDistance(distance));
+        buffer.putDouble(Robot.wrist.getPositionRad());
+        buffer.putDouble(Robot.shooter.getTopVelocityRadPerSec());
+        buffer.putDouble(Robot.shooter.getBottomVelocityRadPerSec());
+        buffer.putDouble(speeds.vxMetersPerSecond);
+        buffer.putDouble(speeds.vyMetersPerSecond);
+        append(buffer.array());
+
+        shotsRecorded++;
+        SmartDashboard.putNumber("shots recorded", shotsRecorded);
+    }
+
+    /** @param tag tagHit, tagMissHigh or tagMissLow */
+    public static void tagLastShot(int tag) {
+        append(new byte[] { tagType, (byte) tag });
+        SmartDashboard.putNumber("last shot tag", tag);
+    }
+
+    private static void append(byte[] bytes) {
+        writer.execute(() -> {
+            File file = new File(Filesystem.getOperatingDirectory(), "shots.bin");
+            try (FileOutputStream out = new FileOutputStream(file, true)) {
+                out.write(bytes);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /** Reads every shot in a file, with tags applied to the shots they follow */
+    public static ArrayList<ShotRecord> read(File file) throws IOException {
+        ArrayList<ShotRecord> shots = new ArrayList<ShotRecord>();
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            while (true) {
+                byte type;
+                try {
+                    type = in.readByte();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (type == tagType) {
+                    int tag = in.readByte();
+                    if (!shots.isEmpty()) {
+                        ShotRecord last = shots.get(shots.size() - 1);
+                        last.tag = tag;
+                        last.isTagged = true;
+                    }
+                    continue;
+                }
+                if (type != shotType) {
+                    throw new IOException("Unknown record type " + type + " in " + file);
+                }
+                ShotRecord shot = new ShotRecord();
+                shot.timestamp = in.readDouble();
+                shot.isRed = in.readByte() == 1;
+                shot.xMeters = in.readDouble();
+                shot.yMeters = in.readDouble();
+                shot.headingRad = in.readDouble();
+                shot.distanceMeters = in.readDouble();
+                shot.armRad = in.readDouble();
+                shot.tableArmRad = in.readDouble();
+                shot.wristRad = in.readDouble();
+                shot.topVelocityRadPerSec = in.readDouble();
+                shot.bottomVelocityRadPerSec = in.readDouble();
+                shot.vxMetersPerSecond = in.readDouble();
+                shot.vyMetersPerSecond = in.readDouble();
+                shots.add(shot);
+            }
+        }
+        return shots;
+    }
+}
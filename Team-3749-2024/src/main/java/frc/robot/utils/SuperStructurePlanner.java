@@ -0,0 +1,457 @@
+package frc.robot.utils;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+
+import edu.wpi.first.math.trajectory.ExponentialProfile;
+import edu.wpi.first.math.trajectory.ExponentialProfile.Constraints;
+import edu.wpi.first.math.trajectory.ExponentialProfile.State;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Robot;
+import frc.robot.subsystems.arm.Arm;
+import frc.robot.subsystems.arm.ArmConstants;
+import frc.robot.subsystems.arm.ArmConstants.ArmStates;
+import frc.robot.subsystems.wrist.Wrist;
+import frc.robot.subsystems.wrist.WristConstants;
+import frc.robot.subsystems.wrist.WristConstants.WristStates;
+
+/**
+ * Plans coordinated arm and wrist moves. Each segment of a plan slows the
+ * faster joint's motion profile so that both joints arrive at the same time, and a
+ * plan is only used if sampling it never enters a keep out zone. Plans between
+ * named superstructure states are computed once and cached
+ */
+public class SuperStructurePlanner {
+
+    public static class Segment {
+        public final double armGoalRad;
+        public final double wristGoalRad;
+        public final Constraints armConstraints;
+        public final Constraints wristConstraints;
+        public final double durationSec;
+
+        public Segment(double armGoalRad, double wristGoalRad, Constraints armConstraints,
+                Constraints wristConstraints, double durationSec) {
+            this.armGoalRad = armGoalRad;
+            this.wristGoalRad = wristGoalRad;
+            this.armConstraints = armConstraints;
+            this.wristConstraints = wristConstraints;
+            this.durationSec = durationSec;
+        }
+    }
+
+    public static class Plan {
+        public final Segment[] segments;
+        public final double totalTimeSec;
+
+        public Plan(Segment[] segments) {
+            this.segments = segments;
+            double time = 0;
+            for (Segment segment : segments) {
+                time += segment.durationSec;
+            }
+            this.totalTimeSec = time;
+        }
+    }
+
+    // how many points along a segment are checked against the keep out zones
+    private static final int validationSamples = 25;
+    // how close both joints need to be to a via point before moving onto the next
+    // segment. Loose enough to round the corner instead of stopping on it
+    private static final double viaToleranceRad = Units.degreesToRadians(8);
+    // how close to a named state the superstructure needs to be to use a cached plan
+    private static final double restingToleranceRad = Units.degreesToRadians(3);
+
+    private final EnumMap<SuperStructureStates, EnumMap<SuperStructureStates, Plan>> cache = new EnumMap<>(
+            SuperStructureStates.class);
+
+    private Plan activePlan = null;
+    private int segmentIndex = 0;
+    private Timer segmentTimer = new Timer();
+    // counts every plan followed, so callers can tell whether a start() planned anything
+    private int planCount = 0;
+
+    private ShuffleData<Double> planTimeLog = new ShuffleData<Double>("superstructure", "planned move time", 0.0);
+    private ShuffleData<Double> segmentLog = new ShuffleData<Double>("superstructure", "plan segment", 0.0);
+
+    public SuperStructurePlanner() {
+        for (SuperStructureStates from : SuperStructureStates.values()) {
+            if (!isPlannable(from)) {
+                continue;
+            }
+            EnumMap<SuperStructureStates, Plan> row = new EnumMap<>(SuperStructureStates.class);
+            for (SuperStructureStates to : SuperStructureStates.values()) {
+                if (from == to || !isPlannable(to)) {
+                    continue;
+                }
+                row.put(to, plan(getArmGoalRad(from.armState), getWristGoalRad(from.wristState), to));
+            }
+            cache.put(from, row);
+        }
+    }
+
+    /**
+     * @return the arm goal for a named arm state, or NaN if the state doesn't have a
+     *         fixed position
+     */
+    public static double getArmGoalRad(ArmStates state) {
+        switch (state) {
+            case STOW:
+                return ArmConstants.stowPositionRad;
+            case AMP:
+                return ArmConstants.ampPositionRad;
+            case CLIMB:
+                return ArmConstants.climbPositionRad;
+            case SUBWOOFER:
+                return ArmConstants.subwooferPositionRad;
+            case PODIUM:
+                return ArmConstants.podiumPositionRad;
+            case GROUND_INTAKE:
+                return ArmConstants.groundIntakepositionRad;
+            case SOURCE:
+                return ArmConstants.sourcePositionRad;
+            default:
+                return Double.NaN;
+        }
+    }
+
+    /**
+     * @return the wrist goal for a named wrist state, or NaN if the state doesn't
+     *         have a fixed position
+     */
+    public static double getWristGoalRad(WristStates state) {
+        switch (state) {
+            case STOW:
+                return WristConstants.stowGoalRad;
+            case ALMOST_DEPLOYED:
+                return WristConstants.almostDeployedRad;
+            case FULL_DEPLOYED:
+                return WristConstants.fullDeployedRad;
+            case SUBWOOFER:
+                return WristConstants.subwooferRad;
+            case PODIUM:
+                return WristConstants.podiumRad;
+            case PASS:
+                return WristConstants.passingRad;
+            default:
+                return Double.NaN;
+        }
+    }
+
+    private static boolean isPlannable(SuperStructureStates state) {
+        // climb down and reset drive the arm open loop, so they don't get a plan
+        if (state == SuperStructureStates.CLIMBDOWN || state == SuperStructureStates.RESET) {
+            return false;
+        }
+        return !Double.isNaN(getArmGoalRad(state.armState)) && !Double.isNaN(getWristGoalRad(state.wristState));
+    }
+
+    /**
+     * Starts moving the arm and wrist to a named superstructure state, using a
+     * cached plan if the superstructure is currently resting at another named state
+     */
+    public void start(SuperStructureStates target) {
+        if (!isPlannable(target)) {
+            return;
+        }
+        SuperStructureStates from = getRestingState();
+        Plan plan = null;
+        if (from != null && from != target) {
+            plan = cache.get(from).get(target);
+        }
+        if (plan == null) {
+            plan = plan(Robot.arm.getPositionRad(), Robot.wrist.getPositionRad(), target);
+        }
+        follow(plan);
+    }
+
+    /**
+     * Starts moving the arm and wrist to an arbitrary pair of goals, such as an
+     * aimbot arm angle
+     */
+    public void start(double armGoalRad, double wristGoalRad) {
+        follow(plan(Robot.arm.getPositionRad(), Robot.wrist.getPositionRad(), armGoalRad, wristGoalRad, null));
+    }
+
+    /** Advances through the active plan. Call once per loop before moving the joints */
+    public void execute() {
+        if (activePlan == null) {
+            return;
+        }
+        if (segmentIndex >= activePlan.segments.length - 1) {
+            if (isFinished()) {
+                // anything that sets goals directly after the plan shouldn't be stuck with
+                // stretched constraints
+                cancel();
+            }
+            return;
+        }
+        Segment segment = activePlan.segments[segmentIndex];
+        // wait on the measured positions rather than the timer so a lagging joint can't
+        // cut through a keep out zone
+        if (UtilityFunctions.withinMargin(viaToleranceRad, Robot.arm.getPositionRad(), segment.armGoalRad)
+                && UtilityFunctions.withinMargin(viaToleranceRad, Robot.wrist.getPositionRad(),
+                        segment.wristGoalRad)) {
+            applySegment(segmentIndex + 1);
+        }
+    }
+
+    /** @return true once the final segment has been commanded and its time has run out */
+    public boolean isFinished() {
+        return activePlan == null
+                || (segmentIndex == activePlan.segments.length - 1
+                        && segmentTimer.get() >= activePlan.segments[segmentIndex].durationSec);
+    }
+
+    /** Drops the active plan and puts both joints back on their full constraints */
+    public void cancel() {
+        activePlan = null;
+        segmentIndex = 0;
+        Robot.arm.setConstraints(Arm.getProfileConstraints(Robot.arm.getPositionRad(), Robot.arm.getGoal(),
+                Robot.wrist.getPositionRad(), Robot.wrist.getWristGoal().position));
+        Robot.wrist.setConstraints(
+                Wrist.getProfileConstraints(Robot.wrist.getPositionRad(), Robot.wrist.getWristGoal().position));
+    }
+
+    /** @return how many plans have been followed, goes up by one on every start that plans */
+    public int getPlanCount() {
+        return planCount;
+    }
+
+    private void follow(Plan plan) {
+        activePlan = plan;
+        planCount++;
+        planTimeLog.set(plan.totalTimeSec);
+        applySegment(0);
+    }
+
+    private void applySegment(int index) {
+        segmentIndex = index;
+        segmentLog.set((double) index);
+        Segment segment = activePlan.segments[index];
+        Robot.arm.setConstraints(segment.armConstraints);
+        Robot.wrist.setConstraints(segment.wristConstraints);
+        Robot.arm.setGoal(segment.armGoalRad);
+        Robot.wrist.setGoal(segment.wristGoalRad);
+        segmentTimer.restart();
+    }
+
+    private SuperStructureStates getRestingState() {
+        if (!UtilityFunctions.isStopped(Robot.arm.getVelocityRadPerSec())
+                || !UtilityFunctions.isStopped(Robot.wrist.getVelocityRadPerSec())) {
+            return null;
+        }
+        for (SuperStructureStates state : cache.keySet()) {
+            if (UtilityFunctions.withinMargin(restingToleranceRad, Robot.arm.getPositionRad(),
+                    getArmGoalRad(state.armState))
+                    && UtilityFunctions.withinMargin(restingToleranceRad, Robot.wrist.getPositionRad(),
+                            getWristGoalRad(state.wristState))) {
+                return state;
+            }
+        }
+        return null;
+    }
+
+    private Plan plan(double armStartRad, double wristStartRad, SuperStructureStates target) {
+        double armGoalRad = getArmGoalRad(target.armState);
+        double wristGoalRad = getWristGoalRad(target.wristState);
+        double[] via = null;
+        // the intake has to clear the ground while it swings out, so lift the arm
+        // until the wrist is mostly deployed
+        if (target == SuperStructureStates.GROUND_INTAKE && wristStartRad < WristConstants.almostDeployedRad
+                && armStartRad < ArmConstants.groundIntakeClearanceRad) {
+            via = new double[] { ArmConstants.groundIntakeClearanceRad, WristConstants.almostDeployedRad };
+        }
+        return plan(armStartRad, wristStartRad, armGoalRad, wristGoalRad, via);
+    }
+
+    /**
+     * Builds the fastest valid plan between two joint positions. A direct move is
+     * tried first, then moving through a single via point, and if nothing is valid
+     * the wrist is stowed before the arm moves at all
+     */
+    private Plan plan(double armStartRad, double wristStartRad, double armGoalRad, double wristGoalRad,
+            double[] requiredVia) {
+        if (requiredVia != null) {
+            Plan viaPlan = tryPlan(armStartRad, wristStartRad, armGoalRad, wristGoalRad,
+                    new double[][] { requiredVia });
+            if (viaPlan != null) {
+                return viaPlan;
+            }
+        }
+
+        Plan best = tryPlan(armStartRad, wristStartRad, armGoalRad, wristGoalRad, new double[0][]);
+        if (best != null) {
+            return best;
+        }
+
+        double clearArmRad = Math.min(ArmConstants.maxArmRadWithWristDeployed, armStartRad);
+        double[][] candidates = {
+                // wrist first
+                { armStartRad, wristGoalRad },
+                // arm first
+                { armGoalRad, wristStartRad },
+                // drop the arm so the wrist can swing, then move together
+                { clearArmRad, wristGoalRad },
+                // bring the wrist into the frame perimeter, then move together
+                { armStartRad, Math.min(wristStartRad, WristConstants.maxWristRadInFramePerimeter) },
+        };
+        for (double[] via : candidates) {
+            Plan candidate = tryPlan(armStartRad, wristStartRad, armGoalRad, wristGoalRad, new double[][] { via });
+            if (candidate != null && (best == null || candidate.totalTimeSec < best.totalTimeSec)) {
+                best = candidate;
+            }
+        }
+        if (best != null) {
+            return best;
+        }
+
+        // stowing the wrist is always inside the frame perimeter
+        Plan fallback = tryPlan(armStartRad, wristStartRad, armGoalRad, wristGoalRad,
+                new double[][] { { armStartRad, WristConstants.stowGoalRad },
+                        { armGoalRad, WristConstants.stowGoalRad } });
+        if (fallback != null) {
+            return fallback;
+        }
+        return new Plan(new Segment[] { buildSegment(armStartRad, wristStartRad, armGoalRad, wristGoalRad) });
+    }
+
+    /** @return the plan through the given via points, or null if any of it is invalid */
+    private Plan tryPlan(double armStartRad, double wristStartRad, double armGoalRad, double wristGoalRad,
+            double[][] vias) {
+        ArrayList<Segment> segments = new ArrayList<Segment>();
+        double armRad = armStartRad;
+        double wristRad = wristStartRad;
+        // where the joints actually are when each segment starts, which after the
+        // first one is short of the via point and still moving
+        State armState = new State(armStartRad, 0);
+        State wristState = new State(wristStartRad, 0);
+        for (int i = 0; i <= vias.length; i++) {
+            double nextArmRad = i < vias.length ? vias[i][0] : armGoalRad;
+            double nextWristRad = i < vias.length ? vias[i][1] : wristGoalRad;
+            if (Math.abs(nextArmRad - armRad) < 1e-6 && Math.abs(nextWristRad - wristRad) < 1e-6) {
+                continue;
+            }
+            Segment segment = buildSegment(armRad, wristRad, nextArmRad, nextWristRad);
+            if (!isValid(armState, wristState, segment)) {
+                return null;
+            }
+            segments.add(segment);
+            State[] handoff = getHandoff(armState, wristState, segment);
+            armState = handoff[0];
+            wristState = handoff[1];
+            armRad = nextArmRad;
+            wristRad = nextWristRad;
+        }
+        if (segments.isEmpty()) {
+            segments.add(buildSegment(armStartRad, wristStartRad, armGoalRad, wristGoalRad));
+        }
+        return new Plan(segments.toArray(new Segment[0]));
+    }
+
+    private Segment buildSegment(double armStartRad, double wristStartRad, double armGoalRad,
+            double wristGoalRad) {
+        // the arm's gains are scheduled on the wrist, whose moment arm takes more
+        // voltage to hold up the further out it is
+        Constraints armConstraints = Arm.getProfileConstraints(armStartRad, armGoalRad, wristStartRad,
+                wristGoalRad);
+        Constraints wristConstraints = Wrist.getProfileConstraints(wristStartRad, wristGoalRad);
+
+        double duration = Math.max(profileTime(armStartRad, armGoalRad, armConstraints),
+                profileTime(wristStartRad, wristGoalRad, wristConstraints));
+
+        return new Segment(armGoalRad, wristGoalRad,
+                stretchToTime(armStartRad, armGoalRad, armConstraints, duration),
+                stretchToTime(wristStartRad, wristGoalRad, wristConstraints, duration),
+                duration);
+    }
+
+    /** @return the time a rest to rest profile takes between two positions */
+    private static double profileTime(double startRad, double goalRad, Constraints constraints) {
+        if (Math.abs(goalRad - startRad) < 1e-6) {
+            return 0;
+        }
+        return new ExponentialProfile(constraints).timeLeftUntil(new State(startRad, 0), new State(goalRad, 0));
+    }
+
+    /**
+     * Lowers the profile's input voltage so it takes the given time. Time only
+     * goes down as the voltage goes up, so a bisection finds it
+     */
+    private static Constraints stretchToTime(double startRad, double goalRad, Constraints constraints,
+            double time) {
+        if (Math.abs(goalRad - startRad) < 1e-6 || time <= profileTime(startRad, goalRad, constraints)) {
+            return constraints;
+        }
+        double low = 0;
+        double high = 1;
+        for (int i = 0; i < 20; i++) {
+            double scale = (low + high) / 2;
+            Constraints scaled = Constraints.fromStateSpace(constraints.maxInput * scale, constraints.A,
+                    constraints.B);
+            if (profileTime(startRad, goalRad, scaled) > time) {
+                low = scale;
+            } else {
+                high = scale;
+            }
+        }
+        // the high end always arrives in time
+        return Constraints.fromStateSpace(constraints.maxInput * high, constraints.A, constraints.B);
+    }
+
+    /**
+     * Samples a segment from the state the joints start it in, which can be
+     * moving if the previous segment was handed off early
+     */
+    private static boolean isValid(State armStart, State wristStart, Segment segment) {
+        ExponentialProfile armProfile = new ExponentialProfile(segment.armConstraints);
+        ExponentialProfile wristProfile = new ExponentialProfile(segment.wristConstraints);
+        State armGoal = new State(segment.armGoalRad, 0);
+        State wristGoal = new State(segment.wristGoalRad, 0);
+        double duration = Math.max(armProfile.timeLeftUntil(armStart, armGoal),
+                wristProfile.timeLeftUntil(wristStart, wristGoal));
+
+        for (int i = 0; i <= validationSamples; i++) {
+            double t = duration * i / validationSamples;
+            double armRad = armProfile.calculate(t, armStart, armGoal).position;
+            double wristRad = wristProfile.calculate(t, wristStart, wristGoal).position;
+            if (isInKeepOut(armRad, wristRad)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the arm and wrist states when execute() moves on from a segment,
+     *         the first moment both joints are within the via tolerance of its
+     *         goal
+     */
+    private static State[] getHandoff(State armStart, State wristStart, Segment segment) {
+        ExponentialProfile armProfile = new ExponentialProfile(segment.armConstraints);
+        ExponentialProfile wristProfile = new ExponentialProfile(segment.wristConstraints);
+        State armGoal = new State(segment.armGoalRad, 0);
+        State wristGoal = new State(segment.wristGoalRad, 0);
+        double duration = Math.max(armProfile.timeLeftUntil(armStart, armGoal),
+                wristProfile.timeLeftUntil(wristStart, wristGoal));
+
+        for (int i = 0; i <= validationSamples; i++) {
+            double t = duration * i / validationSamples;
+            State arm = armProfile.calculate(t, armStart, armGoal);
+            State wrist = wristProfile.calculate(t, wristStart, wristGoal);
+            if (UtilityFunctions.withinMargin(viaToleranceRad, arm.position, segment.armGoalRad)
+                    && UtilityFunctions.withinMargin(viaToleranceRad, wrist.position, segment.wristGoalRad)) {
+                return new State[] { arm, wrist };
+            }
+        }
+        return new State[] { armGoal, wristGoal };
+    }
+
+    private static boolean isInKeepOut(double armRad, double wristRad) {
+        // frame perimeter: the intake sticks out if the wrist is deployed with the arm
+        // raised
+        return wristRad > WristConstants.maxWristRadInFramePerimeter + 1e-6
+                && armRad > ArmConstants.maxArmRadWithWristDeployed + 1e-6;
+    }
+}
@@ -0,0 +1,86 @@
+package frc.robot.utils;
+
+import java.util.ArrayList;
+import java.util.function.DoubleConsumer;
+
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * Sits between an IO class and a motor controller's setVoltage and drops writes
+ * that are within MiscConstants.outputEpsilonVolts of the last value sent. The
+ * last value is still resent every MiscConstants.outputKeepAliveSec in case a
+ * frame was lost. Counts sent and skipped writes per device so CAN use can be
+ * watched on the dashboard
+ */
+public class VoltageOutput {
+
+    private static final ArrayList<VoltageOutput> outputs = new ArrayList<VoltageOutput>();
+    private static double lastLogTime = Timer.getFPGATimestamp();
+
+    private final DoubleConsumer writer;
+    private final String writesPerSecKey;
+    private final String skippedKey;
+
+    private double lastVolts = Double.NaN;
+    private double lastWriteTime = 0;
+    private long writes = 0;
+    private long skipped = 0;
+    private long writesAtLastLog = 0;
+
+    /**
+     * @param name   shown on the dashboard under "can writes"
+     * @param writer the motor controller's setVoltage
+     */
+    public VoltageOutput(String name, DoubleConsumer writer) {
+        this.writer = writer;
+        this.writesPerSecKey = "can writes/" + name + " per sec";
+        this.skippedKey = "can writes/" + name + " skipped";
+        synchronized (outputs) {
+            outputs.add(this);
+        }
+    }
+
+    public void setVoltage(double volts) {
+        double now = Timer.getFPGATimestamp();
+        if (Math.abs(volts - lastVolts) < MiscConstants.outputEpsilonVolts
+                && now - lastWriteTime < MiscConstants.outputKeepAliveSec) {
+            skipped++;
+            return;
+        }
+        writer.accept(volts);
+        lastVolts = volts;
+        lastWriteTime = now;
+        writes++;
+    }
+
+    /** @return the last voltage actually sent */
+    public double getLastVolts() {
+        return Double.isNaN(lastVolts) ? 0 : lastVolts;
+    }
+
+    public long getWrites() {
+        return writes;
+    }
+
+    public long getSkipped() {
+        return skipped;
+    }
+
+    /** Puts every device's write rate on the dashboard, about once a second */
+    public static void logWriteCounts() {
+        double now = Timer.getFPGATimestamp();
+        double elapsed = now - lastLogTime;
+        if (elapsed < 1) {
+            return;
+        }
+        lastLogTime = now;
+        synchronized (outputs) {
+            for (VoltageOutput output : outputs) {
+                SmartDashboard.putNumber(output.writesPerSecKey, (output.writes - output.writesAtLastLog) / elapsed);
+                SmartDashboard.putNumber(output.skippedKey, output.skipped);
+                output.writesAtLastLog = output.writes;
+            }
+        }
+    }
+}
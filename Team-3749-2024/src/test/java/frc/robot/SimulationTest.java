@@ -0,0 +1,33 @@
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.function.DoubleConsumer;
+
+import org.junit.jupiter.api.BeforeAll;
+
+import edu.wpi.first.hal.HAL;
+
+/**
+ * Base for tests that run robot code against the sims. Starts the HAL once and
+ * steps a loop at a fixed period, so every test runs its loop the same way
+ */
+public abstract class SimulationTest {
+
+    @BeforeAll
+    static void initializeHal() {
+        assertTrue(HAL.initialize(500, 0));
+    }
+
+    /**
+     * Calls step once a period for durationSec
+     * 
+     * @param step given the time at the start of the period
+     */
+    protected static void loop(double durationSec, double periodSec, DoubleConsumer step) {
+        int periods = (int) Math.ceil(durationSec / periodSec);
+        for (int i = 0; i < periods; i++) {
+            step.accept(i * periodSec);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package frc.robot.subsystems.arm;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.trajectory.ExponentialProfile;
+import edu.wpi.first.math.trajectory.TrapezoidProfile;
+import frc.robot.SimulationTest;
+import frc.robot.subsystems.arm.ArmIO.ArmData;
+import frc.robot.subsystems.wrist.WristConstants;
+import frc.robot.utils.MiscConstants;
+
+/**
+ * Compares the arm's exponential profile against trapezoids, for stow to
+ * subwoofer and stow to amp. Against the fastest trapezoid that plans with the
+ * same voltage, which gets the top speed that voltage leaves room for and
+ * whatever is left after that speed for accelerating. And against the sim's
+ * old ArmConstants.stowedConstraints, which plan with the whole battery, so
+ * the exponential profile gets the whole battery too. The moves are checked on
+ * paper and run through the arm's own closed loop against the sim arm
+ */
+class ArmProfileTest extends SimulationTest {
+
+    // how close the arm has to stay to count as there, same as the planner's
+    private static final double settledRad = Math.toRadians(3);
+    private static final double settledRadPerSec = 0.1;
+    private static final double runSec = 2;
+    private static final double periodSec = MiscConstants.controlPeriodSec;
+
+    // ArmConstants.stowedConstraints in the sim before the exponential profile
+    private static final TrapezoidProfile.Constraints previousConstraints = new TrapezoidProfile.Constraints(
+            1.783, 89.175);
+    private static final double batteryVolts = 12;
+
+    /** Volts for the sim arm from the closed loop, every period */
+    private interface Control {
+        double calculate(ArmClosedLoop closedLoop, ArmData data);
+    }
+
+    /** The closed loop stepping its own exponential profile, like Arm does */
+    private static final Control exponential = (closedLoop, data) -> closedLoop.step(data.positionRad,
+            data.velocityRadPerSec, WristConstants.stowGoalRad);
+
+    /** The closed loop following a trapezoid's setpoints instead */
+    private static Control following(TrapezoidProfile trapezoid, double goalRad) {
+        return (closedLoop, data) -> {
+            ExponentialProfile.State previous = closedLoop.getSetpoint();
+            TrapezoidProfile.State next = trapezoid.calculate(periodSec,
+                    new TrapezoidProfile.State(previous.position, previous.velocity),
+                    new TrapezoidProfile.State(goalRad, 0));
+            return closedLoop.follow(new ExponentialProfile.State(next.position, next.velocity),
+                    (next.velocity - previous.velocity) / periodSec, data.positionRad, data.velocityRadPerSec,
+                    WristConstants.stowGoalRad);
+        };
+    }
+
+    private static ExponentialProfile.Constraints exponentialConstraints(double startRad, double goalRad) {
+        return Arm.getProfileConstraints(startRad, goalRad, WristConstants.stowGoalRad, WristConstants.stowGoalRad);
+    }
+
+    /**
+     * The fastest trapezoid on paper, found by trying top speeds from 5 to 95% of
+     * the speed the profile's volts could hold
+     */
+    private static TrapezoidProfile.Constraints bestTrapezoid(double startRad, double goalRad) {
+        // the same volts the exponential profile plans with
+        double volts = exponentialConstraints(startRad, goalRad).maxInput;
+        double freeSpeed = volts / ArmConstants.stowedkV;
+        TrapezoidProfile.Constraints best = null;
+        double bestTime = Double.POSITIVE_INFINITY;
+        for (int i = 1; i < 20; i++) {
+            double maxVelocity = freeSpeed * i / 20.0;
+            double maxAcceleration = (volts - ArmConstants.stowedkV * maxVelocity) / ArmConstants.stowedkA;
+            TrapezoidProfile.Constraints constraints = new TrapezoidProfile.Constraints(maxVelocity,
+                    maxAcceleration);
+            double time = trapezoidTime(constraints, startRad, goalRad);
+            if (time < bestTime) {
+                bestTime = time;
+                best = constraints;
+            }
+        }
+        return best;
+    }
+
+    private static double trapezoidTime(TrapezoidProfile.Constraints constraints, double startRad, double goalRad) {
+        TrapezoidProfile profile = new TrapezoidProfile(constraints);
+        profile.calculate(0, new TrapezoidProfile.State(startRad, 0), new TrapezoidProfile.State(goalRad, 0));
+        return profile.totalTime();
+    }
+
+    private static double exponentialTime(double startRad, double goalRad) {
+        return new ExponentialProfile(exponentialConstraints(startRad, goalRad)).timeLeftUntil(
+                new ExponentialProfile.State(startRad, 0), new ExponentialProfile.State(goalRad, 0));
+    }
+
+    /**
+     * Runs the arm's closed loop against the sim arm, the sim PID being zero so
+     * it's all feedforward
+     *
+     * @param constraints the exponential profile's, the closed loop needs them
+     *                    even when following a trapezoid
+     * @return seconds until the arm is at the goal and stays there
+     */
+    private static double settleTime(ExponentialProfile.Constraints constraints, Control control, double goalRad) {
+        ArmSim sim = new ArmSim(periodSec);
+        ArmData data = new ArmData();
+        sim.updateControlData(data);
+        ArmClosedLoop closedLoop = new ArmClosedLoop(periodSec, constraints);
+        closedLoop.setGoal(goalRad);
+        closedLoop.start(data.positionRad, data.velocityRadPerSec);
+
+        double[] settledTime = { Double.NaN };
+        loop(runSec, periodSec, t -> {
+            sim.setVoltage(control.calculate(closedLoop, data));
+            sim.updateControlData(data);
+
+            boolean settled = Math.abs(data.positionRad - goalRad) < settledRad
+                    && Math.abs(data.velocityRadPerSec) < settledRadPerSec;
+            if (!settled) {
+                settledTime[0] = Double.NaN;
+            } else if (Double.isNaN(settledTime[0])) {
+                settledTime[0] = t + periodSec;
+            }
+        });
+        return settledTime[0];
+    }
+
+    /** @return the most feedforward the closed loop asks for along a trapezoid's plan */
+    private static double peakPlannedFeedforward(TrapezoidProfile.Constraints constraints, double startRad,
+            double goalRad) {
+        TrapezoidProfile trapezoid = new TrapezoidProfile(constraints);
+        ArmClosedLoop closedLoop = new ArmClosedLoop(periodSec, exponentialConstraints(startRad, goalRad));
+        TrapezoidProfile.State[] setpoint = { new TrapezoidProfile.State(startRad, 0) };
+        double[] peak = { 0 };
+        loop(trapezoidTime(constraints, startRad, goalRad), periodSec, t -> {
+            TrapezoidProfile.State next = trapezoid.calculate(periodSec, setpoint[0],
+                    new TrapezoidProfile.State(goalRad, 0));
+            double acceleration = (next.velocity - setpoint[0].velocity) / periodSec;
+            setpoint[0] = next;
+            peak[0] = Math.max(peak[0], Math.abs(closedLoop.calculateFF(next.position, next.velocity,
+                    acceleration, WristConstants.stowGoalRad)));
+        });
+        return peak[0];
+    }
+
+    private static void assertFasterThanTrapezoid(double goalRad) {
+        // the sim arm starts level, not at stow
+        double startRad = 0;
+        double exponentialPlanned = exponentialTime(startRad, goalRad);
+        TrapezoidProfile.Constraints trapezoidConstraints = bestTrapezoid(startRad, goalRad);
+        double trapezoidPlanned = trapezoidTime(trapezoidConstraints, startRad, goalRad);
+        assertTrue(exponentialPlanned < trapezoidPlanned,
+                "planned exponential " + exponentialPlanned + " s, trapezoid " + trapezoidPlanned + " s");
+
+        ExponentialProfile.Constraints constraints = exponentialConstraints(startRad, goalRad);
+        double exponentialSettled = settleTime(constraints, exponential, goalRad);
+        double trapezoidSettled = settleTime(constraints,
+                following(new TrapezoidProfile(trapezoidConstraints), goalRad), goalRad);
+        String times = "settled exponential " + exponentialSettled + " s, trapezoid " + trapezoidSettled + " s";
+        assertTrue(!Double.isNaN(exponentialSettled) && !Double.isNaN(trapezoidSettled), times);
+        assertTrue(exponentialSettled <= trapezoidSettled, times);
+    }
+
+    private static void assertFasterThanPreviousTrapezoid(double goalRad) {
+        double startRad = 0;
+        // the old trapezoid left nothing for feedback
+        double peakVolts = peakPlannedFeedforward(previousConstraints, startRad, goalRad);
+        assertTrue(peakVolts > ArmConstants.profileVolts, "old trapezoid peaks at " + peakVolts + " V");
+
+        // so given the same battery, with kS and gravity off the top like
+        // Arm.getProfileConstraints
+        ExponentialProfile.Constraints constraints = ExponentialProfile.Constraints.fromCharacteristics(
+                batteryVolts - ArmConstants.stowedkS - ArmConstants.stowedkG, ArmConstants.stowedkV,
+                ArmConstants.stowedkA);
+        double exponentialSettled = settleTime(constraints, exponential, goalRad);
+        double previousSettled = settleTime(constraints,
+                following(new TrapezoidProfile(previousConstraints), goalRad), goalRad);
+        String times = "settled exponential " + exponentialSettled + " s, old trapezoid " + previousSettled + " s";
+        assertTrue(!Double.isNaN(exponentialSettled) && !Double.isNaN(previousSettled), times);
+        assertTrue(exponentialSettled <= previousSettled, times);
+    }
+
+    @Test
+    void stowToSubwooferBeatsTrapezoid() {
+        assertFasterThanTrapezoid(ArmConstants.subwooferPositionRad);
+    }
+
+    @Test
+    void stowToAmpBeatsTrapezoid() {
+        assertFasterThanTrapezoid(ArmConstants.ampPositionRad);
+    }
+
+    @Test
+    void stowToSubwooferBeatsPreviousTrapezoid() {
+        assertFasterThanPreviousTrapezoid(ArmConstants.subwooferPositionRad);
+    }
+
+    @Test
+    void stowToAmpBeatsPreviousTrapezoid() {
+        assertFasterThanPreviousTrapezoid(ArmConstants.ampPositionRad);
+    }
+}
@@ -0,0 +1,55 @@
+package frc.robot.subsystems.swerve;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Twist2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import frc.robot.Robot;
+import frc.robot.SimulationTest;
+import frc.robot.subsystems.swerve.SwerveConstants.DriveConstants;
+
+/**
+ * Spins while driving straight down the field, holding each loop's module
+ * states for the whole loop like the modules do, and measures how far the
+ * robot ends up to the side of the line it was told to drive
+ */
+class SwerveDriftTest extends SimulationTest {
+
+    private static final double driveSpeedMetersPerSec = 1.5;
+    private static final double spinRadPerSec = 3;
+    private static final double durationSec = 1.5;
+
+    /** @return meters off the commanded line after spinning while driving */
+    private static double lateralDrift(boolean discretize) {
+        Pose2d[] pose = { new Pose2d() };
+        loop(durationSec, Robot.kDefaultPeriod, t -> {
+            ChassisSpeeds robotRelative = ChassisSpeeds.fromFieldRelativeSpeeds(driveSpeedMetersPerSec, 0,
+                    spinRadPerSec, pose[0].getRotation());
+            SwerveModuleState[] states = Swerve.getModuleStates(robotRelative, discretize);
+            SwerveDriveKinematics.desaturateWheelSpeeds(states, DriveConstants.maxSpeedMetersPerSecond);
+
+            // the modules run these states for the whole loop, so the robot moves
+            // along the arc they make
+            ChassisSpeeds achieved = DriveConstants.driveKinematics.toChassisSpeeds(states);
+            pose[0] = pose[0].exp(new Twist2d(
+                    achieved.vxMetersPerSecond * Robot.kDefaultPeriod,
+                    achieved.vyMetersPerSecond * Robot.kDefaultPeriod,
+                    achieved.omegaRadiansPerSecond * Robot.kDefaultPeriod));
+        });
+        return Math.abs(pose[0].getY());
+    }
+
+    @Test
+    void discretizingRemovesDriftWhileSpinning() {
+        double rawDrift = lateralDrift(false);
+        double discretizedDrift = lateralDrift(true);
+        String drifts = "raw " + rawDrift + " m, discretized " + discretizedDrift + " m";
+        assertTrue(rawDrift > 0.03, drifts);
+        assertTrue(discretizedDrift < 0.005, drifts);
+    }
+}
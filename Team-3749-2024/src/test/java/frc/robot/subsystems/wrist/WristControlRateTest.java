@@ -0,0 +1,52 @@
+package frc.robot.subsystems.wrist;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import frc.robot.SimulationTest;
+import frc.robot.subsystems.wrist.WristConstants.WristStates;
+import frc.robot.subsystems.wrist.WristIO.WristData;
+import frc.robot.utils.MiscConstants;
+
+/**
+ * Runs the wrist's closed loop against the sim wrist at the control loop's
+ * period and at the old main loop period, and checks the faster loop follows
+ * the profile more closely
+ */
+class WristControlRateTest extends SimulationTest {
+
+    private static final double mainLoopPeriodSec = 0.02;
+
+    /** @return RMS distance between the profile setpoint and the sim wrist over a stow to pass move */
+    private static double trackingErrorRMS(double periodSec) {
+        WristSim sim = new WristSim(periodSec);
+        WristData data = new WristData();
+        sim.updateControlData(data);
+
+        WristClosedLoop closedLoop = new WristClosedLoop(periodSec,
+                Wrist.getProfileConstraints(data.positionRad, WristConstants.passingRad));
+        closedLoop.setGoal(WristConstants.passingRad);
+        closedLoop.start(data.positionRad, data.velocityRadPerSec);
+
+        double[] sumSquared = { 0 };
+        int[] samples = { 0 };
+        loop(2, periodSec, t -> {
+            sim.setVoltage(closedLoop.step(data.positionRad, data.velocityRadPerSec, WristStates.IN_TRANIST));
+            sim.updateControlData(data);
+
+            double error = closedLoop.getSetpoint().position - data.positionRad;
+            sumSquared[0] += error * error;
+            samples[0]++;
+        });
+        return Math.sqrt(sumSquared[0] / samples[0]);
+    }
+
+    @Test
+    void controlLoopTracksTighterThanMainLoop() {
+        double controlLoopError = trackingErrorRMS(MiscConstants.controlPeriodSec);
+        double mainLoopError = trackingErrorRMS(mainLoopPeriodSec);
+        assertTrue(controlLoopError < mainLoopError,
+                "control loop rms " + controlLoopError + " rad, main loop rms " + mainLoopError + " rad");
+    }
+}